@@ -1,12 +1,24 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Graph {
 	
 	// array containing the nodes of the graph. Node's id is its index in the array
 	private Node[] G;			
-	// list of nodes ordered by ascending degree
-	List<Integer> sortedNodes; 
+	
+	// bucket queue of the nodes indexed by degree: head[d] and tail[d] are the first and the last
+	// node of degree d, next and prev link the nodes of the same degree (-1 at the ends of a bucket)
+	private int[] head;
+	private int[] tail;
+	private int[] next;
+	private int[] prev;
+	// true for the nodes that are in the queue (not removed)
+	private boolean[] queued;
+	// upper bound of the highest degree of a queued node
+	private int maxDegree;
+	// false if the queue has to be built (an edge has been added)
+	private boolean sorted;
 	
 	// Class representing a single node 
 	private class Node {
@@ -77,80 +89,86 @@ public class Graph {
 	// add a weighted edge to the graph
 	public void addEdge(int n1, int n2, int weight)
 	{
-		sortedNodes = null;
+		sorted = false;
 		G[n1].addAdjacency(n2, weight);
 		G[n2].addAdjacency(n1, weight);
 	}
 
-	// sort nodes by ascending degree
+	// build the bucket queue from the degrees of the nodes
 	private void sortNodes()
 	{
-		sortedNodes = new ArrayList<Integer>();
-		sortedNodes.add(0);
-		for(int i=1;i<G.length;i++)
-			sortedNodes.add(searchDegreePosition(G[i].getDegree(),0,sortedNodes.size()), i);
-	}
-	
-	// get the starting index of a degree in the sorted nodes list
-	private int searchDegreePosition(int degree, int from, int to)
-	{
-		if(sortedNodes.size() == 0)
-			return 0;
-		
-		int position = (from+to)/2;
+		int n = G.length;
+		int degrees = 1;
+		for(int i=0;i<n;i++)
+			degrees = Math.max(degrees, G[i].getDegree()+1);
 		
-		if(from>=to || G[sortedNodes.get(position)].getDegree()==degree)
+		head = new int[degrees];
+		tail = new int[degrees];
+		next = new int[n];
+		prev = new int[n];
+		queued = new boolean[n];
+		Arrays.fill(head, -1);
+		Arrays.fill(tail, -1);
+		maxDegree = -1;
+		for(int i=0;i<n;i++)
 		{
-			if(from>=to)
-				position=from;
-			
-			while(position>0 && G[sortedNodes.get(position-1)].getDegree()>=degree) position--;
-			while(position<sortedNodes.size() && G[sortedNodes.get(position)].getDegree()<degree) position++;
-			return position;
+			queued[i] = true;
+			link(i, G[i].getDegree());
 		}
-		
-		if(G[sortedNodes.get(position)].getDegree()>degree)
-			return searchDegreePosition(degree,from,position-1);
+		sorted = true;
+	}
+	
+	// append node n to the bucket of degree d: the nodes of a bucket are extracted from its head,
+	// so a node whose degree changes follows the nodes that already have that degree
+	private void link(int n, int d)
+	{
+		next[n] = -1;
+		prev[n] = tail[d];
+		if(tail[d]>=0)
+			next[tail[d]] = n;
 		else
-			return searchDegreePosition(degree,position+1,to);
+			head[d] = n;
+		tail[d] = n;
+		if(d>maxDegree)
+			maxDegree = d;
 	}
 	
-	// search the position of a node in the sorted nodes list
-	private int searchNodePosition(int n)
+	// remove node n from the bucket of degree d
+	private void unlink(int n, int d)
 	{
-		int d = G[n].getDegree();
-		int i=searchDegreePosition(d,0,sortedNodes.size()); // get the first position where the degree of the node appears
-		// find the node
-		while(i<sortedNodes.size() && G[sortedNodes.get(i)].getDegree()==d && sortedNodes.get(i)!=n)
-			i++;
-		
-		if(i<sortedNodes.size() && sortedNodes.get(i)==n)
-			return i;
-		return -1;
+		if(prev[n]>=0)
+			next[prev[n]] = next[n];
+		else
+			head[d] = next[n];
+		if(next[n]>=0)
+			prev[next[n]] = prev[n];
+		else
+			tail[d] = prev[n];
 	}
 	
-	// remove n2's adjacency in n1
+	// remove n2's adjacency in n1, moving n1 to the bucket of its new degree
 	private void removeAdjacency(int n1, int n2)
 	{
-		// get the position of n1 in the sorted list
-		int pos = searchNodePosition(n1);
-		// remove the adjacency
+		int degree = G[n1].getDegree();
 		G[n1].removeAdjacency(n2);
-		// remove the node from the list
-		sortedNodes.remove(pos);
-		// find the new position of the node in the sorted list
-		int newPosition = searchDegreePosition(G[n1].getDegree(),0,sortedNodes.size());
-		sortedNodes.add(newPosition,n1);
+		if(sorted && queued[n1] && G[n1].getDegree()!=degree)
+		{
+			unlink(n1, degree);
+			link(n1, G[n1].getDegree());
+		}
 	}
 	
 	// return the id of the node with max degree
 	public int getNodeWithMaxDegree()
 	{
-		if(sortedNodes==null)	// if the list isn't initialized
-			sortNodes();		// initialize it
+		if(!sorted)			// if the queue isn't initialized
+			sortNodes();	// initialize it
 		
-		if(sortedNodes.size()>0)
-			return sortedNodes.get(sortedNodes.size()-1);	// the node is the last of the sorted list
+		// the degrees only decrease, so the highest non empty bucket is found moving down
+		while(maxDegree>=0 && head[maxDegree]<0) maxDegree--;
+		
+		if(maxDegree>=0)
+			return head[maxDegree];
 		else
 			return -1;
 	}
@@ -158,21 +176,16 @@ public class Graph {
 	// remove the node n from the graph
 	public void removeNode(int n)
 	{
-		int pos = searchNodePosition(n);	// get node's position in the sorted list
-		if(pos>=0){
-			sortedNodes.remove(pos);	// remove from the list
+		if(!sorted)
+			sortNodes();
+		
+		if(queued[n]){
+			unlink(n, G[n].getDegree());	// remove from the queue
+			queued[n] = false;
 			int[] list = G[n].getAdjacencyList();
 			// remove the node from each adjacent node's adjacency list
 			for(int i=0;i<list.length;i++)
-			{
-				// remove the adjacency
 				removeAdjacency(list[i], n);
-				// and update the sorted list
-				pos = searchNodePosition(list[i]);
-				G[list[i]].removeAdjacency(n);
-				sortedNodes.remove(pos);
-				sortedNodes.add(searchDegreePosition(G[list[i]].getDegree(),0,sortedNodes.size()),list[i]);
-			}
 			G[n].removeAllAdjacency();
 		}
 	}
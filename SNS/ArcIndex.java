@@ -0,0 +1,253 @@
+/**
+ * An element of this class indexes the arcs of an ArcTable for the incremental updates of the
+ * stemming process. It finds the arc of a couple of index terms, as an open addressing hash table
+ * with linear probing on the key of the couple (ArcTable.key), and it links the arcs with the
+ * same row and the arcs with the same slot of the L2Table in two lists, so the arcs of the index
+ * terms of a bucket and the arcs of a slot are visited without scanning the ArcTable. The last
+ * arc added to a list is its head.
+ *
+ * The arrays are written in a checkpoint as they are, so the index is read back without inserting
+ * the arcs again.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ArcIndex
+{
+	//Arc stored in each position of the hash table, -1 if the position is empty.
+	private int[] table;
+
+	//Key of the couple of index terms of each arc.
+	private long[] keys;
+
+	//Last arc added with each row, -1 if there is none, and the previous arc of each arc with
+	//the same row.
+	private int[] row_heads;
+	private int[] row_next;
+
+	//Last arc added with each slot, -1 if there is none, and the previous arc of each arc with
+	//the same slot.
+	private int[] slot_heads;
+	private int[] slot_next;
+
+	//Number of arcs.
+	private int size;
+
+	/**
+	 * It indexes the arcs of an ArcTable.
+	 *
+	 * @param arcs the arcs.
+	 * @param number_terms number of index terms, the rows are in [0, number_terms).
+	 * @param number_slots number of slots of the L2Table.
+	 */
+	public ArcIndex(ArcTable arcs, int number_terms, int number_slots)
+	{
+		int capacity = Integer.highestOneBit(Math.max(16, 2 * arcs.size() - 1)) << 1;
+		table = new int[capacity];
+		Arrays.fill(table, -1);
+
+		keys = new long[Math.max(1, arcs.size())];
+		row_next = new int[keys.length];
+		slot_next = new int[keys.length];
+		row_heads = new int[Math.max(1, number_terms)];
+		slot_heads = new int[Math.max(1, number_slots)];
+		Arrays.fill(row_heads, -1);
+		Arrays.fill(slot_heads, -1);
+
+		for (int arc = 0; arc < arcs.size(); arc++)
+		{
+			add(arcs, arc);
+		}
+	}
+
+	private ArcIndex()
+	{
+	}
+
+	/**
+	 * It indexes the arc of an ArcTable that follows the last indexed one.
+	 *
+	 * @param arcs the arcs.
+	 * @param arc index of the arc, equal to the number of indexed arcs.
+	 */
+	public void add(ArcTable arcs, int arc)
+	{
+		if (arc != size)
+		{
+			throw new IllegalArgumentException("ArcIndex: the arc " + arc + " doesn't follow the last indexed arc " + (size - 1));
+		}
+
+		if (2 * (size + 1) > table.length)
+		{
+			table = new int[2 * table.length];
+			Arrays.fill(table, -1);
+			for (int indexed = 0; indexed < size; indexed++)
+			{
+				table[probe(keys[indexed])] = indexed;
+			}
+		}
+		if (size == keys.length)
+		{
+			keys = Arrays.copyOf(keys, 2 * keys.length);
+			row_next = Arrays.copyOf(row_next, keys.length);
+			slot_next = Arrays.copyOf(slot_next, keys.length);
+		}
+
+		int row = arcs.getRow(arc);
+		int slot = arcs.getSlot(arc);
+		row_heads = ensure(row_heads, row);
+		slot_heads = ensure(slot_heads, slot);
+
+		keys[arc] = ArcTable.key(row, arcs.getColumn(arc));
+		table[probe(keys[arc])] = arc;
+
+		row_next[arc] = row_heads[row];
+		row_heads[row] = arc;
+		slot_next[arc] = slot_heads[slot];
+		slot_heads[slot] = arc;
+
+		size++;
+	}
+
+	/**
+	 * It returns the arc of a couple of index terms.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return the arc, -1 if the couple is not an arc.
+	 */
+	public int get(int key1, int key2)
+	{
+		return table[probe(ArcTable.key(key1, key2))];
+	}
+
+	/**
+	 * It returns the last arc added with a row.
+	 *
+	 * @param row key of an index term.
+	 * @return the arc, -1 if there is none.
+	 */
+	public int firstOfRow(int row)
+	{
+		return row < row_heads.length ? row_heads[row] : -1;
+	}
+
+	/**
+	 * It returns the arc with the same row added before an arc.
+	 *
+	 * @param arc the arc.
+	 * @return the previous arc, -1 if there is none.
+	 */
+	public int nextOfRow(int arc)
+	{
+		return row_next[arc];
+	}
+
+	/**
+	 * It returns the last arc added with a slot.
+	 *
+	 * @param slot slot of the L2Table.
+	 * @return the arc, -1 if there is none.
+	 */
+	public int firstOfSlot(int slot)
+	{
+		return slot < slot_heads.length ? slot_heads[slot] : -1;
+	}
+
+	/**
+	 * It returns the arc with the same slot added before an arc.
+	 *
+	 * @param arc the arc.
+	 * @return the previous arc, -1 if there is none.
+	 */
+	public int nextOfSlot(int arc)
+	{
+		return slot_next[arc];
+	}
+
+	/**
+	 * It returns the number of arcs.
+	 *
+	 * @return size
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * It writes the arrays of the index.
+	 *
+	 * @param out output of a checkpoint.
+	 * @throws IOException
+	 */
+	public void write(Checkpoint.Output out) throws IOException
+	{
+		out.writeInt(size);
+		out.writeInt(table.length);
+		out.writeInts(table, 0, table.length);
+		out.writeLongs(keys, 0, size);
+		out.writeInts(row_next, 0, size);
+		out.writeInts(slot_next, 0, size);
+		out.writeInt(row_heads.length);
+		out.writeInts(row_heads, 0, row_heads.length);
+		out.writeInt(slot_heads.length);
+		out.writeInts(slot_heads, 0, slot_heads.length);
+	}
+
+	/**
+	 * It reads the index written by write.
+	 *
+	 * @param in input of a checkpoint.
+	 * @return the ArcIndex.
+	 * @throws IOException
+	 */
+	public static ArcIndex read(Checkpoint.Input in) throws IOException
+	{
+		ArcIndex index = new ArcIndex();
+
+		index.size = in.readInt();
+		index.table = in.readInts(in.readInt());
+		index.keys = Arrays.copyOf(in.readLongs(index.size), Math.max(1, index.size));
+		index.row_next = Arrays.copyOf(in.readInts(index.size), index.keys.length);
+		index.slot_next = Arrays.copyOf(in.readInts(index.size), index.keys.length);
+		index.row_heads = in.readInts(in.readInt());
+		index.slot_heads = in.readInts(in.readInt());
+
+		return index;
+	}
+
+	/**
+	 * It returns the position of the hash table with the arc of a key, or the empty position
+	 * where it would be stored.
+	 */
+	private int probe(long key)
+	{
+		int mask = table.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int position = (int) (h ^ (h >>> 32)) & mask;
+
+		while (table[position] >= 0 && keys[table[position]] != key)
+		{
+			position = (position + 1) & mask;
+		}
+		return position;
+	}
+
+	/**
+	 * It returns an array of heads with room for a given index.
+	 */
+	private static int[] ensure(int[] heads, int index)
+	{
+		if (index < heads.length)
+		{
+			return heads;
+		}
+
+		int length = heads.length;
+		heads = Arrays.copyOf(heads, Math.max(index + 1, 2 * length));
+		Arrays.fill(heads, length, heads.length, -1);
+		return heads;
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * An element of this class stores the arcs between index terms in a columnar way: an arc is a
+ * position of the arrays of the table. For each arc it stores the keys of the index terms that it
+ * connects, their co-occurrence, the weight evaluated in the reWeighting method (rco) and the
+ * slot of the L2Table associated with the suffixes of the two index terms.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ArcTable
+{
+	//Keys of the two extremities of each arc.
+	private int[] rows;
+	private int[] columns;
+
+	//Co-occurrence of each arc.
+	private int[] cooccurrences;
+
+	//Weight of each arc after the reWeighting method.
+	private double[] rcos;
+
+	//Slot of the L2Table of each arc.
+	private int[] slots;
+
+	//Number of arcs.
+	private int size;
+
+	/**
+	 * @param expected_arcs expected number of arcs.
+	 */
+	public ArcTable(int expected_arcs)
+	{
+		rows = new int[Math.max(1, expected_arcs)];
+		columns = new int[rows.length];
+		cooccurrences = new int[rows.length];
+		rcos = new double[rows.length];
+		slots = new int[rows.length];
+	}
+
+	/**
+	 * It adds an arc to the table. Its rco is set to 0.
+	 *
+	 * @param row key of the first extremity.
+	 * @param column key of the latter extremity.
+	 * @param cooccurrence co-occurrence of the two index terms.
+	 * @param slot slot of the L2Table of the suffixes of the two index terms.
+	 * @return the index of the arc.
+	 */
+	public int add(int row, int column, int cooccurrence, int slot)
+	{
+		if (size == rows.length)
+		{
+			int length = (int) Math.min(Integer.MAX_VALUE - 8, 2L * rows.length);
+			if (length == size)
+			{
+				throw new IllegalStateException("ArcTable: too many arcs");
+			}
+			rows = Arrays.copyOf(rows, length);
+			columns = Arrays.copyOf(columns, length);
+			cooccurrences = Arrays.copyOf(cooccurrences, length);
+			rcos = Arrays.copyOf(rcos, length);
+			slots = Arrays.copyOf(slots, length);
+		}
+
+		rows[size] = row;
+		columns[size] = column;
+		cooccurrences[size] = cooccurrence;
+		slots[size] = slot;
+
+		return size++;
+	}
+
+	/**
+	 * It returns the number of arcs.
+	 *
+	 * @return size
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * It returns the first extremity of an arc.
+	 *
+	 * @param arc index of the arc.
+	 * @return key of the index term.
+	 */
+	public int getRow(int arc)
+	{
+		return rows[arc];
+	}
+
+	/**
+	 * It returns the latter extremity of an arc.
+	 *
+	 * @param arc index of the arc.
+	 * @return key of the index term.
+	 */
+	public int getColumn(int arc)
+	{
+		return columns[arc];
+	}
+
+	/**
+	 * It returns the co-occurrence of the extremities of an arc.
+	 *
+	 * @param arc index of the arc.
+	 * @return cooccurrence
+	 */
+	public int getCooccurrence(int arc)
+	{
+		return cooccurrences[arc];
+	}
+
+	/**
+	 * It adds a value to the co-occurrence of an arc. The co-occurrence of two index terms is a
+	 * sum over the documents, so the contribution of new documents is added to the old one.
+	 *
+	 * @param arc index of the arc.
+	 * @param cooccurrence co-occurrence of the two index terms in the new documents.
+	 */
+	public void addCooccurrence(int arc, int cooccurrence)
+	{
+		cooccurrences[arc] += cooccurrence;
+	}
+
+	/**
+	 * It returns the slot of the L2Table of an arc.
+	 *
+	 * @param arc index of the arc.
+	 * @return slot
+	 */
+	public int getSlot(int arc)
+	{
+		return slots[arc];
+	}
+
+	/**
+	 * It returns the weight of an arc evaluated in the reWeighting method.
+	 *
+	 * @param arc index of the arc.
+	 * @return rco
+	 */
+	public double getRco(int arc)
+	{
+		return rcos[arc];
+	}
+
+	/**
+	 * It sets the weight of an arc evaluated in the reWeighting method.
+	 *
+	 * @param arc index of the arc.
+	 * @param rco the weight.
+	 */
+	public void setRco(int arc, double rco)
+	{
+		rcos[arc] = rco;
+	}
+
+	/**
+	 * It writes the extremities, the co-occurrence and the slot of each arc. The rcos are not
+	 * written, they are evaluated again by the reWeighting method.
+	 *
+	 * @param out output of a checkpoint.
+	 * @throws IOException
+	 */
+	public void write(Checkpoint.Output out) throws IOException
+	{
+		out.writeInt(size);
+		out.writeInts(rows, 0, size);
+		out.writeInts(columns, 0, size);
+		out.writeInts(cooccurrences, 0, size);
+		out.writeInts(slots, 0, size);
+	}
+
+	/**
+	 * It reads the arcs written by write, with their rco set to 0.
+	 *
+	 * @param in input of a checkpoint.
+	 * @return the ArcTable.
+	 * @throws IOException
+	 */
+	public static ArcTable read(Checkpoint.Input in) throws IOException
+	{
+		int size = in.readInt();
+		ArcTable arcs = new ArcTable(0);
+		if (size == 0)
+		{
+			return arcs;
+		}
+
+		arcs.rows = in.readInts(size);
+		arcs.columns = in.readInts(size);
+		arcs.cooccurrences = in.readInts(size);
+		arcs.slots = in.readInts(size);
+		arcs.rcos = new double[size];
+		arcs.size = size;
+
+		return arcs;
+	}
+
+	/**
+	 * It packs two int ids in a long that doesn't depend on their order: the smaller id is in
+	 * the highest 32 bits. It is the key of a couple of index terms or of a couple of suffixes.
+	 *
+	 * @param id1 an id.
+	 * @param id2 an other id.
+	 * @return the key of the couple.
+	 */
+	public static long key(int id1, int id2)
+	{
+		int low = Math.min(id1, id2);
+		int high = Math.max(id1, id2);
+		return ((long) low << 32) | (high & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * It gives back the description of an arc.
+	 *
+	 * @param arc index of the arc.
+	 * @return description of the arc.
+	 */
+	public String toString(int arc)
+	{
+		return "(" + rows[arc] + ", " + columns[arc] + ")";
+	}
+}
@@ -0,0 +1,965 @@
+/**
+ * An element of this class writes and reads the checkpoints of the SNS stemmer in a directory.
+ * A checkpoint is written after the reading of the posting lists (postings.ckpt) and after the
+ * evaluation of the co-occurrence measure (cooccurrence.ckpt), so a stemming process that is
+ * interrupted can be resumed from the last completed stage.
+ *
+ * A checkpoint file starts with MAGIC, VERSION, the stage and the fingerprint of the inputs of the
+ * stemming process (PostingSource.fingerprint), and it ends with MAGIC. A checkpoint is used only
+ * if its fingerprint is the one of the current inputs, so the checkpoints of a collection that has
+ * been modified, or of another collection, are never resumed. A new checkpoint of the reading
+ * deletes the one of the co-occurrence, which was evaluated on the previous postings. The numbers
+ * are written in big-endian order and the arrays as contiguous sequences, so a file is read by
+ * memory-mapping it and copying the arrays with bulk operations. A file is written with a
+ * temporary name, forced to the disk and then renamed, so a checkpoint is either complete or
+ * missing.
+ *
+ * The incremental updates append a segment to cooccurrence.log instead of writing the checkpoint
+ * of the co-occurrence again: a segment holds the index terms, the suffixes, the slots and the
+ * potential arcs added by a delta, the slots whose counter has been increased and the
+ * co-occurrence added to the previous potential arcs, and it is applied to the checkpoint when it
+ * is read. A segment starts with MAGIC and the generation of the checkpoint of the co-occurrence,
+ * a random number written in its header, and it ends with MAGIC: the segments of another
+ * generation and a segment that is not complete, if the update was interrupted, are ignored and
+ * overwritten by the next update.
+ */
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+public class Checkpoint
+{
+	//First and last int of a checkpoint file.
+	static final int MAGIC = 0x534E5343;
+
+	//Version of the format of the checkpoint files.
+	static final int VERSION = 3;
+
+	//Stages after which a checkpoint is written.
+	static final int NONE = 0;
+	static final int READING = 1;
+	static final int COOCCURRENCE = 2;
+
+	//Names of the stages and of their files.
+	static final String[] STAGES = { "none", "reading", "cooccurrence" };
+	static final String[] FILES = { null, "postings.ckpt", "cooccurrence.ckpt" };
+
+	//Segments of the incremental updates of the checkpoint of the co-occurrence.
+	static final String LOG = "cooccurrence.log";
+
+	//Kinds of PostingStore of the postings.ckpt file.
+	private static final int RAW = 0;
+	private static final int COMPRESSED = 1;
+
+	//Directory of the checkpoint files.
+	private File directory;
+
+	//Fingerprint of the inputs of the stemming process, null to accept the checkpoints of any
+	//inputs.
+	private String inputs;
+
+	//Generation of the last checkpoint of the co-occurrence that has been read or written, and
+	//length of its complete segments in the log.
+	private long generation;
+	private long log_length;
+
+	/**
+	 * The state of the stemming process after the evaluation of the co-occurrence measure.
+	 */
+	public static class Cooccurrence
+	{
+		//The index terms, without posting lists.
+		PostingArena store;
+
+		//Ids of the suffixes of the index terms.
+		SuffixTable suffixes;
+
+		//Counters of the couples of suffixes.
+		L2Table hM_l2;
+
+		//Couples of index terms with a co-occurrence greater than 0.
+		ArcTable potential_arcs;
+
+		//Key of each index term, by the index term, and index of the potential arcs. They are
+		//written by the incremental updates, null in the checkpoints of the other modes.
+		SuffixTable dictionary;
+		ArcIndex arc_index;
+	}
+
+	/**
+	 * The changes made by an incremental update to the state of the co-occurrence. The index
+	 * terms, the suffixes, the slots and the potential arcs that follow the first ones of the
+	 * update have been added by the update.
+	 */
+	public static class Update
+	{
+		//Fingerprint of the delta.
+		String inputs;
+
+		//Number of index terms, suffixes, slots and potential arcs before the update.
+		int first_term;
+		int first_suffix;
+		int first_slot;
+		int first_arc;
+
+		//Slots whose counter has been increased, once for each unit.
+		IntArrayList counted_slots = new IntArrayList();
+
+		//Potential arcs that existed before the update and the co-occurrence added to them.
+		IntArrayList updated_arcs = new IntArrayList();
+		IntArrayList added_cooccurrences = new IntArrayList();
+
+		/**
+		 * @param inputs fingerprint of the delta.
+		 * @param state the state before the update.
+		 */
+		public Update(String inputs, Cooccurrence state)
+		{
+			this.inputs = inputs;
+			first_term = state.store.size();
+			first_suffix = state.suffixes.size();
+			first_slot = state.hM_l2.size();
+			first_arc = state.potential_arcs.size();
+		}
+	}
+
+	/**
+	 * @param directory directory of the checkpoint files, it is created if it doesn't exist.
+	 */
+	public Checkpoint(String directory)
+	{
+		this.directory = new File(directory);
+	}
+
+	/**
+	 * It sets the fingerprint of the inputs of the stemming process: it is written in the
+	 * checkpoints and only the checkpoints with the same fingerprint are used.
+	 *
+	 * @param inputs the fingerprint, null to accept the checkpoints of any inputs.
+	 */
+	public void setInputs(String inputs)
+	{
+		this.inputs = inputs;
+	}
+
+	/**
+	 * It returns the fingerprint of the inputs written in the checkpoint of a stage.
+	 *
+	 * @param stage the stage.
+	 * @return the fingerprint.
+	 * @throws IOException
+	 */
+	public String getInputs(int stage) throws IOException
+	{
+		try (Input in = new Input(new File(directory, FILES[stage])))
+		{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != stage)
+			{
+				throw new IOException("Checkpoint: " + FILES[stage] + " is not a checkpoint of version " + VERSION);
+			}
+			return in.readString();
+		}
+	}
+
+	/**
+	 * It returns the stage with a given name.
+	 *
+	 * @param name name of the stage ("reading" or "cooccurrence"), "last" for the last stage.
+	 * @return the stage.
+	 */
+	public static int stage(String name)
+	{
+		if (name.equals("last"))
+		{
+			return COOCCURRENCE;
+		}
+
+		for (int stage = 0; stage < STAGES.length; stage++)
+		{
+			if (STAGES[stage].equals(name))
+			{
+				return stage;
+			}
+		}
+
+		throw new IllegalArgumentException("Checkpoint: unknown stage " + name);
+	}
+
+	/**
+	 * It returns the last stage, not after a given one, with a complete checkpoint for the
+	 * parameters l1 and l2 and for the current inputs.
+	 *
+	 * @param up_to the last stage that can be returned.
+	 * @param l1 parameter l1.
+	 * @param l2 parameter l2.
+	 * @return the stage, NONE if there is no checkpoint.
+	 */
+	public int lastStage(int up_to, int l1, int l2)
+	{
+		for (int stage = Math.min(up_to, COOCCURRENCE); stage > NONE; stage--)
+		{
+			File file = new File(directory, FILES[stage]);
+			if (!file.isFile())
+			{
+				continue;
+			}
+
+			try (Input in = new Input(file))
+			{
+				if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != stage)
+				{
+					continue;
+				}
+				String checkpoint_inputs = in.readString();
+				if (inputs != null && !inputs.equals(checkpoint_inputs))
+				{
+					System.out.println("Checkpoint: " + file + " was written for other inputs, it is not used");
+					continue;
+				}
+				if (stage == READING)
+				{
+					return stage;
+				}
+				if (in.readInt() != l1 || in.readInt() != l2)
+				{
+					continue;
+				}
+				if (inputs != null && isUpdated(in.readLong()))
+				{
+					System.out.println("Checkpoint: " + file + " has been updated with new documents, it is not used");
+					continue;
+				}
+				return stage;
+			}
+			catch (IOException e)
+			{
+				System.out.println("Checkpoint: " + file + " can't be used (" + e + ")");
+			}
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * It writes the checkpoint of the reading stage: the index terms and their posting lists. The
+	 * checkpoint of the co-occurrence is deleted, because it doesn't describe the new postings.
+	 *
+	 * @param store PostingStore with the index terms and their posting lists.
+	 * @throws IOException
+	 */
+	public void writePostings(PostingStore store) throws IOException
+	{
+		discard(COOCCURRENCE);
+
+		File file = temporary(READING);
+
+		try (Output out = new Output(file))
+		{
+			writeHeader(out, READING);
+
+			if (store instanceof CompressedPostings)
+			{
+				out.writeInt(COMPRESSED);
+				((CompressedPostings) store).write(out);
+			}
+			else
+			{
+				out.writeInt(RAW);
+				((PostingArena) store).write(out);
+			}
+
+			out.writeInt(MAGIC);
+		}
+
+		commit(file, READING);
+	}
+
+	/**
+	 * It reads the checkpoint of the reading stage.
+	 *
+	 * @return PostingStore with the index terms and their posting lists.
+	 * @throws IOException
+	 */
+	public PostingStore readPostings() throws IOException
+	{
+		try (Input in = open(READING))
+		{
+			PostingStore store = in.readInt() == COMPRESSED ? CompressedPostings.read(in) : PostingArena.read(in);
+			checkEnd(in, READING);
+			return store;
+		}
+	}
+
+	/**
+	 * It writes the checkpoint of the co-occurrence stage: the index terms, the ids of their
+	 * suffixes, the counters of the couples of suffixes and the couples of index terms with a
+	 * co-occurrence greater than 0. The segments of the previous checkpoint are deleted.
+	 *
+	 * @param l1 parameter l1.
+	 * @param l2 parameter l2.
+	 * @param store PostingLists with the index terms.
+	 * @param suffixes ids of the suffixes.
+	 * @param hM_l2 counters of the couples of suffixes.
+	 * @param potential_arcs couples of index terms with a co-occurrence greater than 0.
+	 * @throws IOException
+	 */
+	public void writeCooccurrence(int l1, int l2, PostingLists store, SuffixTable suffixes, L2Table hM_l2, ArcTable potential_arcs) throws IOException
+	{
+		writeCooccurrence(l1, l2, store, suffixes, hM_l2, potential_arcs, null, null);
+	}
+
+	/**
+	 * It writes the checkpoint of the co-occurrence stage as the previous method, with the
+	 * dictionary of the index terms and the index of the potential arcs used by the incremental
+	 * updates.
+	 *
+	 * @param l1 parameter l1.
+	 * @param l2 parameter l2.
+	 * @param store PostingLists with the index terms.
+	 * @param suffixes ids of the suffixes.
+	 * @param hM_l2 counters of the couples of suffixes.
+	 * @param potential_arcs couples of index terms with a co-occurrence greater than 0.
+	 * @param dictionary key of each index term, null if it is not written.
+	 * @param arc_index index of the potential arcs, null if it is not written.
+	 * @throws IOException
+	 */
+	public void writeCooccurrence(int l1, int l2, PostingLists store, SuffixTable suffixes, L2Table hM_l2, ArcTable potential_arcs, SuffixTable dictionary, ArcIndex arc_index) throws IOException
+	{
+		File file = temporary(COOCCURRENCE);
+		long new_generation = new Random().nextLong();
+
+		try (Output out = new Output(file))
+		{
+			writeHeader(out, COOCCURRENCE);
+			out.writeInt(l1);
+			out.writeInt(l2);
+			out.writeLong(new_generation);
+
+			store.getTerms().write(out);
+
+			suffixes.write(out);
+			hM_l2.write(out);
+			potential_arcs.write(out);
+
+			out.writeInt(dictionary != null && arc_index != null ? 1 : 0);
+			if (dictionary != null && arc_index != null)
+			{
+				dictionary.write(out);
+				arc_index.write(out);
+			}
+
+			out.writeInt(MAGIC);
+		}
+
+		//The segments of the previous generation are ignored even if the log can't be deleted.
+		commit(file, COOCCURRENCE);
+		Files.deleteIfExists(new File(directory, LOG).toPath());
+
+		generation = new_generation;
+		log_length = 0;
+	}
+
+	/**
+	 * It appends the segment of an incremental update to the log of the checkpoint of the
+	 * co-occurrence, which must have been read by readCooccurrence.
+	 *
+	 * @param update the changes of the update.
+	 * @param state the state after the update.
+	 * @throws IOException
+	 */
+	public void appendUpdate(Update update, Cooccurrence state) throws IOException
+	{
+		try (Output out = new Output(new File(directory, LOG), log_length))
+		{
+			out.writeInt(MAGIC);
+			out.writeLong(generation);
+			out.writeString(update.inputs);
+
+			out.writeInt(update.first_term);
+			out.writeInt(state.store.size() - update.first_term);
+			for (int key = update.first_term; key < state.store.size(); key++)
+			{
+				out.writeString(state.store.getTerm(key));
+			}
+
+			out.writeInt(update.first_suffix);
+			out.writeInt(state.suffixes.size() - update.first_suffix);
+			for (int id = update.first_suffix; id < state.suffixes.size(); id++)
+			{
+				out.writeString(state.suffixes.getSuffix(id));
+			}
+
+			out.writeInt(update.first_slot);
+			out.writeInt(state.hM_l2.size() - update.first_slot);
+			for (int slot = update.first_slot; slot < state.hM_l2.size(); slot++)
+			{
+				out.writeLong(state.hM_l2.getKey(slot));
+			}
+
+			out.writeInt(update.counted_slots.size());
+			out.writeInts(update.counted_slots.elements(), 0, update.counted_slots.size());
+
+			out.writeInt(update.updated_arcs.size());
+			out.writeInts(update.updated_arcs.elements(), 0, update.updated_arcs.size());
+			out.writeInts(update.added_cooccurrences.elements(), 0, update.added_cooccurrences.size());
+
+			ArcTable arcs = state.potential_arcs;
+			out.writeInt(update.first_arc);
+			out.writeInt(arcs.size() - update.first_arc);
+			for (int arc = update.first_arc; arc < arcs.size(); arc++)
+			{
+				out.writeInt(arcs.getRow(arc));
+				out.writeInt(arcs.getColumn(arc));
+				out.writeInt(arcs.getCooccurrence(arc));
+				out.writeInt(arcs.getSlot(arc));
+			}
+
+			out.writeInt(MAGIC);
+			log_length = out.length();
+		}
+	}
+
+	/**
+	 * It reads the checkpoint of the co-occurrence stage.
+	 *
+	 * @param l1 parameter l1.
+	 * @param l2 parameter l2.
+	 * @return the state of the stemming process after the co-occurrence stage.
+	 * @throws IOException
+	 */
+	public Cooccurrence readCooccurrence(int l1, int l2) throws IOException
+	{
+		try (Input in = open(COOCCURRENCE))
+		{
+			if (in.readInt() != l1 || in.readInt() != l2)
+			{
+				throw new IOException("Checkpoint: " + FILES[COOCCURRENCE] + " was written with different l1 and l2");
+			}
+
+			Cooccurrence state = new Cooccurrence();
+			generation = in.readLong();
+
+			state.store = new PostingArena(TermArena.read(in));
+
+			state.suffixes = SuffixTable.read(in);
+			state.hM_l2 = L2Table.read(in);
+			state.potential_arcs = ArcTable.read(in);
+
+			if (in.readInt() == 1)
+			{
+				state.dictionary = SuffixTable.read(in);
+				state.arc_index = ArcIndex.read(in);
+			}
+
+			checkEnd(in, COOCCURRENCE);
+
+			readUpdates(state);
+			return state;
+		}
+	}
+
+	/**
+	 * It applies to a state the complete segments of the log with the generation of the
+	 * checkpoint, in the order of the log.
+	 */
+	private void readUpdates(Cooccurrence state) throws IOException
+	{
+		log_length = 0;
+
+		File log = new File(directory, LOG);
+		if (!log.isFile())
+		{
+			return;
+		}
+
+		try (Input in = new Input(log))
+		{
+			while (in.position() < in.size())
+			{
+				long start = in.position();
+				if (!applyUpdate(in, state))
+				{
+					System.out.println("Checkpoint: the segments of " + log + " from byte " + start + " are ignored");
+					return;
+				}
+				log_length = in.position();
+			}
+		}
+	}
+
+	/**
+	 * It reads a segment of the log and it applies it to a state. It returns false, without
+	 * modifying the state, if the segment is not complete or it has another generation.
+	 */
+	private boolean applyUpdate(Input in, Cooccurrence state) throws IOException
+	{
+		String[] terms;
+		String[] suffixes;
+		long[] slot_keys;
+		int[] counted_slots;
+		int[] updated_arcs;
+		int[] added_cooccurrences;
+		int[] arcs;
+
+		try
+		{
+			if (in.readInt() != MAGIC || in.readLong() != generation)
+			{
+				return false;
+			}
+			in.readString();
+
+			if (in.readInt() != state.store.size())
+			{
+				throw new IOException("Checkpoint: " + LOG + " doesn't follow the index terms of the checkpoint");
+			}
+			terms = new String[in.readInt()];
+			for (int i = 0; i < terms.length; i++)
+			{
+				terms[i] = in.readString();
+			}
+
+			if (in.readInt() != state.suffixes.size())
+			{
+				throw new IOException("Checkpoint: " + LOG + " doesn't follow the suffixes of the checkpoint");
+			}
+			suffixes = new String[in.readInt()];
+			for (int i = 0; i < suffixes.length; i++)
+			{
+				suffixes[i] = in.readString();
+			}
+
+			if (in.readInt() != state.hM_l2.size())
+			{
+				throw new IOException("Checkpoint: " + LOG + " doesn't follow the slots of the checkpoint");
+			}
+			slot_keys = in.readLongs(in.readInt());
+
+			counted_slots = in.readInts(in.readInt());
+
+			int number_updated = in.readInt();
+			updated_arcs = in.readInts(number_updated);
+			added_cooccurrences = in.readInts(number_updated);
+
+			if (in.readInt() != state.potential_arcs.size())
+			{
+				throw new IOException("Checkpoint: " + LOG + " doesn't follow the potential arcs of the checkpoint");
+			}
+			arcs = in.readInts(4 * in.readInt());
+
+			if (in.readInt() != MAGIC)
+			{
+				return false;
+			}
+		}
+		catch (EOFException e)
+		{
+			return false;
+		}
+
+		if (state.dictionary == null || state.arc_index == null)
+		{
+			throw new IOException("Checkpoint: " + LOG + " belongs to a checkpoint without the index of the arcs");
+		}
+
+		for (String term : terms)
+		{
+			int key = state.store.addTerm(term);
+			state.dictionary.intern(state.store.getTerms(), key, 0);
+		}
+
+		TermArena added_suffixes = new TermArena(suffixes.length);
+		for (String suffix : suffixes)
+		{
+			state.suffixes.intern(added_suffixes, added_suffixes.add(suffix), 0);
+		}
+
+		for (long key : slot_keys)
+		{
+			state.hM_l2.slot((int) (key >>> 32), (int) key);
+		}
+
+		for (int slot : counted_slots)
+		{
+			state.hM_l2.addCounter(slot);
+		}
+
+		for (int i = 0; i < updated_arcs.length; i++)
+		{
+			state.potential_arcs.addCooccurrence(updated_arcs[i], added_cooccurrences[i]);
+		}
+
+		for (int i = 0; i < arcs.length; i += 4)
+		{
+			int arc = state.potential_arcs.add(arcs[i], arcs[i + 1], arcs[i + 2], arcs[i + 3]);
+			state.arc_index.add(state.potential_arcs, arc);
+		}
+
+		return true;
+	}
+
+	/**
+	 * It verifies if the log has a segment of a generation of the checkpoint of the co-occurrence.
+	 */
+	private boolean isUpdated(long checkpoint_generation)
+	{
+		File log = new File(directory, LOG);
+		if (!log.isFile())
+		{
+			return false;
+		}
+
+		try (Input in = new Input(log))
+		{
+			return in.readInt() == MAGIC && in.readLong() == checkpoint_generation;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * It deletes the checkpoint of a stage that doesn't describe the collection anymore.
+	 *
+	 * @param stage the stage.
+	 * @throws IOException
+	 */
+	public void discard(int stage) throws IOException
+	{
+		Files.deleteIfExists(new File(directory, FILES[stage]).toPath());
+		if (stage == COOCCURRENCE)
+		{
+			Files.deleteIfExists(new File(directory, LOG).toPath());
+		}
+	}
+
+	private File temporary(int stage) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Checkpoint: can't create the directory " + directory);
+		}
+
+		return new File(directory, FILES[stage] + ".tmp");
+	}
+
+	private void writeHeader(Output out, int stage) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(stage);
+		out.writeString(inputs == null ? "" : inputs);
+	}
+
+	private void commit(File file, int stage) throws IOException
+	{
+		Files.move(file.toPath(), new File(directory, FILES[stage]).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private Input open(int stage) throws IOException
+	{
+		Input in = new Input(new File(directory, FILES[stage]));
+
+		if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != stage)
+		{
+			in.close();
+			throw new IOException("Checkpoint: " + FILES[stage] + " is not a checkpoint of version " + VERSION);
+		}
+		String written_inputs = in.readString();
+		if (inputs != null && !inputs.equals(written_inputs))
+		{
+			in.close();
+			throw new IOException("Checkpoint: " + FILES[stage] + " was written for other inputs");
+		}
+
+		return in;
+	}
+
+	private static void checkEnd(Input in, int stage) throws IOException
+	{
+		if (in.readInt() != MAGIC)
+		{
+			throw new IOException("Checkpoint: " + FILES[stage] + " is corrupted");
+		}
+	}
+
+	/**
+	 * It writes the numbers of a checkpoint file through a buffer.
+	 */
+	public static class Output implements Closeable
+	{
+		private FileOutputStream stream;
+		private FileChannel channel;
+		private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+		Output(File file) throws IOException
+		{
+			stream = new FileOutputStream(file);
+			channel = stream.getChannel();
+		}
+
+		/**
+		 * It appends to a file after its first length bytes, the following ones are deleted.
+		 */
+		Output(File file, long length) throws IOException
+		{
+			if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())
+			{
+				throw new IOException("Checkpoint: can't create the directory " + file.getParentFile());
+			}
+
+			stream = new FileOutputStream(file, true);
+			channel = stream.getChannel();
+			channel.truncate(length);
+		}
+
+		/**
+		 * It returns the length of the file, including the content of the buffer.
+		 */
+		long length() throws IOException
+		{
+			return channel.size() + buffer.position();
+		}
+
+		public void writeInt(int value) throws IOException
+		{
+			if (buffer.remaining() < 4)
+			{
+				flush();
+			}
+			buffer.putInt(value);
+		}
+
+		public void writeLong(long value) throws IOException
+		{
+			if (buffer.remaining() < 8)
+			{
+				flush();
+			}
+			buffer.putLong(value);
+		}
+
+		public void writeInts(int[] array, int from, int to) throws IOException
+		{
+			while (from < to)
+			{
+				if (buffer.remaining() < 4)
+				{
+					flush();
+				}
+				int length = Math.min(to - from, buffer.remaining() / 4);
+				buffer.asIntBuffer().put(array, from, length);
+				buffer.position(buffer.position() + 4 * length);
+				from += length;
+			}
+		}
+
+		public void writeLongs(long[] array, int from, int to) throws IOException
+		{
+			while (from < to)
+			{
+				if (buffer.remaining() < 8)
+				{
+					flush();
+				}
+				int length = Math.min(to - from, buffer.remaining() / 8);
+				buffer.asLongBuffer().put(array, from, length);
+				buffer.position(buffer.position() + 8 * length);
+				from += length;
+			}
+		}
+
+		public void writeBytes(byte[] array, int from, int to) throws IOException
+		{
+			while (from < to)
+			{
+				if (!buffer.hasRemaining())
+				{
+					flush();
+				}
+				int length = Math.min(to - from, buffer.remaining());
+				buffer.put(array, from, length);
+				from += length;
+			}
+		}
+
+		public void writeString(String value) throws IOException
+		{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeInt(bytes.length);
+			writeBytes(bytes, 0, bytes.length);
+		}
+
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * It writes the content of the buffer and it forces the file to the disk.
+		 */
+		public void close() throws IOException
+		{
+			try
+			{
+				flush();
+				channel.force(true);
+			}
+			finally
+			{
+				stream.close();
+			}
+		}
+	}
+
+	/**
+	 * It reads the numbers of a checkpoint file from windows of the memory-mapped file.
+	 */
+	public static class Input implements Closeable
+	{
+		//Maximum length in bytes of a window.
+		static final long WINDOW = 1L << 28;
+
+		private RandomAccessFile file;
+		private FileChannel channel;
+		private long size;
+
+		//Current window and its position in the file.
+		private MappedByteBuffer window;
+		private long window_start;
+
+		Input(File path) throws IOException
+		{
+			file = new RandomAccessFile(path, "r");
+			channel = file.getChannel();
+			size = channel.size();
+		}
+
+		/**
+		 * It maps a new window if the current one has less than bytes bytes left.
+		 */
+		private ByteBuffer ensure(int bytes) throws IOException
+		{
+			if (window == null || window.remaining() < bytes)
+			{
+				long position = window == null ? 0 : window_start + window.position();
+				long length = Math.min(size - position, Math.max(bytes, WINDOW));
+				if (length < bytes)
+				{
+					throw new EOFException("Checkpoint: unexpected end of file");
+				}
+
+				window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				window_start = position;
+			}
+
+			return window;
+		}
+
+		/**
+		 * It returns the position of the next byte to read.
+		 */
+		long position()
+		{
+			return window == null ? 0 : window_start + window.position();
+		}
+
+		/**
+		 * It returns the length of the file.
+		 */
+		long size()
+		{
+			return size;
+		}
+
+		public int readInt() throws IOException
+		{
+			return ensure(4).getInt();
+		}
+
+		public long readLong() throws IOException
+		{
+			return ensure(8).getLong();
+		}
+
+		public int[] readInts(int length) throws IOException
+		{
+			int[] array = new int[length];
+			int from = 0;
+
+			while (from < length)
+			{
+				ByteBuffer buffer = ensure(4);
+				int count = Math.min(length - from, buffer.remaining() / 4);
+				buffer.asIntBuffer().get(array, from, count);
+				buffer.position(buffer.position() + 4 * count);
+				from += count;
+			}
+
+			return array;
+		}
+
+		public long[] readLongs(int length) throws IOException
+		{
+			long[] array = new long[length];
+			int from = 0;
+
+			while (from < length)
+			{
+				ByteBuffer buffer = ensure(8);
+				int count = Math.min(length - from, buffer.remaining() / 8);
+				buffer.asLongBuffer().get(array, from, count);
+				buffer.position(buffer.position() + 8 * count);
+				from += count;
+			}
+
+			return array;
+		}
+
+		public void readBytes(byte[] array, int from, int to) throws IOException
+		{
+			while (from < to)
+			{
+				ByteBuffer buffer = ensure(1);
+				int count = Math.min(to - from, buffer.remaining());
+				buffer.get(array, from, count);
+				from += count;
+			}
+		}
+
+		public String readString() throws IOException
+		{
+			int length = readInt();
+			ByteBuffer buffer = ensure(length);
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		public void close() throws IOException
+		{
+			window = null;
+			channel.close();
+			file.close();
+		}
+	}
+}
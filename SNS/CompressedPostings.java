@@ -0,0 +1,608 @@
+/**
+ * An element of this class stores the index terms and their posting lists compressed with the
+ * delta and variable-byte codes. A posting list is split in blocks of BLOCK postings and it is
+ * stored as:
+ * - a skip table, with an entry for each block: the first document id of the block (as a gap
+ *   from the last document id of the previous block), the gap between the last and the first
+ *   document ids of the block and the number of bytes of the block;
+ * - the blocks: for each posting the gap from the previous document id (omitted for the first
+ *   posting of a block) and the term frequency.
+ * A number is written 7 bits at a time, starting from the lowest ones, and the highest bit of a
+ * byte is set if the number continues in the next byte.
+ *
+ * The co-occurrence of two index terms is evaluated block by block: the skip tables give the
+ * range of document ids of every block, so the blocks of the longer list that can't contain a
+ * document of the shorter one are jumped over without being decoded.
+ *
+ * The compressed posting lists are stored in pages of at most PAGE_SIZE bytes and a posting
+ * list never crosses the end of a page.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class CompressedPostings implements PostingStore
+{
+	//Number of postings of a block.
+	static final int BLOCK = 128;
+
+	//Maximum length in bytes of a page.
+	static final int PAGE_BITS = 30;
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	//Index terms, the position of an index term is its key.
+	private TermArena terms;
+
+	//Position of the posting list of each index term: the index of the page is in the highest
+	//bits and the offset in the page in the lowest PAGE_BITS bits.
+	private long[] starts;
+
+	//Number of postings of each index term.
+	private int[] lengths;
+
+	//Number of bytes of each posting list.
+	private int[] sizes;
+
+	//Number of index terms.
+	private int size;
+
+	//Number of postings.
+	private long postings;
+
+	//Number of bytes of all the posting lists.
+	private long bytes;
+
+	//Pages of compressed posting lists, the last one is the one being written.
+	private byte[][] pages;
+	private int page;
+	private int position;
+
+	//Buffers used to encode a posting list.
+	private byte[] skip_buffer = new byte[64];
+	private byte[] block_buffer = new byte[64];
+	private int skip_length;
+	private int block_length;
+
+	//Cursors used by cooccurrence, one couple for each thread.
+	private static final ThreadLocal<Cursor[]> cursors = new ThreadLocal<Cursor[]>()
+	{
+		protected Cursor[] initialValue()
+		{
+			return new Cursor[] { new Cursor(), new Cursor() };
+		}
+	};
+
+	/**
+	 * It allocates the arrays of the store. The first page is sized for about three bytes per
+	 * posting.
+	 *
+	 * @param expected_terms expected number of index terms.
+	 * @param expected_postings expected number of postings.
+	 */
+	public CompressedPostings(int expected_terms, long expected_postings)
+	{
+		terms = new TermArena(expected_terms);
+		starts = new long[Math.max(1, expected_terms)];
+		lengths = new int[starts.length];
+		sizes = new int[starts.length];
+
+		pages = new byte[1][];
+		pages[0] = new byte[(int) Math.min(PAGE_SIZE, Math.max(1024, 3 * expected_postings))];
+	}
+
+	/**
+	 * It compresses a posting list and it adds it to the store.
+	 *
+	 * @param term the index term.
+	 * @param docs ids of the documents, in ascending order.
+	 * @param tfs term frequencies.
+	 * @param from first position of the posting list.
+	 * @param to end of the posting list (exclusive).
+	 * @return the key of the index term.
+	 */
+	public int addTerm(String term, int[] docs, int[] tfs, int from, int to)
+	{
+		skip_length = 0;
+		block_length = 0;
+		int previous = 0;
+
+		for (int block = from; block < to; block += BLOCK)
+		{
+			int block_end = Math.min(to, block + BLOCK);
+			int block_start = block_length;
+
+			writeBlock(tfs[block]);
+			for (int i = block + 1; i < block_end; i++)
+			{
+				writeBlock(docs[i] - docs[i - 1]);
+				writeBlock(tfs[i]);
+			}
+
+			writeSkip(docs[block] - previous);
+			writeSkip(docs[block_end - 1] - docs[block]);
+			writeSkip(block_length - block_start);
+			previous = docs[block_end - 1];
+		}
+
+		int length = skip_length + block_length;
+		reserve(length);
+
+		System.arraycopy(skip_buffer, 0, pages[page], position, skip_length);
+		System.arraycopy(block_buffer, 0, pages[page], position + skip_length, block_length);
+
+		terms.add(term);
+		return add(to - from, length);
+	}
+
+	/**
+	 * It adds all the index terms of another CompressedPostings. The posting lists are copied
+	 * without being decoded.
+	 *
+	 * @param other a CompressedPostings.
+	 */
+	public void append(PostingStore other)
+	{
+		CompressedPostings store = (CompressedPostings) other;
+
+		for (int key = 0; key < store.size; key++)
+		{
+			long start = store.starts[key];
+			reserve(store.sizes[key]);
+			System.arraycopy(store.pages[(int) (start >>> PAGE_BITS)], (int) (start & (PAGE_SIZE - 1)), pages[page], position, store.sizes[key]);
+			terms.add(store.terms, key);
+			add(store.lengths[key], store.sizes[key]);
+		}
+	}
+
+	/**
+	 * It writes the index terms, the lengths of the posting lists and their compressed bytes.
+	 *
+	 * @param out output of a checkpoint.
+	 * @throws IOException
+	 */
+	public void write(Checkpoint.Output out) throws IOException
+	{
+		terms.write(out);
+
+		out.writeLong(bytes);
+		out.writeInts(lengths, 0, size);
+		out.writeInts(sizes, 0, size);
+
+		for (int key = 0; key < size; key++)
+		{
+			int offset = (int) (starts[key] & (PAGE_SIZE - 1));
+			out.writeBytes(pages[(int) (starts[key] >>> PAGE_BITS)], offset, offset + sizes[key]);
+		}
+	}
+
+	/**
+	 * It reads a CompressedPostings written by write. The posting lists are copied from the file
+	 * without being decoded.
+	 *
+	 * @param in input of a checkpoint.
+	 * @return the CompressedPostings.
+	 * @throws IOException
+	 */
+	public static CompressedPostings read(Checkpoint.Input in) throws IOException
+	{
+		TermArena terms = TermArena.read(in);
+		int size = terms.size();
+
+		//The first page is sized for all the bytes, up to PAGE_SIZE.
+		long bytes = in.readLong();
+		CompressedPostings store = new CompressedPostings(size, (bytes + 2) / 3);
+		store.terms = terms;
+		int[] lengths = in.readInts(size);
+		int[] sizes = in.readInts(size);
+
+		for (int key = 0; key < size; key++)
+		{
+			store.reserve(sizes[key]);
+			in.readBytes(store.pages[store.page], store.position, store.position + sizes[key]);
+			store.add(lengths[key], sizes[key]);
+		}
+
+		store.trim();
+		return store;
+	}
+
+	/**
+	 * It releases the unused positions of the arrays and of the last page.
+	 */
+	public void trim()
+	{
+		terms.trim();
+		starts = Arrays.copyOf(starts, size);
+		lengths = Arrays.copyOf(lengths, size);
+		sizes = Arrays.copyOf(sizes, size);
+		pages[page] = Arrays.copyOf(pages[page], position);
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public long getPostings()
+	{
+		return postings;
+	}
+
+	public long getBytes()
+	{
+		return bytes;
+	}
+
+	public String getTerm(int key)
+	{
+		return terms.getTerm(key);
+	}
+
+	public TermArena getTerms()
+	{
+		return terms;
+	}
+
+	/**
+	 * It returns the number of postings of an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return length of the posting list.
+	 */
+	public int length(int key)
+	{
+		return lengths[key];
+	}
+
+	/**
+	 * It decodes the posting list of an index term in two arrays.
+	 *
+	 * @param key key of the index term.
+	 * @param docs ids of the documents.
+	 * @param tfs term frequencies.
+	 */
+	public void postings(int key, int[] docs, int[] tfs)
+	{
+		if (lengths[key] == 0)
+		{
+			return;
+		}
+
+		Cursor cursor = cursors.get()[0];
+		cursor.open(this, key);
+		for (int block = 0; block < cursor.blocks; block++)
+		{
+			cursor.decode(block);
+			System.arraycopy(cursor.docs, 0, docs, block * BLOCK, cursor.count);
+			System.arraycopy(cursor.tfs, 0, tfs, block * BLOCK, cursor.count);
+		}
+	}
+
+	/**
+	 * It evaluates the co-occurrence of two index terms block by block. The blocks of the
+	 * shorter list are decoded one at a time; a block of the longer list is decoded only if the
+	 * decoded block of the shorter list contains a document id in its range, then the two
+	 * blocks are intersected by the kernels of Intersection.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return co-occurrence of the two index terms.
+	 */
+	public int cooccurrence(int key1, int key2)
+	{
+		if (lengths[key1] == 0 || lengths[key2] == 0)
+		{
+			return 0;
+		}
+
+		Cursor[] pair = cursors.get();
+		Cursor a = pair[0];
+		Cursor b = pair[1];
+
+		//a is the cursor of the shorter list.
+		a.open(this, lengths[key1] <= lengths[key2] ? key1 : key2);
+		b.open(this, lengths[key1] <= lengths[key2] ? key2 : key1);
+
+		if (a.last[a.blocks - 1] < b.first[0] || b.last[b.blocks - 1] < a.first[0])
+		{
+			//The ranges of document ids don't overlap.
+			return 0;
+		}
+
+		int co = 0;
+		int ia = 0;
+		int ib = 0;
+
+		while (ia < a.blocks && ib < b.blocks)
+		{
+			if (a.last[ia] < b.first[ib])
+			{
+				ia++;
+			}
+			else if (b.last[ib] < a.first[ia])
+			{
+				ib++;
+			}
+			else
+			{
+				a.decode(ia);
+
+				if (a.contains(b.first[ib], b.last[ib]))
+				{
+					b.decode(ib);
+					co += Intersection.cooccurrence(a.docs, a.tfs, 0, a.count, b.docs, b.tfs, 0, b.count);
+				}
+
+				//The block that ends first can't contain other common documents.
+				if (a.last[ia] < b.last[ib])
+				{
+					ia++;
+				}
+				else if (a.last[ia] > b.last[ib])
+				{
+					ib++;
+				}
+				else
+				{
+					ia++;
+					ib++;
+				}
+			}
+		}
+
+		return co;
+	}
+
+	/**
+	 * It decodes all the posting lists. It is used to measure the decoding throughput.
+	 *
+	 * @return sum of the last document id of every block.
+	 */
+	public long decodeAll()
+	{
+		Cursor cursor = new Cursor();
+		long checksum = 0;
+
+		for (int key = 0; key < size; key++)
+		{
+			if (lengths[key] == 0)
+			{
+				continue;
+			}
+
+			cursor.open(this, key);
+			for (int block = 0; block < cursor.blocks; block++)
+			{
+				cursor.decode(block);
+				checksum += cursor.docs[cursor.count - 1];
+			}
+		}
+
+		return checksum;
+	}
+
+	/**
+	 * It registers a posting list written in the current position of the last page, for the
+	 * index term added last to the arena of the terms.
+	 */
+	private int add(int length, int bytes_length)
+	{
+		if (size == starts.length)
+		{
+			starts = Arrays.copyOf(starts, 2 * starts.length);
+			lengths = Arrays.copyOf(lengths, starts.length);
+			sizes = Arrays.copyOf(sizes, starts.length);
+		}
+
+		starts[size] = ((long) page << PAGE_BITS) | position;
+		lengths[size] = length;
+		sizes[size] = bytes_length;
+
+		position += bytes_length;
+		postings += length;
+		bytes += bytes_length;
+
+		return size++;
+	}
+
+	/**
+	 * It guarantees that the last page has room for length bytes, growing it or starting a new
+	 * page.
+	 */
+	private void reserve(int length)
+	{
+		if (length > PAGE_SIZE)
+		{
+			throw new IllegalStateException("CompressedPostings: posting list too long (" + length + " bytes)");
+		}
+
+		byte[] current = pages[page];
+		if (position + length <= current.length)
+		{
+			return;
+		}
+
+		if ((long) position + length <= PAGE_SIZE)
+		{
+			long capacity = Math.max((long) position + length, Math.min(PAGE_SIZE, 2L * current.length));
+			pages[page] = Arrays.copyOf(current, (int) capacity);
+		}
+		else
+		{
+			//The current page is trimmed and a new one is started.
+			pages[page] = Arrays.copyOf(current, position);
+			pages = Arrays.copyOf(pages, pages.length + 1);
+			page++;
+			pages[page] = new byte[Math.max(length, current.length)];
+			position = 0;
+		}
+	}
+
+	private void writeSkip(int value)
+	{
+		if (skip_buffer.length < skip_length + 5)
+		{
+			skip_buffer = Arrays.copyOf(skip_buffer, 2 * skip_buffer.length);
+		}
+		skip_length = writeVInt(skip_buffer, skip_length, value);
+	}
+
+	private void writeBlock(int value)
+	{
+		if (block_buffer.length < block_length + 5)
+		{
+			block_buffer = Arrays.copyOf(block_buffer, 2 * block_buffer.length);
+		}
+		block_length = writeVInt(block_buffer, block_length, value);
+	}
+
+	/**
+	 * It writes a number with the variable-byte code and it returns the position that follows it.
+	 */
+	static int writeVInt(byte[] buffer, int position, int value)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * A cursor over a compressed posting list: it keeps the decoded skip table and the last
+	 * decoded block.
+	 */
+	private static class Cursor
+	{
+		//Page of the posting list and position of the next byte to read.
+		byte[] page;
+		int position;
+
+		//Number of postings and of blocks.
+		int length;
+		int blocks;
+
+		//First and last document id and position in the page of each block.
+		int[] first = new int[16];
+		int[] last = new int[16];
+		int[] offsets = new int[16];
+
+		//Postings of the decoded block.
+		int[] docs = new int[BLOCK];
+		int[] tfs = new int[BLOCK];
+		int count;
+		int decoded;
+
+		/**
+		 * It positions the cursor on the posting list of an index term and it decodes its
+		 * skip table.
+		 */
+		void open(CompressedPostings store, int key)
+		{
+			long start = store.starts[key];
+			page = store.pages[(int) (start >>> PAGE_BITS)];
+			position = (int) (start & (PAGE_SIZE - 1));
+			length = store.lengths[key];
+			blocks = (length + BLOCK - 1) / BLOCK;
+			decoded = -1;
+
+			if (first.length < blocks)
+			{
+				first = new int[Math.max(blocks, 2 * first.length)];
+				last = new int[first.length];
+				offsets = new int[first.length];
+			}
+
+			int previous = 0;
+			for (int block = 0; block < blocks; block++)
+			{
+				first[block] = previous + readVInt();
+				last[block] = first[block] + readVInt();
+				offsets[block] = readVInt();
+				previous = last[block];
+			}
+
+			//The lengths of the blocks become their positions in the page.
+			int offset = position;
+			for (int block = 0; block < blocks; block++)
+			{
+				int block_bytes = offsets[block];
+				offsets[block] = offset;
+				offset += block_bytes;
+			}
+		}
+
+		/**
+		 * It decodes a block of the posting list, if it isn't the last decoded one.
+		 */
+		void decode(int block)
+		{
+			if (decoded == block)
+			{
+				return;
+			}
+
+			position = offsets[block];
+			count = block == blocks - 1 ? length - block * BLOCK : BLOCK;
+
+			int doc = first[block];
+			docs[0] = doc;
+			tfs[0] = readVInt();
+
+			for (int i = 1; i < count; i++)
+			{
+				doc += readVInt();
+				docs[i] = doc;
+				tfs[i] = readVInt();
+			}
+
+			decoded = block;
+		}
+
+		/**
+		 * It verifies if the decoded block contains a document id in [low, high].
+		 */
+		boolean contains(int low, int high)
+		{
+			int from = 0;
+			int to = count;
+			while (from < to)
+			{
+				int middle = (from + to) >>> 1;
+				if (docs[middle] < low)
+				{
+					from = middle + 1;
+				}
+				else
+				{
+					to = middle;
+				}
+			}
+
+			return from < count && docs[from] <= high;
+		}
+
+		private int readVInt()
+		{
+			int b = page[position++];
+			if (b >= 0)
+			{
+				return b;
+			}
+
+			int value = b & 0x7F;
+			int shift = 7;
+			do
+			{
+				b = page[position++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while (b < 0);
+
+			return value;
+		}
+	}
+}
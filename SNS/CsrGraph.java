@@ -0,0 +1,303 @@
+/**
+ * An element of this class is an undirected graph stored in the compressed sparse row format.
+ * The nodes are the keys of the index terms and the edges are the arcs of an ArcTable: the
+ * neighbours of a node are a range of positions of the array neighbours, the array edges gives
+ * the index in the ArcTable of the arc of each position and the array weights its co-occurrence.
+ * Each edge appears in the rows of both its extremities, and the neighbours of a row are sorted
+ * in ascending order, so the common neighbours of two nodes are found by intersecting their rows.
+ *
+ * The graph is built by two passes of counting sort: the first one groups the arcs by extremity,
+ * the latter one visits the nodes in ascending order and appends each node to the rows of its
+ * neighbours, so every row is filled in ascending order. An edge is removed by setting its bit in
+ * a bitmask, the rows are never modified.
+ */
+
+public class CsrGraph
+{
+	//Position of the first neighbour of each node. The entry that follows the last node is the
+	//end of its row.
+	private int[] offsets;
+
+	//Neighbours of all the nodes.
+	private int[] neighbours;
+
+	//Index in the ArcTable of the edge of each position of neighbours.
+	private int[] edges;
+
+	//Co-occurrence of the edge of each position of neighbours.
+	private int[] weights;
+
+	//Bit i is set if the edge i has been removed.
+	private long[] removed;
+
+	//Number of edges.
+	private int number_edges;
+
+	/**
+	 * It builds the graph of the arcs of an ArcTable.
+	 *
+	 * @param number_nodes number of nodes, the keys of the index terms are in [0, number_nodes).
+	 * @param arcs the edges of the graph.
+	 */
+	public CsrGraph(int number_nodes, ArcTable arcs)
+	{
+		number_edges = arcs.size();
+		offsets = new int[number_nodes + 1];
+
+		//Degree of each node.
+		for (int arc = 0; arc < number_edges; arc++)
+		{
+			offsets[arcs.getRow(arc) + 1]++;
+			offsets[arcs.getColumn(arc) + 1]++;
+		}
+
+		for (int node = 0; node < number_nodes; node++)
+		{
+			offsets[node + 1] += offsets[node];
+		}
+
+		removed = new long[(number_edges + 63) >>> 6];
+
+		//First pass: the neighbours of each node in the order of the arcs.
+		int[] unsorted_neighbours = new int[2 * number_edges];
+		int[] unsorted_edges = new int[2 * number_edges];
+
+		//Next free position of each row.
+		int[] next = new int[number_nodes];
+		System.arraycopy(offsets, 0, next, 0, number_nodes);
+
+		for (int arc = 0; arc < number_edges; arc++)
+		{
+			int row = arcs.getRow(arc);
+			int column = arcs.getColumn(arc);
+
+			unsorted_neighbours[next[row]] = column;
+			unsorted_edges[next[row]++] = arc;
+			unsorted_neighbours[next[column]] = row;
+			unsorted_edges[next[column]++] = arc;
+		}
+
+		//Latter pass: each node is appended to the rows of its neighbours.
+		neighbours = new int[2 * number_edges];
+		edges = new int[2 * number_edges];
+		weights = new int[2 * number_edges];
+		System.arraycopy(offsets, 0, next, 0, number_nodes);
+
+		for (int node = 0; node < number_nodes; node++)
+		{
+			for (int i = offsets[node]; i < offsets[node + 1]; i++)
+			{
+				int neighbour = unsorted_neighbours[i];
+				int edge = unsorted_edges[i];
+
+				neighbours[next[neighbour]] = node;
+				edges[next[neighbour]] = edge;
+				weights[next[neighbour]++] = arcs.getCooccurrence(edge);
+			}
+		}
+	}
+
+	/**
+	 * It returns the number of nodes.
+	 *
+	 * @return number of nodes.
+	 */
+	public int getNumberNodes()
+	{
+		return offsets.length - 1;
+	}
+
+	/**
+	 * It returns the number of edges, including the removed ones.
+	 *
+	 * @return number of edges.
+	 */
+	public int getNumberEdges()
+	{
+		return number_edges;
+	}
+
+	/**
+	 * It returns the position of the first neighbour of a node.
+	 *
+	 * @param node the node.
+	 * @return start of the row.
+	 */
+	public int start(int node)
+	{
+		return offsets[node];
+	}
+
+	/**
+	 * It returns the position that follows the last neighbour of a node.
+	 *
+	 * @param node the node.
+	 * @return end of the row (exclusive).
+	 */
+	public int end(int node)
+	{
+		return offsets[node + 1];
+	}
+
+	/**
+	 * It returns the neighbour in a position of a row.
+	 *
+	 * @param position the position.
+	 * @return the neighbour.
+	 */
+	public int getNeighbour(int position)
+	{
+		return neighbours[position];
+	}
+
+	/**
+	 * It returns the index in the ArcTable of the edge in a position of a row.
+	 *
+	 * @param position the position.
+	 * @return the edge.
+	 */
+	public int getEdge(int position)
+	{
+		return edges[position];
+	}
+
+	/**
+	 * It returns the array of the neighbours of all the rows. The array must not be modified.
+	 *
+	 * @return neighbours
+	 */
+	public int[] getNeighbours()
+	{
+		return neighbours;
+	}
+
+	/**
+	 * It returns the array of the co-occurrences of the edges of all the rows, parallel to the
+	 * array of the neighbours. The array must not be modified.
+	 *
+	 * @return weights
+	 */
+	public int[] getWeights()
+	{
+		return weights;
+	}
+
+	/**
+	 * It returns the sum, over the common neighbours of two nodes, of the minimum of the
+	 * co-occurrences of the edges that link them to the two nodes. The co-occurrences of the edges
+	 * are sums of term frequencies and the rows of the hubs are long, so the sum is kept in a long.
+	 * The rows are merged if their lengths are close, otherwise each neighbour of the shorter row
+	 * is searched in the longer one.
+	 *
+	 * @param a the first node.
+	 * @param b the latter node.
+	 * @return sum of the minimum co-occurrences of the common neighbours.
+	 */
+	public long commonWeight(int a, int b)
+	{
+		int from1 = offsets[a];
+		int to1 = offsets[a + 1];
+		int from2 = offsets[b];
+		int to2 = offsets[b + 1];
+
+		if (to1 - from1 > to2 - from2)
+		{
+			int from = from1;
+			int to = to1;
+			from1 = from2;
+			to1 = to2;
+			from2 = from;
+			to2 = to;
+		}
+
+		long sum = 0;
+
+		if ((long) (to1 - from1) * 32 < to2 - from2)
+		{
+			for (int i = from1; i < to1 && from2 < to2; i++)
+			{
+				from2 = lowerBound(from2, to2, neighbours[i]);
+				if (from2 < to2 && neighbours[from2] == neighbours[i])
+				{
+					sum += Math.min(weights[i], weights[from2]);
+					from2++;
+				}
+			}
+			return sum;
+		}
+
+		while (from1 < to1 && from2 < to2)
+		{
+			int neighbour1 = neighbours[from1];
+			int neighbour2 = neighbours[from2];
+
+			if (neighbour1 < neighbour2)
+			{
+				from1++;
+			}
+			else if (neighbour1 > neighbour2)
+			{
+				from2++;
+			}
+			else
+			{
+				sum += Math.min(weights[from1], weights[from2]);
+				from1++;
+				from2++;
+			}
+		}
+
+		return sum;
+	}
+
+	/**
+	 * It returns the first position in [from, to) with a neighbour not less than node.
+	 */
+	private int lowerBound(int from, int to, int node)
+	{
+		while (from < to)
+		{
+			int middle = (from + to) >>> 1;
+			if (neighbours[middle] < node)
+			{
+				from = middle + 1;
+			}
+			else
+			{
+				to = middle;
+			}
+		}
+		return from;
+	}
+
+	/**
+	 * It removes an edge from the graph.
+	 *
+	 * @param edge index of the edge.
+	 */
+	public void remove(int edge)
+	{
+		removed[edge >>> 6] |= 1L << edge;
+	}
+
+	/**
+	 * It verifies if an edge has been removed.
+	 *
+	 * @param edge index of the edge.
+	 * @return true if the edge has been removed.
+	 */
+	public boolean isRemoved(int edge)
+	{
+		return (removed[edge >>> 6] & (1L << edge)) != 0;
+	}
+
+	/**
+	 * It returns the number of bytes used by the arrays of the graph.
+	 *
+	 * @return bytes
+	 */
+	public long getBytes()
+	{
+		return 4L * (offsets.length + neighbours.length + edges.length + weights.length) + 8L * removed.length;
+	}
+}
@@ -0,0 +1,352 @@
+/**
+ * An element of this class evaluates the co-occurrence measure of the couples of index terms of
+ * a PrefixBuckets object document at a time, instead of intersecting the posting lists of every
+ * couple. The posting lists of the index terms of the buckets are transposed in a forward index:
+ * for each document, the positions (in the sorted order of the buckets) of the index terms that
+ * appear in it, in ascending order, with their term frequencies. The index terms of a document
+ * that belong to the same bucket are then contiguous, and each couple of them adds the minimum of
+ * the two term frequencies to the accumulator of the couple. A document is visited once for all
+ * the couples of a bucket, so a bucket with many index terms of medium frequency doesn't scan
+ * the same posting lists again and again.
+ *
+ * The buckets are split in ranges of at most DENSE_PAIRS couples, and the ranges are accumulated
+ * on the threads of a ForkJoinPool, each one in its own array of counters with a position for
+ * every couple of the range (a bucket with more couples forms a range alone and it is accumulated
+ * in a hash table). The couples are given back to a PairVisitor on the calling thread in the
+ * order of the sequential evaluation of the buckets, so the result doesn't depend on the engine
+ * or on the number of threads.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+public class DocumentCooccurrence
+{
+	//Maximum number of couples of a range accumulated in an array.
+	static final int DENSE_PAIRS = 1 << 22;
+
+	//Number of ranges of a batch for each thread: the couples of a batch are given back to the
+	//visitor before the next batch is accumulated.
+	static final int RANGES_PER_THREAD = 4;
+
+	//Pool of threads that accumulates the ranges.
+	private ForkJoinPool pool;
+
+	//Forward index: the entries of document d are in [doc_offsets[d], doc_offsets[d + 1]), each one
+	//with the position of an index term and its term frequency.
+	private int[] doc_offsets;
+	private int[] entry_positions;
+	private int[] entry_tfs;
+
+	//Bucket of each position of the sorted order, -1 if it doesn't belong to a bucket.
+	private int[] position_buckets;
+
+	//Number of couples of the buckets that precede each bucket.
+	private long[] bucket_pairs;
+
+	/**
+	 * It creates the ForkJoinPool used to accumulate the ranges.
+	 *
+	 * @param parallelism number of threads.
+	 */
+	public DocumentCooccurrence(int parallelism)
+	{
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * It evaluates the co-occurrence measure of every couple of index terms that belong to the
+	 * same bucket. For each couple with a co-occurrence greater than 0 the visitor is invoked
+	 * on the calling thread, with the index term that follows in the sorted order first.
+	 *
+	 * @param store PostingLists that stores the posting lists.
+	 * @param buckets buckets of index terms.
+	 * @param visitor object that receives the couples.
+	 */
+	public void evaluate(PostingLists store, final PrefixBuckets buckets, ParallelCooccurrence.PairVisitor visitor)
+	{
+		transpose(store, buckets);
+
+		bucket_pairs = new long[buckets.size() + 1];
+		for (int bucket = 0; bucket < buckets.size(); bucket++)
+		{
+			long size = buckets.end(bucket) - buckets.start(bucket);
+			bucket_pairs[bucket + 1] = bucket_pairs[bucket] + size * (size - 1) / 2;
+		}
+
+		//Ranges of consecutive buckets with at most DENSE_PAIRS couples, or a single bucket.
+		IntArrayList range_bounds = new IntArrayList();
+		range_bounds.add(0);
+		for (int bucket = 1; bucket <= buckets.size(); bucket++)
+		{
+			int first = range_bounds.getInt(range_bounds.size() - 1);
+			if (bucket == buckets.size() || bucket_pairs[bucket + 1] - bucket_pairs[first] > DENSE_PAIRS)
+			{
+				range_bounds.add(bucket);
+			}
+		}
+		final int[] bounds = range_bounds.toIntArray();
+		int ranges = bounds.length - 1;
+
+		int batch = RANGES_PER_THREAD * pool.getParallelism();
+		long status_pairs = Math.max(1, buckets.getCandidatePairs() / 25);
+		long next_status = 0;
+
+		for (int first = 0; first < ranges; first += batch)
+		{
+			final int batch_first = first;
+			final IntArrayList[] results = new IntArrayList[Math.min(batch, ranges - first)];
+
+			ParallelRange.run(pool, results.length, 1, new ParallelRange.Body()
+			{
+				public void run(int from, int to)
+				{
+					for (int range = from; range < to; range++)
+					{
+						results[range] = accumulate(buckets, bounds[batch_first + range], bounds[batch_first + range + 1]);
+					}
+				}
+			});
+
+			for (int range = 0; range < results.length; range++)
+			{
+				for (int j = 0; j < results[range].size(); j += 3)
+				{
+					visitor.visit(results[range].getInt(j), results[range].getInt(j + 1), results[range].getInt(j + 2));
+				}
+				results[range] = null;
+			}
+
+			long done_pairs = bucket_pairs[bounds[Math.min(ranges, first + batch)]];
+			if (done_pairs >= next_status)
+			{
+				//approximate status print
+				System.out.println("Cooccurence calculation: " + (int)((done_pairs / (double) Math.max(1, buckets.getCandidatePairs())) * 100) + "%");
+				next_status = done_pairs + status_pairs;
+			}
+		}
+
+		doc_offsets = null;
+		entry_positions = null;
+		entry_tfs = null;
+		position_buckets = null;
+		bucket_pairs = null;
+	}
+
+	/**
+	 * It stops the threads of the pool.
+	 */
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	 * It builds the forward index of the index terms of the buckets. The posting lists are read
+	 * in the sorted order, so the entries of each document are in ascending order of position.
+	 */
+	private void transpose(PostingLists store, PrefixBuckets buckets)
+	{
+		int[] sorted_keys = buckets.getSortedKeys();
+		position_buckets = new int[sorted_keys.length];
+		Arrays.fill(position_buckets, -1);
+
+		int max_length = 0;
+		for (int bucket = 0; bucket < buckets.size(); bucket++)
+		{
+			for (int position = buckets.start(bucket); position < buckets.end(bucket); position++)
+			{
+				position_buckets[position] = bucket;
+				max_length = Math.max(max_length, store.length(sorted_keys[position]));
+			}
+		}
+
+		int[] docs = new int[max_length];
+		int[] tfs = new int[max_length];
+
+		//Counting pass: the number of entries of each document.
+		IntArrayList counts = new IntArrayList();
+		long entries = 0;
+
+		for (int position = 0; position < sorted_keys.length; position++)
+		{
+			if (position_buckets[position] < 0)
+			{
+				continue;
+			}
+
+			int length = store.length(sorted_keys[position]);
+			store.postings(sorted_keys[position], docs, tfs);
+			for (int i = 0; i < length; i++)
+			{
+				while (counts.size() <= docs[i])
+				{
+					counts.add(0);
+				}
+				counts.set(docs[i], counts.getInt(docs[i]) + 1);
+			}
+			entries += length;
+		}
+
+		if (entries > Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalStateException("DocumentCooccurrence: too many postings (" + entries + ")");
+		}
+
+		doc_offsets = new int[counts.size() + 1];
+		for (int doc = 0; doc < counts.size(); doc++)
+		{
+			doc_offsets[doc + 1] = doc_offsets[doc] + counts.getInt(doc);
+		}
+		counts = null;
+
+		//Filling pass.
+		entry_positions = new int[(int) entries];
+		entry_tfs = new int[(int) entries];
+		int[] next = Arrays.copyOf(doc_offsets, doc_offsets.length - 1);
+
+		for (int position = 0; position < sorted_keys.length; position++)
+		{
+			if (position_buckets[position] < 0)
+			{
+				continue;
+			}
+
+			int length = store.length(sorted_keys[position]);
+			store.postings(sorted_keys[position], docs, tfs);
+			for (int i = 0; i < length; i++)
+			{
+				int entry = next[docs[i]]++;
+				entry_positions[entry] = position;
+				entry_tfs[entry] = tfs[i];
+			}
+		}
+	}
+
+	/**
+	 * It accumulates the co-occurrence of the couples of the buckets in [first_bucket,
+	 * end_bucket) over all the documents and it returns the couples with a co-occurrence greater
+	 * than 0 as triples (key1, key2, co), in the order of the sequential evaluation.
+	 */
+	private IntArrayList accumulate(PrefixBuckets buckets, int first_bucket, int end_bucket)
+	{
+		int first = buckets.start(first_bucket);
+		int end = buckets.end(end_bucket - 1);
+		long base = bucket_pairs[first_bucket];
+		long pairs = bucket_pairs[end_bucket] - base;
+
+		//The couple (later, former) of a bucket that starts at start has the index
+		//(later - start) * (later - start - 1) / 2 + former - start among the couples of the bucket.
+		int[] dense = pairs <= DENSE_PAIRS ? new int[(int) pairs] : null;
+		Long2IntOpenHashMap sparse = dense == null ? new Long2IntOpenHashMap() : null;
+
+		for (int doc = 0; doc + 1 < doc_offsets.length; doc++)
+		{
+			int from = lowerBound(doc_offsets[doc], doc_offsets[doc + 1], first);
+			int to = lowerBound(from, doc_offsets[doc + 1], end);
+
+			//The entries of the same bucket are contiguous.
+			int group = from;
+			while (group < to)
+			{
+				int bucket = position_buckets[entry_positions[group]];
+				int group_end = group + 1;
+				while (group_end < to && position_buckets[entry_positions[group_end]] == bucket)
+				{
+					group_end++;
+				}
+
+				int start = buckets.start(bucket);
+				long offset = bucket_pairs[bucket] - base;
+
+				for (int later = group + 1; later < group_end; later++)
+				{
+					long row = entry_positions[later] - start;
+					long row_offset = offset + row * (row - 1) / 2 - start;
+					int tf = entry_tfs[later];
+
+					for (int former = group; former < later; former++)
+					{
+						int co = Math.min(tf, entry_tfs[former]);
+						if (dense != null)
+						{
+							dense[(int) (row_offset + entry_positions[former])] += co;
+						}
+						else
+						{
+							sparse.addTo(row_offset + entry_positions[former], co);
+						}
+					}
+				}
+
+				group = group_end;
+			}
+		}
+
+		IntArrayList results = new IntArrayList();
+
+		if (dense != null)
+		{
+			for (int bucket = first_bucket; bucket < end_bucket; bucket++)
+			{
+				int index = (int) (bucket_pairs[bucket] - base);
+				for (int later = buckets.start(bucket) + 1; later < buckets.end(bucket); later++)
+				{
+					for (int former = buckets.start(bucket); former < later; former++, index++)
+					{
+						if (dense[index] != 0)
+						{
+							results.add(buckets.key(later));
+							results.add(buckets.key(former));
+							results.add(dense[index]);
+						}
+					}
+				}
+			}
+		}
+		else
+		{
+			//A single bucket: the index of a couple grows with the order of the sequential evaluation.
+			long[] indexes = sparse.keySet().toLongArray();
+			Arrays.sort(indexes);
+
+			int start = buckets.start(first_bucket);
+			int later = start + 1;
+			for (long index : indexes)
+			{
+				while ((long) (later - start + 1) * (later - start) / 2 <= index)
+				{
+					later++;
+				}
+				results.add(buckets.key(later));
+				results.add(buckets.key((int) (start + index - (long) (later - start) * (later - start - 1) / 2)));
+				results.add(sparse.get(index));
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * It returns the first entry in [from, to) whose position is not less than position.
+	 */
+	private int lowerBound(int from, int to, int position)
+	{
+		while (from < to)
+		{
+			int middle = (from + to) >>> 1;
+			if (entry_positions[middle] < position)
+			{
+				from = middle + 1;
+			}
+			else
+			{
+				to = middle;
+			}
+		}
+		return from;
+	}
+}
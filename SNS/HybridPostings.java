@@ -0,0 +1,404 @@
+/**
+ * An element of this class wraps a PostingArena and it stores the dense parts of the long posting
+ * lists as bitmaps, in the style of Roaring bitmaps. The document ids are split in chunks of
+ * 1 << CHUNK_BITS ids, and the postings of a posting list in a chunk are a container:
+ * - an array container, with at most ARRAY_MAX postings (by default), is the range of the posting list in the
+ *   arrays of the arena;
+ * - a bitmap container has a bit for each document id of the chunk. Its term frequencies stay in
+ *   the array of the arena, in the order of the document ids, so the term frequency of a document
+ *   is at the position given by the number of bits set before its bit (its rank).
+ * Only the index terms with at least one bitmap container have a directory of containers; the
+ * other ones are intersected by the kernels of Intersection as in the arena.
+ *
+ * Two containers of the same chunk are intersected by the kernels of Intersection if they are
+ * both arrays, by a lookup of each document of the array in the bitmap if only one of them is a
+ * bitmap, and by the AND of the words of the bitmaps if they are both bitmaps. The ranks of the
+ * words are accumulated while the words are visited, so the term frequencies of a document are
+ * found with a popcount of a single word.
+ */
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+public class HybridPostings implements PostingLists
+{
+	//Bits of the lowest part of a document id: a container covers 1 << CHUNK_BITS document ids.
+	static final int CHUNK_BITS = 16;
+
+	//Words of a bitmap container.
+	static final int BITMAP_WORDS = (1 << CHUNK_BITS) / 64;
+
+	//A container with more postings is a bitmap.
+	static final int ARRAY_MAX = 4096;
+
+	//Arena with the posting lists.
+	private PostingArena store;
+
+	//Arrays of the postings of the arena.
+	private int[] docs;
+	private int[] tfs;
+
+	//First container of each index term, the entry that follows the last index term is the
+	//number of containers.
+	private int[] directories;
+
+	//Chunk, range of the postings in the arrays of the arena and bitmap (-1 for an array
+	//container) of each container.
+	private int[] chunks;
+	private int[] starts;
+	private int[] ends;
+	private int[] bitmaps;
+
+	//Words of the bitmaps, BITMAP_WORDS for each bitmap.
+	private long[] words;
+
+	//Number of bitmaps.
+	private int number_bitmaps;
+
+	/**
+	 * It builds the containers of the index terms with a chunk of more than ARRAY_MAX postings.
+	 *
+	 * @param store arena with the posting lists.
+	 */
+	public HybridPostings(PostingArena store)
+	{
+		this(store, ARRAY_MAX);
+	}
+
+	/**
+	 * It builds the containers of the index terms with a chunk of more than array_max postings.
+	 *
+	 * @param store arena with the posting lists.
+	 * @param array_max a container with more postings is a bitmap.
+	 */
+	public HybridPostings(PostingArena store, int array_max)
+	{
+		this.store = store;
+		docs = store.getDocs();
+		tfs = store.getTfs();
+
+		directories = new int[store.size() + 1];
+		IntArrayList container_chunks = new IntArrayList();
+		IntArrayList container_starts = new IntArrayList();
+		IntArrayList container_ends = new IntArrayList();
+		IntArrayList container_bitmaps = new IntArrayList();
+		words = new long[BITMAP_WORDS];
+
+		for (int key = 0; key < store.size(); key++)
+		{
+			int first_container = container_chunks.size();
+			int first_bitmap = number_bitmaps;
+
+			if (store.end(key) - store.start(key) > array_max)
+			{
+				int i = store.start(key);
+				while (i < store.end(key))
+				{
+					int chunk = docs[i] >>> CHUNK_BITS;
+					int j = i + 1;
+					while (j < store.end(key) && docs[j] >>> CHUNK_BITS == chunk)
+					{
+						j++;
+					}
+
+					container_chunks.add(chunk);
+					container_starts.add(i);
+					container_ends.add(j);
+					container_bitmaps.add(j - i > array_max ? addBitmap(i, j) : -1);
+					i = j;
+				}
+			}
+
+			if (number_bitmaps == first_bitmap)
+			{
+				//Without bitmaps the posting list is intersected as in the arena.
+				container_chunks.size(first_container);
+				container_starts.size(first_container);
+				container_ends.size(first_container);
+				container_bitmaps.size(first_container);
+			}
+			directories[key + 1] = container_chunks.size();
+		}
+
+		chunks = container_chunks.toIntArray();
+		starts = container_starts.toIntArray();
+		ends = container_ends.toIntArray();
+		bitmaps = container_bitmaps.toIntArray();
+		words = Arrays.copyOf(words, number_bitmaps * BITMAP_WORDS);
+	}
+
+	/**
+	 * It sets the bits of the documents of a range of the arena, all in the same chunk, in a new
+	 * bitmap and it returns its index.
+	 */
+	private int addBitmap(int from, int to)
+	{
+		if ((long) (number_bitmaps + 1) * BITMAP_WORDS > Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalStateException("HybridPostings: too many bitmaps (" + (number_bitmaps + 1) + ")");
+		}
+		if ((number_bitmaps + 1) * BITMAP_WORDS > words.length)
+		{
+			words = Arrays.copyOf(words, (int) Math.min(Integer.MAX_VALUE - 8, 2L * words.length));
+		}
+
+		int offset = number_bitmaps * BITMAP_WORDS;
+		for (int i = from; i < to; i++)
+		{
+			int low = docs[i] & ((1 << CHUNK_BITS) - 1);
+			words[offset + (low >>> 6)] |= 1L << low;
+		}
+
+		return number_bitmaps++;
+	}
+
+	/**
+	 * It returns the co-occurrence measure of two index terms: container by container if one of
+	 * them has bitmaps, otherwise as in the arena.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return co-occurrence of the two index terms.
+	 */
+	public int cooccurrence(int key1, int key2)
+	{
+		if (directories[key1] == directories[key1 + 1])
+		{
+			if (directories[key2] == directories[key2 + 1])
+			{
+				return store.cooccurrence(key1, key2);
+			}
+
+			//The first index term is the one with the bitmaps.
+			int key = key1;
+			key1 = key2;
+			key2 = key;
+		}
+
+		boolean directory2 = directories[key2] < directories[key2 + 1];
+		int container2 = directories[key2];
+		int position2 = store.start(key2);
+		int end2 = store.end(key2);
+		int co = 0;
+
+		for (int container1 = directories[key1]; container1 < directories[key1 + 1]; container1++)
+		{
+			int chunk = chunks[container1];
+			int from2;
+			int to2;
+			int bitmap2 = -1;
+
+			if (directory2)
+			{
+				while (container2 < directories[key2 + 1] && chunks[container2] < chunk)
+				{
+					container2++;
+				}
+				if (container2 == directories[key2 + 1])
+				{
+					break;
+				}
+				if (chunks[container2] != chunk)
+				{
+					continue;
+				}
+				from2 = starts[container2];
+				to2 = ends[container2];
+				bitmap2 = bitmaps[container2];
+			}
+			else
+			{
+				//The postings of the chunk in the posting list without containers.
+				from2 = lowerBound(position2, end2, (long) chunk << CHUNK_BITS);
+				to2 = lowerBound(from2, end2, (long) (chunk + 1) << CHUNK_BITS);
+				position2 = to2;
+				if (from2 == end2)
+				{
+					break;
+				}
+				if (from2 == to2)
+				{
+					continue;
+				}
+			}
+
+			int bitmap1 = bitmaps[container1];
+
+			if (bitmap1 < 0 && bitmap2 < 0)
+			{
+				co += Intersection.cooccurrence(docs, tfs, starts[container1], ends[container1], docs, tfs, from2, to2);
+			}
+			else if (bitmap1 >= 0 && bitmap2 >= 0)
+			{
+				co += and(bitmap1, starts[container1], bitmap2, from2);
+			}
+			else if (bitmap1 >= 0)
+			{
+				co += lookup(bitmap1, starts[container1], from2, to2);
+			}
+			else
+			{
+				co += lookup(bitmap2, from2, starts[container1], ends[container1]);
+			}
+		}
+
+		return co;
+	}
+
+	/**
+	 * It intersects two bitmaps: the term frequencies of the first bitmap start at position rank1
+	 * of the arena, the ones of the latter bitmap at position rank2.
+	 */
+	private int and(int bitmap1, int rank1, int bitmap2, int rank2)
+	{
+		int offset1 = bitmap1 * BITMAP_WORDS;
+		int offset2 = bitmap2 * BITMAP_WORDS;
+		int co = 0;
+
+		for (int i = 0; i < BITMAP_WORDS; i++)
+		{
+			long word1 = words[offset1 + i];
+			long word2 = words[offset2 + i];
+			long both = word1 & word2;
+
+			while (both != 0)
+			{
+				long lowest = both & -both;
+				long below = lowest - 1;
+				co += Math.min(tfs[rank1 + Long.bitCount(word1 & below)], tfs[rank2 + Long.bitCount(word2 & below)]);
+				both ^= lowest;
+			}
+
+			rank1 += Long.bitCount(word1);
+			rank2 += Long.bitCount(word2);
+		}
+
+		return co;
+	}
+
+	/**
+	 * It looks up the documents of a range of the arena, all in the chunk of a bitmap, in the
+	 * bitmap, whose term frequencies start at position rank of the arena.
+	 */
+	private int lookup(int bitmap, int rank, int from, int to)
+	{
+		int offset = bitmap * BITMAP_WORDS;
+		int word = 0;
+		int co = 0;
+
+		for (int i = from; i < to; i++)
+		{
+			int low = docs[i] & ((1 << CHUNK_BITS) - 1);
+			int index = low >>> 6;
+
+			//The rank of the words before the word of the document.
+			while (word < index)
+			{
+				rank += Long.bitCount(words[offset + word]);
+				word++;
+			}
+
+			long bits = words[offset + index];
+			long bit = 1L << low;
+			if ((bits & bit) != 0)
+			{
+				co += Math.min(tfs[i], tfs[rank + Long.bitCount(bits & (bit - 1))]);
+			}
+		}
+
+		return co;
+	}
+
+	/**
+	 * It returns the first position in [from, to) of the arena with a document id not less than
+	 * doc.
+	 */
+	private int lowerBound(int from, int to, long doc)
+	{
+		while (from < to)
+		{
+			int middle = (from + to) >>> 1;
+			if (docs[middle] < doc)
+			{
+				from = middle + 1;
+			}
+			else
+			{
+				to = middle;
+			}
+		}
+		return from;
+	}
+
+	/**
+	 * It returns the number of bitmap containers.
+	 *
+	 * @return bitmaps
+	 */
+	public int getBitmaps()
+	{
+		return number_bitmaps;
+	}
+
+	/**
+	 * It returns the number of containers of the index terms with a directory.
+	 *
+	 * @return containers
+	 */
+	public int getContainers()
+	{
+		return chunks.length;
+	}
+
+	/**
+	 * It returns true if an index term has at least a bitmap container.
+	 *
+	 * @param key key of the index term.
+	 * @return true if the posting list has bitmaps.
+	 */
+	public boolean hasBitmaps(int key)
+	{
+		return directories[key] < directories[key + 1];
+	}
+
+	public int size()
+	{
+		return store.size();
+	}
+
+	public long getPostings()
+	{
+		return store.getPostings();
+	}
+
+	/**
+	 * It returns the number of bytes of the arena, of the bitmaps and of the directories.
+	 *
+	 * @return bytes
+	 */
+	public long getBytes()
+	{
+		return store.getBytes() + 8L * words.length + 16L * chunks.length + 4L * directories.length;
+	}
+
+	public String getTerm(int key)
+	{
+		return store.getTerm(key);
+	}
+
+	public TermArena getTerms()
+	{
+		return store.getTerms();
+	}
+
+	public int length(int key)
+	{
+		return store.length(key);
+	}
+
+	public void postings(int key, int[] docs, int[] tfs)
+	{
+		store.postings(key, docs, tfs);
+	}
+}
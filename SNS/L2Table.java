@@ -0,0 +1,148 @@
+/**
+ * An element of this class counts, for each couple of suffixes, the couples of index terms with
+ * a common prefix longer than l2 that are made by those suffixes. A couple of suffixes is
+ * identified by the key of their ids (ArcTable.key), which doesn't depend on their order, and it
+ * is associated with a slot: the counters are stored in an array indexed by slot.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+public class L2Table
+{
+	//Slot of each couple of suffixes.
+	private Long2IntOpenHashMap slots;
+
+	//Key of the couple of suffixes of each slot.
+	private long[] keys;
+
+	//Counter of each slot.
+	private int[] counters;
+
+	//Number of slots.
+	private int size;
+
+	/**
+	 * @param expected_slots expected number of couples of suffixes.
+	 */
+	public L2Table(int expected_slots)
+	{
+		slots = new Long2IntOpenHashMap(Math.max(16, expected_slots));
+		slots.defaultReturnValue(-1);
+		keys = new long[Math.max(1, expected_slots)];
+		counters = new int[keys.length];
+	}
+
+	/**
+	 * It returns the slot of a couple of suffixes. A new slot, with the counter set to 0, is
+	 * created the first time that the couple is seen.
+	 *
+	 * @param suffix1 id of the first suffix.
+	 * @param suffix2 id of the latter suffix.
+	 * @return the slot.
+	 */
+	public int slot(int suffix1, int suffix2)
+	{
+		long key = ArcTable.key(suffix1, suffix2);
+		int slot = slots.get(key);
+
+		if (slot < 0)
+		{
+			if (size == counters.length)
+			{
+				keys = Arrays.copyOf(keys, 2 * keys.length);
+				counters = Arrays.copyOf(counters, keys.length);
+			}
+			keys[size] = key;
+			slot = size++;
+			slots.put(key, slot);
+		}
+
+		return slot;
+	}
+
+	/**
+	 * It increases by a unit the counter of a slot.
+	 *
+	 * @param slot the slot.
+	 */
+	public void addCounter(int slot)
+	{
+		counters[slot]++;
+	}
+
+	/**
+	 * It returns the counter of a slot.
+	 *
+	 * @param slot the slot.
+	 * @return the counter.
+	 */
+	public int getCounter(int slot)
+	{
+		return counters[slot];
+	}
+
+	/**
+	 * It returns the key of the couple of suffixes of a slot.
+	 *
+	 * @param slot the slot.
+	 * @return the key (ArcTable.key).
+	 */
+	public long getKey(int slot)
+	{
+		return keys[slot];
+	}
+
+	/**
+	 * It returns the number of slots.
+	 *
+	 * @return size
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * It writes the key and the counter of each slot.
+	 *
+	 * @param out output of a checkpoint.
+	 * @throws IOException
+	 */
+	public void write(Checkpoint.Output out) throws IOException
+	{
+		out.writeInt(size);
+		out.writeLongs(keys, 0, size);
+		out.writeInts(counters, 0, size);
+	}
+
+	/**
+	 * It reads the slots written by write, each couple of suffixes gets again the same slot.
+	 *
+	 * @param in input of a checkpoint.
+	 * @return the L2Table.
+	 * @throws IOException
+	 */
+	public static L2Table read(Checkpoint.Input in) throws IOException
+	{
+		int size = in.readInt();
+		L2Table hM_l2 = new L2Table(size);
+		if (size == 0)
+		{
+			return hM_l2;
+		}
+
+		hM_l2.keys = in.readLongs(size);
+		hM_l2.counters = in.readInts(size);
+		hM_l2.size = size;
+
+		for (int slot = 0; slot < size; slot++)
+		{
+			hM_l2.slots.put(hM_l2.keys[slot], slot);
+		}
+
+		return hM_l2;
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * This class compares two lookup tables of the same collection, typically the exact one and the one
+ * of an approximate run (-Dsns.approx.error):
+ *
+ * java LookupTableComparison exact_table approximate_table [report]   (default report: approximation_report.txt)
+ *
+ * The index terms with the same stem are a conflation class, and an index term missing from a
+ * table is a class alone. The report gives the number of index terms with a different stem and the
+ * precision and the recall of the couples of index terms conflated by the second table with respect
+ * to the ones conflated by the first table, followed by the index terms with a different stem, one
+ * per line with the stem of the first table and the one of the second table separated by a tab.
+ */
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+public class LookupTableComparison
+{
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 2)
+		{
+			System.out.println("usage: LookupTableComparison <exact_table> <approximate_table> [report]");
+			return;
+		}
+
+		System.out.println(compare(args[0], args[1], args.length > 2 ? args[2] : "approximation_report.txt"));
+	}
+
+	/**
+	 * It compares two lookup tables and it writes the report.
+	 *
+	 * @param exact name of the reference lookup table.
+	 * @param approximate name of the lookup table being compared.
+	 * @param report name of the report.
+	 * @return the summary of the report.
+	 * @throws IOException
+	 */
+	public static String compare(String exact, String approximate, String report) throws IOException
+	{
+		Map<String, String> exact_stems = readStems(exact);
+		Map<String, String> approximate_stems = readStems(approximate);
+
+		TreeSet<String> terms = new TreeSet<String>(exact_stems.keySet());
+		terms.addAll(approximate_stems.keySet());
+
+		//Size of the classes of each table and of their intersections.
+		Map<String, Integer> exact_sizes = new HashMap<String, Integer>();
+		Map<String, Integer> approximate_sizes = new HashMap<String, Integer>();
+		Map<String, Integer> shared_sizes = new HashMap<String, Integer>();
+
+		int changed = 0;
+
+		try (PrintWriter writer = new PrintWriter(report, "UTF-8"))
+		{
+			StringBuilder differences = new StringBuilder();
+
+			for (String term : terms)
+			{
+				String exact_stem = exact_stems.get(term);
+				String approximate_stem = approximate_stems.get(term);
+
+				if (exact_stem != null)
+				{
+					increment(exact_sizes, exact_stem);
+				}
+				if (approximate_stem != null)
+				{
+					increment(approximate_sizes, approximate_stem);
+				}
+				if (exact_stem != null && approximate_stem != null)
+				{
+					increment(shared_sizes, exact_stem + "\t" + approximate_stem);
+				}
+
+				if (exact_stem == null || !exact_stem.equals(approximate_stem))
+				{
+					differences.append(term + "\t" + (exact_stem == null ? "" : exact_stem) + "\t" + (approximate_stem == null ? "" : approximate_stem) + "\n");
+					changed++;
+				}
+			}
+
+			long exact_pairs = pairs(exact_sizes);
+			long approximate_pairs = pairs(approximate_sizes);
+			long shared_pairs = pairs(shared_sizes);
+
+			double precision = approximate_pairs == 0 ? 1 : shared_pairs / (double) approximate_pairs;
+			double recall = exact_pairs == 0 ? 1 : shared_pairs / (double) exact_pairs;
+
+			String summary = "Index terms " + terms.size() + ", with a different stem " + changed
+					+ ", conflated couples " + exact_pairs + " / " + approximate_pairs
+					+ ", precision " + String.format("%.4f", precision) + ", recall " + String.format("%.4f", recall);
+
+			writer.print("Reference table\t = \t" + exact + "\n");
+			writer.print("Compared table\t = \t" + approximate + "\n");
+			writer.print("Index terms\t = \t" + terms.size() + "\n");
+			writer.print("Index terms with a different stem\t = \t" + changed + "\n");
+			writer.print("Conflated couples\t = \t" + exact_pairs + " (reference), " + approximate_pairs + " (compared), " + shared_pairs + " (both)\n");
+			writer.print("Precision\t = \t" + String.format("%.4f", precision) + "\n");
+			writer.print("Recall\t = \t" + String.format("%.4f", recall) + "\n");
+			writer.print("\n");
+			writer.print(differences);
+
+			return summary;
+		}
+	}
+
+	/**
+	 * It reads the stem of each index term of a lookup table.
+	 */
+	private static Map<String, String> readStems(String file_name) throws IOException
+	{
+		Map<String, String> stems = new HashMap<String, String>();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file_name), StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				int tab = line.indexOf('\t');
+				if (tab >= 0)
+				{
+					stems.put(line.substring(0, tab), line.substring(tab + 1));
+				}
+			}
+		}
+
+		return stems;
+	}
+
+	private static void increment(Map<String, Integer> sizes, String key)
+	{
+		Integer size = sizes.get(key);
+		sizes.put(key, size == null ? 1 : size + 1);
+	}
+
+	/**
+	 * It returns the number of couples of index terms that belong to the same class.
+	 */
+	private static long pairs(Map<String, Integer> sizes)
+	{
+		long pairs = 0;
+		for (int size : sizes.values())
+		{
+			pairs += (long) size * (size - 1) / 2;
+		}
+		return pairs;
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * An element of this class receives the couples of index terms with a (partial) co-occurrence
+ * greater than 0 and it keeps them in a buffer of bounded size. When the buffer is full, the
+ * couples are sorted by key with a radix sort and written in a ShardRun file, a run, so the
+ * couples of a pass over the collection can be many more than the ones that fit in memory. The
+ * runs are combined afterwards by the k-way merge of SnsTool, which sums the partial
+ * co-occurrences of the same couple.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+public class PairSpill implements ParallelCooccurrence.PairVisitor
+{
+	//Size in bytes of a couple in the buffer.
+	static final int RECORD_BYTES = 16;
+
+	//Keys and co-occurrences of the couples of the buffer.
+	private long[] keys;
+	private long[] cooccurrences;
+	private int size;
+
+	//Directory of the runs.
+	private File directory;
+
+	//Header and name of the runs of the current pass.
+	private ShardRun header;
+
+	//Part of the next run of the pass (ShardRun.part).
+	private int part;
+	private String name;
+
+	//Runs written so far.
+	private List<File> files = new ArrayList<File>();
+
+	//Error of a run written by visit, it is thrown by flush.
+	private IOException failure;
+
+	/**
+	 * @param directory directory of the runs, it is created if it doesn't exist.
+	 * @param capacity number of couples of the buffer.
+	 * @throws IOException
+	 */
+	public PairSpill(File directory, int capacity) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("PairSpill: can't create the directory " + directory);
+		}
+
+		this.directory = directory;
+		keys = new long[Math.max(1, capacity)];
+		cooccurrences = new long[keys.length];
+	}
+
+	/**
+	 * It starts a pass: the following runs get its header.
+	 *
+	 * @param header header of the runs of the pass.
+	 * @param name name of the pass, used for the names of the files.
+	 */
+	public void start(ShardRun header, String name)
+	{
+		this.header = header;
+		this.name = name;
+		part = 0;
+	}
+
+	public void visit(int key1, int key2, int cooccurrence)
+	{
+		keys[size] = ArcTable.key(key1, key2);
+		cooccurrences[size] = cooccurrence;
+
+		if (++size == keys.length)
+		{
+			try
+			{
+				spill();
+			}
+			catch (IOException e)
+			{
+				failure = e;
+				size = 0;
+			}
+		}
+	}
+
+	/**
+	 * It writes the couples left in the buffer. It is invoked at the end of each pass.
+	 *
+	 * @throws IOException if a run can't be written.
+	 */
+	public void flush() throws IOException
+	{
+		if (failure != null)
+		{
+			throw failure;
+		}
+
+		if (size > 0)
+		{
+			spill();
+		}
+	}
+
+	private void spill() throws IOException
+	{
+		LongArrays.radixSort(keys, cooccurrences, 0, size);
+
+		File file = new File(directory, name + "_run_" + files.size() + ".bin");
+		header.part = part++;
+		ShardRun.write(file, header, keys, cooccurrences, size);
+		files.add(file);
+		size = 0;
+	}
+
+	/**
+	 * It returns the runs written so far.
+	 *
+	 * @return files
+	 */
+	public List<File> getFiles()
+	{
+		return files;
+	}
+
+	/**
+	 * It deletes the runs.
+	 *
+	 * @throws IOException
+	 */
+	public void delete() throws IOException
+	{
+		for (File file : files)
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+		files.clear();
+	}
+}
@@ -0,0 +1,236 @@
+/**
+ * An element of this class evaluates the co-occurrence measure of the couples of index terms of
+ * a PrefixBuckets object on several threads. The couples of each bucket are split in tiles of at
+ * most TILE_PAIRS couples, so that a bucket with a great number of index terms is shared between
+ * all the threads of a ForkJoinPool. The tiles are evaluated in batches and the couples with a
+ * co-occurrence greater than 0 are given back to a PairVisitor in the same order in which the
+ * sequential evaluation visits them, so the result doesn't depend on the number of threads.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+public class ParallelCooccurrence
+{
+	//Maximum number of couples of index terms evaluated by a single tile.
+	static final int TILE_PAIRS = 1 << 15;
+
+	//Number of couples of index terms evaluated before the results are given back.
+	static final int BATCH_PAIRS = 1 << 22;
+
+	//Pool of threads that evaluates the tiles.
+	private ForkJoinPool pool;
+
+	/**
+	 * It is used to receive the couples of index terms with a co-occurrence greater than 0.
+	 */
+	public interface PairVisitor
+	{
+		/**
+		 * @param key1 key of the first index term.
+		 * @param key2 key of the latter index term.
+		 * @param cooccurrence co-occurrence of the two index terms.
+		 */
+		void visit(int key1, int key2, int cooccurrence);
+	}
+
+	/**
+	 * A tile is a range of positions of a bucket. It contains the couples made by an index term
+	 * in the range and an index term that precedes it in the same bucket.
+	 */
+	private static class Tile
+	{
+		int bucket_start;
+		int from;
+		int to;
+
+		//Couples with a co-occurrence greater than 0: key1, key2 and co-occurrence.
+		IntArrayList results;
+
+		Tile(int bucket_start, int from, int to)
+		{
+			this.bucket_start = bucket_start;
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	/**
+	 * It creates the ForkJoinPool used to evaluate the tiles.
+	 *
+	 * @param parallelism number of threads.
+	 */
+	public ParallelCooccurrence(int parallelism)
+	{
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * It evaluates the co-occurrence measure of every couple of index terms that belong to the
+	 * same bucket. For each couple with a co-occurrence greater than 0 the visitor is invoked
+	 * on the calling thread.
+	 *
+	 * @param store PostingLists that stores the posting lists.
+	 * @param buckets buckets of index terms.
+	 * @param visitor object that receives the couples.
+	 */
+	public void evaluate(PostingLists store, PrefixBuckets buckets, PairVisitor visitor)
+	{
+		List<Tile> tiles = createTiles(buckets);
+
+		long done_pairs = 0;
+		long status_pairs = Math.max(1, buckets.getCandidatePairs() / 25);
+		long next_status = 0;
+
+		int first = 0;
+		while (first < tiles.size())
+		{
+			//The batch ends when it contains BATCH_PAIRS couples.
+			int last = first;
+			long batch_pairs = 0;
+			while (last < tiles.size() && batch_pairs < BATCH_PAIRS)
+			{
+				batch_pairs += pairs(tiles.get(last));
+				last++;
+			}
+
+			pool.invoke(new TileTask(store, buckets, tiles, first, last));
+
+			for (int i = first; i < last; i++)
+			{
+				IntArrayList results = tiles.get(i).results;
+				for (int j = 0; j < results.size(); j += 3)
+				{
+					visitor.visit(results.getInt(j), results.getInt(j + 1), results.getInt(j + 2));
+				}
+				tiles.set(i, null);
+			}
+
+			done_pairs += batch_pairs;
+			if (done_pairs >= next_status)
+			{
+				//approximate status print
+				System.out.println("Cooccurence calculation: " + (int)((done_pairs / (double) buckets.getCandidatePairs()) * 100) + "%");
+				next_status = done_pairs + status_pairs;
+			}
+
+			first = last;
+		}
+	}
+
+	/**
+	 * It stops the threads of the pool.
+	 */
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	 * It splits each bucket in tiles of at most TILE_PAIRS couples. A tile contains at least one
+	 * position, so a position with more than TILE_PAIRS preceding index terms forms a tile alone.
+	 *
+	 * @param buckets buckets of index terms.
+	 * @return tiles in the order in which the couples are visited.
+	 */
+	private List<Tile> createTiles(PrefixBuckets buckets)
+	{
+		List<Tile> tiles = new ArrayList<Tile>();
+
+		for (int bucket = 0; bucket < buckets.size(); bucket++)
+		{
+			int start = buckets.start(bucket);
+			int from = start + 1;
+			long tile_pairs = 0;
+
+			for (int position = start + 1; position < buckets.end(bucket); position++)
+			{
+				tile_pairs += position - start;
+				if (tile_pairs >= TILE_PAIRS)
+				{
+					tiles.add(new Tile(start, from, position + 1));
+					from = position + 1;
+					tile_pairs = 0;
+				}
+			}
+
+			if (from < buckets.end(bucket))
+			{
+				tiles.add(new Tile(start, from, buckets.end(bucket)));
+			}
+		}
+
+		return tiles;
+	}
+
+	/**
+	 * It returns the number of couples of a tile.
+	 */
+	private static long pairs(Tile tile)
+	{
+		long from = tile.from - tile.bucket_start;
+		long to = tile.to - tile.bucket_start;
+		return (to * (to - 1) - from * (from - 1)) / 2;
+	}
+
+	/**
+	 * Task that evaluates a range of tiles. The range is split in two halves until it contains
+	 * a single tile, so that idle threads can steal the tiles of the busy ones.
+	 */
+	private static class TileTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private PostingLists store;
+		private PrefixBuckets buckets;
+		private List<Tile> tiles;
+		private int first;
+		private int last;
+
+		TileTask(PostingLists store, PrefixBuckets buckets, List<Tile> tiles, int first, int last)
+		{
+			this.store = store;
+			this.buckets = buckets;
+			this.tiles = tiles;
+			this.first = first;
+			this.last = last;
+		}
+
+		protected void compute()
+		{
+			if (last - first > 1)
+			{
+				int middle = (first + last) >>> 1;
+				invokeAll(new TileTask(store, buckets, tiles, first, middle), new TileTask(store, buckets, tiles, middle, last));
+				return;
+			}
+
+			Tile tile = tiles.get(first);
+			IntArrayList results = new IntArrayList();
+
+			for (int indexCols = tile.from; indexCols < tile.to; indexCols++)
+			{
+				int key1 = buckets.key(indexCols);
+
+				for (int indexRows = tile.bucket_start; indexRows < indexCols; indexRows++)
+				{
+					int key2 = buckets.key(indexRows);
+					int co = SnsTool.cooccurrence2terms(store, key1, key2);
+
+					if (co != 0)
+					{
+						results.add(key1);
+						results.add(key2);
+						results.add(co);
+					}
+				}
+			}
+
+			tile.results = results;
+		}
+	}
+}
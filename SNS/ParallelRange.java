@@ -0,0 +1,99 @@
+/**
+ * This class runs a loop over a range of ints on the threads of a ForkJoinPool. The range is split
+ * in two halves until it contains at most GRAIN (or a given grain) positions, so that idle
+ * threads can steal the work of the busy ones. Loops can be nested: a loop started inside the body
+ * of another loop of the same pool is split among the same threads.
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelRange
+{
+	//Maximum number of positions evaluated by a single task.
+	static final int GRAIN = 1 << 12;
+
+	/**
+	 * The body of the loop.
+	 */
+	public interface Body
+	{
+		/**
+		 * @param from first position.
+		 * @param to end of the positions (exclusive).
+		 */
+		void run(int from, int to);
+	}
+
+	/**
+	 * It runs the body over the positions in [0, size) and it returns when all of them have
+	 * been evaluated.
+	 *
+	 * @param pool pool of threads.
+	 * @param size number of positions.
+	 * @param body the body of the loop.
+	 */
+	public static void run(ForkJoinPool pool, int size, Body body)
+	{
+		run(pool, size, GRAIN, body);
+	}
+
+	/**
+	 * It runs the body over the positions in [0, size), with tasks of at most grain positions.
+	 *
+	 * @param pool pool of threads.
+	 * @param size number of positions.
+	 * @param grain maximum number of positions evaluated by a single task.
+	 * @param body the body of the loop.
+	 */
+	public static void run(ForkJoinPool pool, int size, int grain, Body body)
+	{
+		if (size <= grain || pool.getParallelism() == 1)
+		{
+			body.run(0, size);
+			return;
+		}
+
+		//A loop started by a task of the same pool is run by the current worker, which helps
+		//the other threads while it waits.
+		if (ForkJoinTask.getPool() == pool)
+		{
+			new RangeTask(body, 0, size, grain).invoke();
+		}
+		else
+		{
+			pool.invoke(new RangeTask(body, 0, size, grain));
+		}
+	}
+
+	private static class RangeTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private Body body;
+		private int from;
+		private int to;
+		private int grain;
+
+		RangeTask(Body body, int from, int to, int grain)
+		{
+			this.body = body;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+		}
+
+		protected void compute()
+		{
+			if (to - from > grain)
+			{
+				int middle = (from + to) >>> 1;
+				invokeAll(new RangeTask(body, from, middle, grain), new RangeTask(body, middle, to, grain));
+				return;
+			}
+
+			body.run(from, to);
+		}
+	}
+}
@@ -0,0 +1,386 @@
+/**
+ * An element of this class stores the index terms and their posting lists in a columnar way.
+ * The ids of the documents of all the posting lists are stored one after the other in a single
+ * array of int, and the same is done for the term frequencies. For each index term only the
+ * offset of its first posting is kept, so a posting list is a range of positions of the two
+ * arrays. The key of an index term is the order in which it has been added to the arena.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class PostingArena implements PostingStore
+{
+	//Index terms, the position of an index term is its key.
+	private TermArena terms;
+
+	//Position of the first posting of each index term. The entry that follows the last index
+	//term is the end of its posting list.
+	private int[] offsets;
+
+	//Ids of the documents of all the posting lists.
+	private int[] docs;
+
+	//Term frequencies of all the posting lists.
+	private int[] tfs;
+
+	//Number of index terms.
+	private int size;
+
+	//Number of postings.
+	private int postings;
+
+	/**
+	 * It allocates the arrays of the arena.
+	 *
+	 * @param expected_terms expected number of index terms.
+	 * @param expected_postings expected number of postings.
+	 */
+	public PostingArena(int expected_terms, int expected_postings)
+	{
+		terms = new TermArena(expected_terms);
+		offsets = new int[Math.max(1, expected_terms) + 1];
+		docs = new int[Math.max(1, expected_postings)];
+		tfs = new int[docs.length];
+	}
+
+	/**
+	 * It creates an arena with the given index terms and empty posting lists.
+	 *
+	 * @param terms the index terms.
+	 */
+	public PostingArena(TermArena terms)
+	{
+		this.terms = terms;
+		size = terms.size();
+		offsets = new int[size + 1];
+		docs = new int[1];
+		tfs = new int[1];
+	}
+
+	/**
+	 * It adds an index term to the arena. The postings added from now on belong to its
+	 * posting list.
+	 *
+	 * @param term the index term.
+	 * @return the key of the index term.
+	 */
+	public int addTerm(String term)
+	{
+		terms.add(term);
+		return startPostingList();
+	}
+
+	/**
+	 * It starts the empty posting list of the index term added last to the arena of the terms.
+	 */
+	private int startPostingList()
+	{
+		if (size + 1 == offsets.length)
+		{
+			offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+		}
+
+		offsets[size] = postings;
+		offsets[size + 1] = postings;
+
+		return size++;
+	}
+
+	/**
+	 * It adds an index term of another arena with an empty posting list.
+	 *
+	 * @param other arena of the index term.
+	 * @param key key of the index term in the other arena.
+	 * @return the key of the index term.
+	 */
+	public int addTerm(TermArena other, int key)
+	{
+		terms.add(other, key);
+		return startPostingList();
+	}
+
+	/**
+	 * It adds a posting to the posting list of the last index term. The postings of an index
+	 * term have to be added in ascending order of document id.
+	 *
+	 * @param doc id of the document.
+	 * @param tf term frequency of the index term in the document.
+	 */
+	public void addPosting(int doc, int tf)
+	{
+		if (postings == docs.length)
+		{
+			int length = (int) Math.min(Integer.MAX_VALUE - 8, 2L * docs.length);
+			if (length == docs.length)
+			{
+				throw new IllegalStateException("PostingArena: too many postings");
+			}
+			docs = Arrays.copyOf(docs, length);
+			tfs = Arrays.copyOf(tfs, length);
+		}
+
+		docs[postings] = doc;
+		tfs[postings] = tf;
+		postings++;
+		offsets[size] = postings;
+	}
+
+	/**
+	 * It adds a range of postings to the posting list of the last index term.
+	 *
+	 * @param doc_ids ids of the documents.
+	 * @param frequencies term frequencies.
+	 * @param from first position of the range.
+	 * @param to end of the range (exclusive).
+	 */
+	public void addPostings(int[] doc_ids, int[] frequencies, int from, int to)
+	{
+		int length = to - from;
+		if (postings + length > docs.length)
+		{
+			long capacity = Math.max(postings + (long) length, 2L * docs.length);
+			if (capacity > Integer.MAX_VALUE - 8)
+			{
+				throw new IllegalStateException("PostingArena: too many postings");
+			}
+			docs = Arrays.copyOf(docs, (int) capacity);
+			tfs = Arrays.copyOf(tfs, (int) capacity);
+		}
+
+		System.arraycopy(doc_ids, from, docs, postings, length);
+		System.arraycopy(frequencies, from, tfs, postings, length);
+		postings += length;
+		offsets[size] = postings;
+	}
+
+	/**
+	 * It adds an index term and its posting list to the arena.
+	 *
+	 * @param term the index term.
+	 * @param doc_ids ids of the documents.
+	 * @param frequencies term frequencies.
+	 * @param from first position of the posting list.
+	 * @param to end of the posting list (exclusive).
+	 * @return the key of the index term.
+	 */
+	public int addTerm(String term, int[] doc_ids, int[] frequencies, int from, int to)
+	{
+		int key = addTerm(term);
+		addPostings(doc_ids, frequencies, from, to);
+		return key;
+	}
+
+	/**
+	 * It adds all the index terms of another PostingArena.
+	 *
+	 * @param other a PostingArena.
+	 */
+	public void append(PostingStore other)
+	{
+		PostingArena arena = (PostingArena) other;
+
+		for (int key = 0; key < arena.size; key++)
+		{
+			terms.add(arena.terms, key);
+			startPostingList();
+			addPostings(arena.docs, arena.tfs, arena.offsets[key], arena.offsets[key + 1]);
+		}
+	}
+
+	/**
+	 * It writes the index terms, the offsets and the arrays of the postings.
+	 *
+	 * @param out output of a checkpoint.
+	 * @throws IOException
+	 */
+	public void write(Checkpoint.Output out) throws IOException
+	{
+		terms.write(out);
+
+		out.writeInt(postings);
+		out.writeInts(offsets, 0, size + 1);
+		out.writeInts(docs, 0, postings);
+		out.writeInts(tfs, 0, postings);
+	}
+
+	/**
+	 * It reads a PostingArena written by write. The arrays of the postings are copied from the
+	 * file with bulk operations.
+	 *
+	 * @param in input of a checkpoint.
+	 * @return the PostingArena.
+	 * @throws IOException
+	 */
+	public static PostingArena read(Checkpoint.Input in) throws IOException
+	{
+		PostingArena arena = new PostingArena(TermArena.read(in));
+		int size = arena.size;
+
+		arena.postings = in.readInt();
+		arena.offsets = in.readInts(size + 1);
+		arena.docs = in.readInts(arena.postings);
+		arena.tfs = in.readInts(arena.postings);
+
+		return arena;
+	}
+
+	/**
+	 * It releases the unused positions of the arrays. It is invoked when all the index terms
+	 * have been added.
+	 */
+	public void trim()
+	{
+		terms.trim();
+		offsets = Arrays.copyOf(offsets, size + 1);
+		docs = Arrays.copyOf(docs, postings);
+		tfs = Arrays.copyOf(tfs, postings);
+	}
+
+	/**
+	 * It returns the number of index terms.
+	 *
+	 * @return size
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * It returns the number of postings.
+	 *
+	 * @return postings
+	 */
+	public long getPostings()
+	{
+		return postings;
+	}
+
+	/**
+	 * It returns the number of bytes used by the ids of the documents and the term frequencies.
+	 *
+	 * @return bytes
+	 */
+	public long getBytes()
+	{
+		return 8L * postings;
+	}
+
+	/**
+	 * It returns the co-occurrence measure of two index terms. The two posting lists are ranges
+	 * of the same arrays and they are intersected by the kernels of Intersection.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return co-occurrence of the two index terms.
+	 */
+	public int cooccurrence(int key1, int key2)
+	{
+		return Intersection.cooccurrence(docs, tfs, offsets[key1], offsets[key1 + 1], docs, tfs, offsets[key2], offsets[key2 + 1]);
+	}
+
+	/**
+	 * It returns an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return the index term.
+	 */
+	public String getTerm(int key)
+	{
+		return terms.getTerm(key);
+	}
+
+	/**
+	 * It returns the index terms. The arena must not be modified.
+	 *
+	 * @return index terms, the key of an index term is its key in the arena.
+	 */
+	public TermArena getTerms()
+	{
+		return terms;
+	}
+
+	/**
+	 * It returns the number of postings of an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return length of the posting list.
+	 */
+	public int length(int key)
+	{
+		return offsets[key + 1] - offsets[key];
+	}
+
+	/**
+	 * It copies the posting list of an index term in two arrays.
+	 *
+	 * @param key key of the index term.
+	 * @param doc_ids ids of the documents.
+	 * @param frequencies term frequencies.
+	 */
+	public void postings(int key, int[] doc_ids, int[] frequencies)
+	{
+		System.arraycopy(docs, offsets[key], doc_ids, 0, offsets[key + 1] - offsets[key]);
+		System.arraycopy(tfs, offsets[key], frequencies, 0, offsets[key + 1] - offsets[key]);
+	}
+
+	/**
+	 * It returns the position of the first posting of an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return start of the posting list.
+	 */
+	public int start(int key)
+	{
+		return offsets[key];
+	}
+
+	/**
+	 * It returns the position that follows the last posting of an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return end of the posting list (exclusive).
+	 */
+	public int end(int key)
+	{
+		return offsets[key + 1];
+	}
+
+	/**
+	 * It returns the array of the ids of the documents. The array must not be modified.
+	 *
+	 * @return docs
+	 */
+	public int[] getDocs()
+	{
+		return docs;
+	}
+
+	/**
+	 * It returns the array of the term frequencies. The array must not be modified.
+	 *
+	 * @return tfs
+	 */
+	public int[] getTfs()
+	{
+		return tfs;
+	}
+
+	/**
+	 * It returns the description of the posting list of an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return description of the posting list.
+	 */
+	public String toString(int key)
+	{
+		StringBuilder temp = new StringBuilder(terms.getTerm(key) + ": ");
+		for (int i = offsets[key]; i < offsets[key + 1]; i++)
+		{
+			temp.append(" (" + docs[i] + ", " + tfs[i] + ")");
+		}
+
+		return temp.toString();
+	}
+}
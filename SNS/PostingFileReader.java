@@ -0,0 +1,861 @@
+/**
+ * An element of this class reads the lexicon.txt and inverted.txt files and stores their content
+ * in a PostingStore (a PostingArena or, if the posting lists are compressed, a CompressedPostings). The files are memory-mapped and parsed byte by byte: no String is created
+ * for the numbers of the inverted file, and a String is created only for the index terms that
+ * are kept. The i-th line of the lexicon file (after the two header lines) contains the index
+ * term whose posting list is in the i-th line of the inverted file.
+ *
+ * The lexicon file is read first: this counting pass selects the index terms to keep, so the
+ * arena is allocated with the exact number of index terms. Then the inverted file is split in
+ * chunks at line boundaries, the lines of each chunk are counted and the chunks are parsed in
+ * parallel. Finally the postings of the chunks are copied in the arena, in the order of the
+ * lines, with a store allocated with the exact number of postings. The posting lists of a chunk
+ * are kept in a store of the same kind, so in the compressed mode they are compressed by the
+ * threads that parse the chunks and they are never kept raw all together.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+public class PostingFileReader implements PostingSource
+{
+	//Maximum length in bytes of a memory-mapped chunk.
+	static final long MAX_CHUNK = 1L << 30;
+
+	//Number of header lines of the lexicon and inverted files.
+	static final int HEADER_LINES = 2;
+
+	//Length in bytes of the windows of the inverted file mapped by readBatches.
+	static final long BATCH_WINDOW = 1L << 26;
+
+	//Paths of the lexicon.txt and inverted.txt files.
+	private String lexicon;
+	private String inverted;
+
+	//Number of threads used to parse the inverted file.
+	private int parallelism;
+
+	//If true the posting lists are stored in a CompressedPostings.
+	private boolean compressed;
+
+	//Range of the ids of the documents whose postings are kept, the end is exclusive.
+	private int first_document = 0;
+	private int end_document = Integer.MAX_VALUE;
+
+	//Keys of the index terms that are read, null to read all of them.
+	private BitSet selected_terms;
+
+	/**
+	 * An object that receives the batches of index terms of readBatches.
+	 */
+	public interface BatchVisitor
+	{
+		/**
+		 * It receives a batch of index terms with their posting lists, which can be kept by the
+		 * visitor. The reader waits while the visitor is blocked.
+		 *
+		 * @param first_key key of the first index term of the batch, the following ones have
+		 * consecutive keys.
+		 * @param batch index terms of the batch and their posting lists.
+		 * @throws IOException
+		 */
+		void visit(int first_key, PostingStore batch) throws IOException;
+	}
+
+	/**
+	 * The postings of a chunk of the inverted file.
+	 */
+	private static class Chunk
+	{
+		//Position of the chunk in the file.
+		long start;
+		long end;
+
+		//Index of the first line of the chunk in the file.
+		long first_line;
+
+		//Index terms of the chunk and their posting lists.
+		PostingStore store;
+
+		Chunk(long start, long end)
+		{
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * @param lexicon path of the lexicon.txt file.
+	 * @param inverted path of the inverted.txt file.
+	 * @param parallelism number of threads used to parse the inverted file.
+	 */
+	public PostingFileReader(String lexicon, String inverted, int parallelism)
+	{
+		this(lexicon, inverted, parallelism, false);
+	}
+
+	/**
+	 * @param lexicon path of the lexicon.txt file.
+	 * @param inverted path of the inverted.txt file.
+	 * @param parallelism number of threads used to parse the inverted file.
+	 * @param compressed true to store the posting lists in a CompressedPostings.
+	 */
+	public PostingFileReader(String lexicon, String inverted, int parallelism, boolean compressed)
+	{
+		this.lexicon = lexicon;
+		this.inverted = inverted;
+		this.parallelism = Math.max(1, parallelism);
+		this.compressed = compressed;
+	}
+
+	/**
+	 * It keeps only the postings of the documents with an id in [first, end). All the index terms
+	 * are kept, also the ones whose posting list becomes empty, so the keys of the index terms
+	 * don't depend on the range.
+	 *
+	 * @param first first id of the range.
+	 * @param end end of the range (exclusive).
+	 */
+	public void setDocumentRange(int first, int end)
+	{
+		first_document = first;
+		end_document = end;
+	}
+
+	/**
+	 * It reads only the index terms with the given keys, the keys of a reader without a
+	 * selection. The index terms that are read get new consecutive keys in the order of the
+	 * lexicon file, and the lines of the other ones are skipped.
+	 *
+	 * @param keys keys of the index terms, null to read all of them.
+	 */
+	public void setTermSelection(BitSet keys)
+	{
+		selected_terms = keys;
+	}
+
+	/**
+	 * It returns the number of postings of each index term that is kept, as its document
+	 * frequency in the lexicon file (its third field). If a line has no document frequency, the
+	 * postings estimated from the size of the inverted file are divided evenly among the index
+	 * terms.
+	 *
+	 * @return the number of postings of each index term, by key.
+	 * @throws IOException
+	 */
+	public int[] estimateLengths() throws IOException
+	{
+		IntArrayList lengths = new IntArrayList();
+		boolean complete = true;
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lexicon), StandardCharsets.UTF_8)))
+		{
+			String line;
+			long number = 0;
+
+			while ((line = reader.readLine()) != null)
+			{
+				if (number++ < HEADER_LINES)
+				{
+					continue;
+				}
+
+				String[] fields = line.split(",");
+				if (PostingSource.isKept(fields[0]))
+				{
+					if (fields.length < 3)
+					{
+						complete = false;
+						lengths.add(0);
+					}
+					else
+					{
+						lengths.add(Integer.parseInt(fields[2].trim()));
+					}
+				}
+			}
+		}
+
+		if (!complete)
+		{
+			//About 8 bytes for each "(doc, tf) " of the inverted file.
+			int length = (int) Math.min(Integer.MAX_VALUE, new File(inverted).length() / 8 / Math.max(1, lengths.size()));
+			for (int key = 0; key < lengths.size(); key++)
+			{
+				lengths.set(key, length);
+			}
+		}
+
+		return lengths.toIntArray();
+	}
+
+	/**
+	 * It returns the number of postings of the index terms that are kept, as the sum of the
+	 * document frequencies of the lexicon file (its third field). If a line has no document
+	 * frequency, the postings are estimated from the size of the inverted file.
+	 *
+	 * @return the number of postings.
+	 * @throws IOException
+	 */
+	public long estimatePostings() throws IOException
+	{
+		long postings = 0;
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(lexicon), StandardCharsets.UTF_8)))
+		{
+			String line;
+			long number = 0;
+
+			while ((line = reader.readLine()) != null)
+			{
+				if (number++ < HEADER_LINES)
+				{
+					continue;
+				}
+
+				String[] fields = line.split(",");
+				if (fields.length < 3)
+				{
+					//About 8 bytes for each "(doc, tf) " of the inverted file.
+					return new File(inverted).length() / 8;
+				}
+				if (PostingSource.isKept(fields[0]))
+				{
+					postings += Long.parseLong(fields[2].trim());
+				}
+			}
+		}
+
+		return postings;
+	}
+
+	/**
+	 * It returns the path of the lexicon file.
+	 *
+	 * @return lexicon
+	 */
+	public String getLexicon()
+	{
+		return lexicon;
+	}
+
+	/**
+	 * It returns the fingerprint of the lexicon and inverted files and of the range of the
+	 * documents and the selection of the index terms, if they are set.
+	 *
+	 * @return the fingerprint.
+	 * @throws IOException
+	 */
+	public String fingerprint() throws IOException
+	{
+		String fingerprint = "lexicon " + PostingSource.fingerprint(new File(lexicon)) + ", inverted " + PostingSource.fingerprint(new File(inverted));
+
+		if (first_document != 0 || end_document != Integer.MAX_VALUE)
+		{
+			fingerprint += ", documents [" + first_document + ", " + end_document + ")";
+		}
+		if (selected_terms != null)
+		{
+			fingerprint += ", terms " + selected_terms.cardinality() + " " + selected_terms.hashCode();
+		}
+
+		return fingerprint;
+	}
+
+	/**
+	 * It returns true if the posting lists are stored in a CompressedPostings.
+	 *
+	 * @return compressed
+	 */
+	public boolean isCompressed()
+	{
+		return compressed;
+	}
+
+	/**
+	 * It returns the greatest id of a document of the inverted file. The file is scanned without
+	 * storing the postings.
+	 *
+	 * @return the greatest id of a document, -1 if there are no postings.
+	 * @throws IOException
+	 */
+	public int maxDocument() throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(inverted, "r");
+		FileChannel channel = file.getChannel();
+		int max = -1;
+
+		try
+		{
+			long line = 0;
+
+			for (Chunk chunk : split(channel, 1))
+			{
+				MappedByteBuffer buffer = map(channel, chunk.start, chunk.end);
+				int position = 0;
+				int limit = buffer.limit();
+
+				while (position < limit)
+				{
+					int end = lineEnd(buffer, position, limit);
+
+					if (line++ >= HEADER_LINES)
+					{
+						//The first token is skipped, then the numbers are documents and
+						//term frequencies in turn.
+						int i = position;
+						while (i < end && isWhitespace(buffer.get(i)))
+						{
+							i++;
+						}
+						while (i < end && !isWhitespace(buffer.get(i)))
+						{
+							i++;
+						}
+
+						boolean is_doc = true;
+						while (i < end)
+						{
+							byte b = buffer.get(i);
+							if (b >= '0' && b <= '9')
+							{
+								int value = 0;
+								while (i < end && (b = buffer.get(i)) >= '0' && b <= '9')
+								{
+									value = 10 * value + (b - '0');
+									i++;
+								}
+								if (is_doc)
+								{
+									max = Math.max(max, value);
+								}
+								is_doc = !is_doc;
+							}
+							else
+							{
+								i++;
+							}
+						}
+					}
+
+					position = end + 1;
+				}
+			}
+		}
+		finally
+		{
+			channel.close();
+			file.close();
+		}
+
+		return max;
+	}
+
+	/**
+	 * It reads the two files and it returns the index terms that are kept with their posting
+	 * lists. An index term is discarded if it is shorter than MIN_TERM_LENGTH or if its first
+	 * character is a digit.
+	 *
+	 * @return PostingStore with the index terms in the order of the lexicon file.
+	 * @throws IOException
+	 */
+	public PostingStore read() throws IOException
+	{
+		final String[] words = readLexicon(lexicon);
+
+		if (selected_terms != null)
+		{
+			//The lines of the index terms that are not selected are skipped.
+			int key = 0;
+			for (int i = 0; i < words.length; i++)
+			{
+				if (words[i] != null && !selected_terms.get(key++))
+				{
+					words[i] = null;
+				}
+			}
+		}
+
+		RandomAccessFile file = new RandomAccessFile(inverted, "r");
+		final FileChannel channel = file.getChannel();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		try
+		{
+			final List<Chunk> chunks = split(channel, 4 * parallelism);
+
+			//Counting pass: the lines of each chunk are counted to know the index of the
+			//first line of every chunk.
+			List<Callable<Long>> counters = new ArrayList<Callable<Long>>();
+			for (final Chunk chunk : chunks)
+			{
+				counters.add(new Callable<Long>()
+				{
+					public Long call() throws IOException
+					{
+						return countLines(map(channel, chunk.start, chunk.end));
+					}
+				});
+			}
+
+			long line = 0;
+			List<Future<Long>> counts = pool.invokeAll(counters);
+			for (int i = 0; i < chunks.size(); i++)
+			{
+				chunks.get(i).first_line = line;
+				line += counts.get(i).get();
+			}
+
+			//Parsing pass.
+			List<Callable<Chunk>> parsers = new ArrayList<Callable<Chunk>>();
+			for (int i = 0; i < chunks.size(); i++)
+			{
+				final Chunk chunk = chunks.get(i);
+				final String status = "Reading: chunk " + (i + 1) + " of " + chunks.size() + " parsed";
+
+				parsers.add(new Callable<Chunk>()
+				{
+					public Chunk call() throws IOException
+					{
+						chunk.store = PostingStore.create(compressed, 1024, 1024);
+						parse(map(channel, chunk.start, chunk.end), chunk, words, first_document, end_document);
+						chunk.store.trim();
+						System.out.println(status);
+						return chunk;
+					}
+				});
+			}
+
+			int terms = 0;
+			long postings = 0;
+			for (Future<Chunk> parsed : pool.invokeAll(parsers))
+			{
+				Chunk chunk = parsed.get();
+				terms += chunk.store.size();
+				postings += chunk.store.getPostings();
+			}
+
+			PostingStore store = PostingStore.create(compressed, terms, postings);
+
+			for (int i = 0; i < chunks.size(); i++)
+			{
+				store.append(chunks.get(i).store);
+
+				//The postings of the chunk are not needed anymore.
+				chunks.set(i, null);
+			}
+
+			store.trim();
+			return store;
+		}
+		catch (IllegalStateException e)
+		{
+			throw new IOException(e.getMessage(), e);
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			throw new IOException("PostingFileReader: " + e, e);
+		}
+		finally
+		{
+			pool.shutdown();
+			channel.close();
+			file.close();
+		}
+	}
+
+	/**
+	 * It verifies if the index terms that are kept are in strictly ascending lexicographic
+	 * order in the lexicon file.
+	 *
+	 * @return true if the lexicon is sorted.
+	 * @throws IOException
+	 */
+	public boolean isSorted() throws IOException
+	{
+		String previous = null;
+
+		for (String word : readLexicon(lexicon))
+		{
+			if (word != null)
+			{
+				if (previous != null && previous.compareTo(word) >= 0)
+				{
+					return false;
+				}
+				previous = word;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * It reads the inverted file sequentially on the calling thread and it gives the index terms
+	 * that are kept, with their posting lists, to a visitor in batches of consecutive lines. A
+	 * batch ends after at least batch_postings postings, and only between two index terms that
+	 * don't share a prefix of length prefix_length: if the lexicon is sorted (isSorted), all the
+	 * index terms with the same prefix belong to the same batch. The keys are the ones of read;
+	 * the selection of the index terms is not used.
+	 *
+	 * @param prefix_length length of the prefix of the index terms that are not split.
+	 * @param batch_postings minimum number of postings of a batch, except the last one.
+	 * @param visitor object that receives the batches.
+	 * @throws IOException
+	 */
+	public void readBatches(int prefix_length, long batch_postings, BatchVisitor visitor) throws IOException
+	{
+		String[] words = readLexicon(lexicon);
+
+		RandomAccessFile file = new RandomAccessFile(inverted, "r");
+		FileChannel channel = file.getChannel();
+
+		try
+		{
+			IntArrayList docs = new IntArrayList();
+			IntArrayList tfs = new IntArrayList();
+
+			PostingStore batch = PostingStore.create(compressed, 1024, 1024);
+			String previous = null;
+			int first_key = 0;
+			int key = 0;
+			long line = 0;
+
+			for (Chunk chunk : split(channel, (int) Math.max(1, (channel.size() + BATCH_WINDOW - 1) / BATCH_WINDOW)))
+			{
+				MappedByteBuffer buffer = map(channel, chunk.start, chunk.end);
+				int position = 0;
+				int limit = buffer.limit();
+
+				while (position < limit)
+				{
+					int end = lineEnd(buffer, position, limit);
+					long index = line++ - HEADER_LINES;
+
+					if (index >= 0 && index < words.length && words[(int) index] != null)
+					{
+						String word = words[(int) index];
+
+						if (previous != null && batch.getPostings() >= batch_postings && !samePrefix(previous, word, prefix_length))
+						{
+							batch.trim();
+							visitor.visit(first_key, batch);
+							batch = PostingStore.create(compressed, 1024, 1024);
+							first_key = key;
+						}
+
+						parseLine(buffer, position, end, docs, tfs, first_document, end_document);
+						batch.addTerm(word, docs.elements(), tfs.elements(), 0, docs.size());
+						previous = word;
+						key++;
+					}
+
+					position = end + 1;
+				}
+			}
+
+			if (batch.size() > 0)
+			{
+				batch.trim();
+				visitor.visit(first_key, batch);
+			}
+		}
+		catch (IllegalStateException e)
+		{
+			throw new IOException(e.getMessage(), e);
+		}
+		finally
+		{
+			channel.close();
+			file.close();
+		}
+	}
+
+	/**
+	 * It verifies if two index terms share a prefix of a given length.
+	 */
+	private static boolean samePrefix(String word1, String word2, int length)
+	{
+		return word1.length() >= length && word2.length() >= length && word1.regionMatches(0, word2, 0, length);
+	}
+
+	/**
+	 * It reads the lexicon file and it returns, for each line after the header, the index term
+	 * if it is kept or null if it is discarded.
+	 *
+	 * @param lexicon path of the lexicon.txt file.
+	 * @return index terms in the order of the lexicon file.
+	 * @throws IOException
+	 */
+	String[] readLexicon(String lexicon) throws IOException
+	{
+		ObjectArrayList<String> words = new ObjectArrayList<String>();
+		byte[] bytes = new byte[256];
+
+		RandomAccessFile file = new RandomAccessFile(lexicon, "r");
+		FileChannel channel = file.getChannel();
+
+		try
+		{
+			long line = 0;
+
+			for (Chunk chunk : split(channel, 1))
+			{
+				MappedByteBuffer buffer = map(channel, chunk.start, chunk.end);
+				int position = 0;
+				int limit = buffer.limit();
+
+				while (position < limit)
+				{
+					int end = lineEnd(buffer, position, limit);
+
+					if (line++ >= HEADER_LINES)
+					{
+						//The index term is the first field of the line, leading
+						//separators are skipped.
+						int start = position;
+						int stop = trimCarriageReturn(buffer, position, end);
+						while (start < stop && buffer.get(start) == ',')
+						{
+							start++;
+						}
+						int word_end = start;
+						while (word_end < stop && buffer.get(word_end) != ',')
+						{
+							word_end++;
+						}
+
+						if (bytes.length < word_end - start)
+						{
+							bytes = new byte[2 * (word_end - start)];
+						}
+						for (int i = start; i < word_end; i++)
+						{
+							bytes[i - start] = buffer.get(i);
+						}
+
+						String word = new String(bytes, 0, word_end - start, StandardCharsets.UTF_8);
+
+						words.add(PostingSource.isKept(word) ? word : null);
+					}
+
+					position = end + 1;
+				}
+			}
+		}
+		finally
+		{
+			channel.close();
+			file.close();
+		}
+
+		return words.toArray(new String[words.size()]);
+	}
+
+	/**
+	 * It parses the lines of a chunk of the inverted file. The first token of a line is the
+	 * index of the index term and it is skipped, then every couple of numbers is a document id
+	 * and a term frequency. Any sequence of characters that are not digits is a separator. Only
+	 * the postings of the documents in [first_document, end_document) are kept.
+	 */
+	private static void parse(ByteBuffer buffer, Chunk chunk, String[] words, int first_document, int end_document)
+	{
+		//Posting list of the current line.
+		IntArrayList docs = new IntArrayList();
+		IntArrayList tfs = new IntArrayList();
+
+		long line = chunk.first_line;
+		int position = 0;
+		int limit = buffer.limit();
+
+		while (position < limit)
+		{
+			int end = lineEnd(buffer, position, limit);
+			long word = line++ - HEADER_LINES;
+
+			if (word >= 0 && word < words.length && words[(int) word] != null)
+			{
+				parseLine(buffer, position, end, docs, tfs, first_document, end_document);
+				chunk.store.addTerm(words[(int) word], docs.elements(), tfs.elements(), 0, docs.size());
+			}
+
+			position = end + 1;
+		}
+	}
+
+	/**
+	 * It parses the posting list of a line of the inverted file in docs and tfs, keeping only
+	 * the postings of the documents in [first_document, end_document).
+	 */
+	private static void parseLine(ByteBuffer buffer, int position, int end, IntArrayList docs, IntArrayList tfs, int first_document, int end_document)
+	{
+		int i = position;
+
+		//The first token ends at the first whitespace.
+		while (i < end && isWhitespace(buffer.get(i)))
+		{
+			i++;
+		}
+		while (i < end && !isWhitespace(buffer.get(i)))
+		{
+			i++;
+		}
+
+		boolean is_doc = true;
+		int doc = 0;
+		docs.clear();
+		tfs.clear();
+
+		while (i < end)
+		{
+			byte b = buffer.get(i);
+			if (b >= '0' && b <= '9')
+			{
+				int value = b - '0';
+				i++;
+				while (i < end && (b = buffer.get(i)) >= '0' && b <= '9')
+				{
+					value = 10 * value + (b - '0');
+					i++;
+				}
+
+				if (is_doc)
+				{
+					doc = value;
+				}
+				else if (doc >= first_document && doc < end_document)
+				{
+					docs.add(doc);
+					tfs.add(value);
+				}
+				is_doc = !is_doc;
+			}
+			else
+			{
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * It splits a file in at least n chunks (and more if a chunk would be longer than
+	 * MAX_CHUNK). Each chunk ends after a newline character or at the end of the file.
+	 */
+	private static List<Chunk> split(FileChannel channel, int n) throws IOException
+	{
+		long size = channel.size();
+		long length = Math.max(1, Math.min(MAX_CHUNK, (size + n - 1) / n));
+
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		ByteBuffer window = ByteBuffer.allocate(4096);
+		long start = 0;
+
+		while (start < size)
+		{
+			long end = Math.min(size, start + length);
+
+			//The chunk is extended up to the end of its last line.
+			boolean found = end == size;
+			while (!found)
+			{
+				window.clear();
+				int read = channel.read(window, end);
+				if (read <= 0)
+				{
+					end = size;
+					break;
+				}
+				for (int i = 0; i < read; i++)
+				{
+					if (window.get(i) == '\n')
+					{
+						end += i + 1;
+						found = true;
+						break;
+					}
+				}
+				if (!found)
+				{
+					end += read;
+				}
+			}
+
+			if (end - start > Integer.MAX_VALUE)
+			{
+				throw new IOException("PostingFileReader: line too long");
+			}
+
+			chunks.add(new Chunk(start, end));
+			start = end;
+		}
+
+		return chunks;
+	}
+
+	private static MappedByteBuffer map(FileChannel channel, long start, long end) throws IOException
+	{
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+	}
+
+	private static long countLines(ByteBuffer buffer)
+	{
+		long lines = 0;
+		int limit = buffer.limit();
+
+		for (int i = 0; i < limit; i++)
+		{
+			if (buffer.get(i) == '\n')
+			{
+				lines++;
+			}
+		}
+
+		//The last line can be without the newline character.
+		if (limit > 0 && buffer.get(limit - 1) != '\n')
+		{
+			lines++;
+		}
+
+		return lines;
+	}
+
+	/**
+	 * It returns the position of the newline character that ends the line, or limit.
+	 */
+	private static int lineEnd(ByteBuffer buffer, int position, int limit)
+	{
+		while (position < limit && buffer.get(position) != '\n')
+		{
+			position++;
+		}
+		return position;
+	}
+
+	private static int trimCarriageReturn(ByteBuffer buffer, int start, int end)
+	{
+		return end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+	}
+
+	private static boolean isWhitespace(byte b)
+	{
+		return b == ' ' || b == '\t' || b == '\r' || b == 0x0B || b == '\f';
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * A PostingLists gives read-only access to the index terms of a collection and their posting lists
+ * and it evaluates the co-occurrence measure of two of them. It is implemented by the stores of the
+ * posting lists (PostingStore) and by the wrappers that change how the co-occurrence measure is
+ * evaluated (SketchedPostings, PrefilteredPostings, HybridPostings), which can't be modified.
+ */
+
+public interface PostingLists
+{
+	/**
+	 * It returns the number of index terms.
+	 *
+	 * @return size
+	 */
+	int size();
+
+	/**
+	 * It returns the number of postings.
+	 *
+	 * @return postings
+	 */
+	long getPostings();
+
+	/**
+	 * It returns the number of bytes used to store the posting lists.
+	 *
+	 * @return bytes
+	 */
+	long getBytes();
+
+	/**
+	 * It returns an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return the index term.
+	 */
+	String getTerm(int key);
+
+	/**
+	 * It returns the index terms. The arena must not be modified.
+	 *
+	 * @return index terms, the key of an index term is its key in the arena.
+	 */
+	TermArena getTerms();
+
+	/**
+	 * It returns the number of postings of an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return length of the posting list.
+	 */
+	int length(int key);
+
+	/**
+	 * It copies the posting list of an index term in two arrays, which must have room for
+	 * length(key) postings.
+	 *
+	 * @param key key of the index term.
+	 * @param docs ids of the documents.
+	 * @param tfs term frequencies.
+	 */
+	void postings(int key, int[] docs, int[] tfs);
+
+	/**
+	 * It returns the co-occurrence measure of two index terms, that is the sum of the minimum
+	 * term frequency over the documents that contain both the index terms.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return co-occurrence of the two index terms.
+	 */
+	int cooccurrence(int key1, int key2);
+}
@@ -0,0 +1,288 @@
+/**
+ * An element of this class overlaps the reading of a sorted inverted file with the evaluation of
+ * the co-occurrence measure. A reader thread reads the inverted file sequentially and cuts it in
+ * batches of consecutive index terms that never split a bucket (PostingFileReader.readBatches),
+ * so a batch can be evaluated as soon as it is read: each batch becomes a task of a ForkJoinPool,
+ * which evaluates the couples of index terms of its buckets with a co-occurrence greater than 0.
+ *
+ * The batches wait in a bounded queue in the order of the file, and the reader stops while the
+ * queue is full, so at most the posting lists of the batches of the queue, of the batch being
+ * read and of the batches being evaluated are in memory. The calling thread takes the batches
+ * from the queue and gives back their index terms and their couples to a BatchVisitor, in the
+ * order of the sequential evaluation of the buckets. The wall-clock time approaches the longest
+ * of the reading and the co-occurrence instead of their sum.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+public class PostingPipeline
+{
+	//Minimum number of postings of a batch.
+	static final long BATCH_POSTINGS = 1 << 18;
+
+	//Number of batches of the queue for each thread.
+	static final int QUEUED_BATCHES = 2;
+
+	/**
+	 * An object that receives the index terms of each batch, followed by its couples with a
+	 * co-occurrence greater than 0.
+	 */
+	public interface BatchVisitor extends ParallelCooccurrence.PairVisitor
+	{
+		/**
+		 * It receives the index terms of a batch, before its couples.
+		 *
+		 * @param first_key key of the first index term of the batch, the following ones have
+		 * consecutive keys.
+		 * @param terms index terms of the batch, the key of an index term is its key in the batch.
+		 */
+		void terms(int first_key, TermArena terms);
+	}
+
+	/**
+	 * The result of the evaluation of a batch: its index terms and its couples, as triples
+	 * (key1, key2, co) with the keys of the batch.
+	 */
+	private static class Batch
+	{
+		int first_key;
+		TermArena terms;
+		IntArrayList results;
+
+		Batch(int first_key, TermArena terms, IntArrayList results)
+		{
+			this.first_key = first_key;
+			this.terms = terms;
+			this.results = results;
+		}
+	}
+
+	//Pool of threads that evaluates the batches.
+	private ForkJoinPool pool;
+
+	//Length of the prefix shared by the index terms of a bucket.
+	private int l1;
+
+	//Batches read and not yet given back, in the order of the file.
+	private ArrayBlockingQueue<Future<Batch>> queue;
+
+	//Number of batches, milliseconds spent by the reader and by the calling thread waiting for
+	//the batches.
+	private int batches;
+	private long reading_time;
+	private long waiting_time;
+
+	/**
+	 * It creates the ForkJoinPool used to evaluate the batches and the queue of the batches.
+	 *
+	 * @param parallelism number of threads.
+	 * @param l1 length of the prefix shared by the index terms of a bucket.
+	 */
+	public PostingPipeline(int parallelism, int l1)
+	{
+		pool = new ForkJoinPool(parallelism);
+		queue = new ArrayBlockingQueue<Future<Batch>>(QUEUED_BATCHES * parallelism);
+		this.l1 = l1;
+	}
+
+	/**
+	 * It reads the inverted file of a sorted lexicon (PostingFileReader.isSorted) on a reader
+	 * thread and it gives back the batches to a visitor on the calling thread. The keys of the
+	 * index terms are the ones of PostingFileReader.read.
+	 *
+	 * @param source PostingFileReader of the collection, with a sorted lexicon.
+	 * @param visitor object that receives the index terms and the couples.
+	 * @throws IOException
+	 */
+	public void run(final PostingFileReader source, BatchVisitor visitor) throws IOException
+	{
+		//Last element of the queue, after the last batch or an error of the reader.
+		final FutureTask<Batch> end_of_file = new FutureTask<Batch>(new Callable<Batch>()
+		{
+			public Batch call()
+			{
+				return null;
+			}
+		});
+		end_of_file.run();
+
+		final Exception[] reading_error = new Exception[1];
+
+		Thread reader = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				long start = System.currentTimeMillis();
+
+				try
+				{
+					source.readBatches(l1, BATCH_POSTINGS, new PostingFileReader.BatchVisitor()
+					{
+						public void visit(int first_key, PostingStore batch) throws IOException
+						{
+							try
+							{
+								queue.put(pool.submit(evaluation(first_key, batch)));
+							}
+							catch (InterruptedException e)
+							{
+								throw new InterruptedIOException("PostingPipeline: reader interrupted");
+							}
+						}
+					});
+				}
+				catch (Exception e)
+				{
+					reading_error[0] = e;
+				}
+				finally
+				{
+					reading_time = System.currentTimeMillis() - start;
+
+					try
+					{
+						queue.put(end_of_file);
+					}
+					catch (InterruptedException e)
+					{
+						//The calling thread has stopped taking the batches.
+					}
+				}
+			}
+		}, "PostingPipeline reader");
+
+		reader.setDaemon(true);
+		reader.start();
+
+		try
+		{
+			while (true)
+			{
+				long start = System.currentTimeMillis();
+				Batch batch = queue.take().get();
+				waiting_time += System.currentTimeMillis() - start;
+
+				if (batch == null)
+				{
+					break;
+				}
+
+				visitor.terms(batch.first_key, batch.terms);
+
+				IntArrayList results = batch.results;
+				for (int j = 0; j < results.size(); j += 3)
+				{
+					visitor.visit(batch.first_key + results.getInt(j), batch.first_key + results.getInt(j + 1), results.getInt(j + 2));
+				}
+
+				batches++;
+			}
+
+			reader.join();
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			throw new IOException("PostingPipeline: " + e, e);
+		}
+		finally
+		{
+			reader.interrupt();
+		}
+
+		if (reading_error[0] instanceof IOException)
+		{
+			throw (IOException) reading_error[0];
+		}
+		if (reading_error[0] != null)
+		{
+			throw new IOException("PostingPipeline: " + reading_error[0], reading_error[0]);
+		}
+	}
+
+	/**
+	 * It returns the task that evaluates the couples of the buckets of a batch, in the order of
+	 * the sequential evaluation. Only the index terms of the batch are kept by the result.
+	 */
+	private Callable<Batch> evaluation(final int first_key, final PostingStore store)
+	{
+		return new Callable<Batch>()
+		{
+			public Batch call()
+			{
+				PrefixBuckets buckets = new PrefixBuckets(store.getTerms(), l1);
+				IntArrayList results = new IntArrayList();
+
+				for (int bucket = 0; bucket < buckets.size(); bucket++)
+				{
+					for (int indexCols = buckets.start(bucket) + 1; indexCols < buckets.end(bucket); indexCols++)
+					{
+						int key1 = buckets.key(indexCols);
+
+						for (int indexRows = buckets.start(bucket); indexRows < indexCols; indexRows++)
+						{
+							int key2 = buckets.key(indexRows);
+							int co = store.cooccurrence(key1, key2);
+
+							if (co != 0)
+							{
+								results.add(key1);
+								results.add(key2);
+								results.add(co);
+							}
+						}
+					}
+				}
+
+				return new Batch(first_key, store.getTerms(), results);
+			}
+		};
+	}
+
+	/**
+	 * It stops the threads of the pool.
+	 */
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	 * It returns the number of batches given back by run.
+	 *
+	 * @return batches
+	 */
+	public int getBatches()
+	{
+		return batches;
+	}
+
+	/**
+	 * It returns the milliseconds spent by the reader thread.
+	 *
+	 * @return reading time
+	 */
+	public long getReadingTime()
+	{
+		return reading_time;
+	}
+
+	/**
+	 * It returns the milliseconds spent by the calling thread waiting for the next batch, read
+	 * or evaluated.
+	 *
+	 * @return waiting time
+	 */
+	public long getWaitingTime()
+	{
+		return waiting_time;
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * A PostingSource gives the index terms of a collection and their posting lists to the SNS
+ * stemmer. The index terms that are shorter than MIN_TERM_LENGTH or that start with a digit
+ * are discarded by every source, because they can't be used in the definition of the stems.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+public interface PostingSource
+{
+	//Index terms shorter than this length are discarded.
+	int MIN_TERM_LENGTH = 3;
+
+	/**
+	 * It reads the index terms that are kept and their posting lists. The postings of each
+	 * index term are in ascending order of document id.
+	 *
+	 * @return PostingStore with the index terms and their posting lists.
+	 * @throws IOException
+	 */
+	PostingStore read() throws IOException;
+
+	/**
+	 * It returns a fingerprint of the inputs of the source, which changes if they are modified.
+	 * The checkpoints of the stemming process are used only if they have the same fingerprint.
+	 *
+	 * @return the fingerprint.
+	 * @throws IOException
+	 */
+	String fingerprint() throws IOException;
+
+	/**
+	 * It returns the fingerprint of a file: its canonical path, its length and the time of its
+	 * last modification.
+	 *
+	 * @param file the file.
+	 * @return the fingerprint.
+	 * @throws IOException
+	 */
+	static String fingerprint(File file) throws IOException
+	{
+		if (!file.isFile())
+		{
+			throw new IOException("PostingSource: " + file + " doesn't exist");
+		}
+		return file.getCanonicalPath() + " " + file.length() + " " + file.lastModified();
+	}
+
+	/**
+	 * It verifies if an index term has to be kept. An index term that starts with a digit
+	 * results from a typing error.
+	 *
+	 * @param term the index term.
+	 * @return true if the index term is kept.
+	 */
+	static boolean isKept(String term)
+	{
+		return term.length() >= MIN_TERM_LENGTH && !Character.isDigit(term.charAt(0));
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * A PostingStore keeps the index terms of a collection and their posting lists in memory, and it
+ * gives them to the stemming process as a PostingLists. The key of an index term is the order in
+ * which it has been added to the store, and the index terms are kept in a TermArena. The posting
+ * lists can be stored raw (PostingArena) or compressed (CompressedPostings): the choice is made
+ * with the option -Dsns.compressed=true.
+ */
+
+public interface PostingStore extends PostingLists
+{
+	/**
+	 * It adds an index term and its posting list to the store. The postings have to be in
+	 * ascending order of document id.
+	 *
+	 * @param term the index term.
+	 * @param docs ids of the documents.
+	 * @param tfs term frequencies.
+	 * @param from first position of the posting list.
+	 * @param to end of the posting list (exclusive).
+	 * @return the key of the index term.
+	 */
+	int addTerm(String term, int[] docs, int[] tfs, int from, int to);
+
+	/**
+	 * It adds all the index terms of another store of the same kind, in the order of their keys.
+	 *
+	 * @param other the store whose index terms are added.
+	 */
+	void append(PostingStore other);
+
+	/**
+	 * It releases the unused memory. It is invoked when all the index terms have been added.
+	 */
+	void trim();
+
+	/**
+	 * It creates an empty store.
+	 *
+	 * @param compressed true for a CompressedPostings, false for a PostingArena.
+	 * @param expected_terms expected number of index terms.
+	 * @param expected_postings expected number of postings.
+	 * @return the store.
+	 */
+	static PostingStore create(boolean compressed, int expected_terms, long expected_postings)
+	{
+		if (compressed)
+		{
+			return new CompressedPostings(expected_terms, expected_postings);
+		}
+
+		if (expected_postings > Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalStateException("PostingArena: too many postings (" + expected_postings + ")");
+		}
+		return new PostingArena(expected_terms, (int) expected_postings);
+	}
+}
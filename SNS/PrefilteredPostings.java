@@ -0,0 +1,184 @@
+/**
+ * An element of this class wraps a PostingLists and it skips the intersection of the couples of
+ * index terms that can never become an arc. A couple becomes an arc only if the counter of its
+ * couple of suffixes in the L2Table reaches 2, and the counter is increased only by couples with a
+ * common prefix longer than l2. The number of couples of index terms with a common prefix longer
+ * than l2 that are made by a couple of suffixes is an upper bound of its counter, and it depends
+ * only on the index terms: it is counted once, before the co-occurrence measure, without reading
+ * any posting list. The co-occurrence of a couple whose suffixes have an upper bound less than 2
+ * is 0, so the couple is dropped like a couple without shared documents.
+ *
+ * The couples with a common prefix longer than l2 are the couples of the ranges of the sorted
+ * order whose index terms share the first l2 + 1 characters, so the counting pass visits only
+ * them. All the couples of a couple of suffixes are skipped or evaluated together, therefore the
+ * counters of the couples of suffixes that can reach 2, the arcs and the lookup table don't
+ * change; only the couples that are not arcs are missing from the potential arcs.
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+public class PrefilteredPostings implements PostingLists
+{
+	//Store with the posting lists.
+	private PostingLists store;
+
+	//Suffixes of the couples with a common prefix longer than l2.
+	private SuffixTable suffixes;
+
+	//Upper bound of the counter of each couple of suffixes (ArcTable.key of their ids), up to 2.
+	private Long2IntOpenHashMap bounds;
+
+	//Number of couples of suffixes with an upper bound of 2.
+	private int qualifying_suffixes;
+
+	//Number of couples skipped and evaluated.
+	private LongAdder skipped_pairs = new LongAdder();
+	private LongAdder evaluated_pairs = new LongAdder();
+
+	/**
+	 * It counts the upper bounds of the couples of suffixes of the couples of index terms of the
+	 * buckets.
+	 *
+	 * @param store store with the posting lists.
+	 * @param buckets PrefixBuckets of the index terms of the store.
+	 * @param l2 parameter l2.
+	 */
+	public PrefilteredPostings(PostingLists store, PrefixBuckets buckets, int l2)
+	{
+		this.store = store;
+		suffixes = new SuffixTable(1 << 16);
+		bounds = new Long2IntOpenHashMap(1 << 16);
+
+		TermArena terms = store.getTerms();
+
+		for (int bucket = 0; bucket < buckets.size(); bucket++)
+		{
+			int group = buckets.start(bucket);
+
+			while (group < buckets.end(bucket))
+			{
+				//The group goes on as long as the index terms share the first l2 + 1 characters.
+				int first = buckets.key(group);
+				int group_end = group + 1;
+				if (terms.length(first) > l2)
+				{
+					while (group_end < buckets.end(bucket) && terms.commonPrefixLength(first, buckets.key(group_end)) > l2)
+					{
+						group_end++;
+					}
+				}
+
+				for (int i = group + 1; i < group_end; i++)
+				{
+					int key1 = buckets.key(i);
+
+					for (int j = group; j < i; j++)
+					{
+						int key2 = buckets.key(j);
+						int prefix_length = terms.commonPrefixLength(key1, key2);
+						long key = ArcTable.key(suffixes.intern(terms, key1, prefix_length), suffixes.intern(terms, key2, prefix_length));
+
+						if (bounds.get(key) < 2 && bounds.addTo(key, 1) == 1)
+						{
+							qualifying_suffixes++;
+						}
+					}
+				}
+
+				group = group_end;
+			}
+		}
+	}
+
+	/**
+	 * It returns 0 if the couple of suffixes of two index terms has an upper bound less than 2,
+	 * otherwise the co-occurrence evaluated by the wrapped store.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return co-occurrence of the two index terms, or 0 if the couple is skipped.
+	 */
+	public int cooccurrence(int key1, int key2)
+	{
+		TermArena terms = store.getTerms();
+		int prefix_length = terms.commonPrefixLength(key1, key2);
+		int suffix1 = suffixes.find(terms, key1, prefix_length);
+		int suffix2 = suffixes.find(terms, key2, prefix_length);
+
+		if (suffix1 < 0 || suffix2 < 0 || bounds.get(ArcTable.key(suffix1, suffix2)) < 2)
+		{
+			skipped_pairs.increment();
+			return 0;
+		}
+
+		evaluated_pairs.increment();
+		return store.cooccurrence(key1, key2);
+	}
+
+	/**
+	 * It returns the number of couples of suffixes that can reach a counter of 2.
+	 *
+	 * @return qualifying couples of suffixes
+	 */
+	public int getQualifyingSuffixes()
+	{
+		return qualifying_suffixes;
+	}
+
+	/**
+	 * It returns the number of couples whose intersection has been skipped.
+	 *
+	 * @return skipped pairs
+	 */
+	public long getSkippedPairs()
+	{
+		return skipped_pairs.sum();
+	}
+
+	/**
+	 * It returns the number of couples whose co-occurrence has been evaluated.
+	 *
+	 * @return evaluated pairs
+	 */
+	public long getEvaluatedPairs()
+	{
+		return evaluated_pairs.sum();
+	}
+
+	public int size()
+	{
+		return store.size();
+	}
+
+	public long getPostings()
+	{
+		return store.getPostings();
+	}
+
+	public long getBytes()
+	{
+		return store.getBytes();
+	}
+
+	public String getTerm(int key)
+	{
+		return store.getTerm(key);
+	}
+
+	public TermArena getTerms()
+	{
+		return store.getTerms();
+	}
+
+	public int length(int key)
+	{
+		return store.length(key);
+	}
+
+	public void postings(int key, int[] docs, int[] tfs)
+	{
+		store.postings(key, docs, tfs);
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * An element of this class groups the index terms of the lexicon in buckets. The index terms
+ * are sorted once according to the lexicographic order, therefore all the index terms that share
+ * the same prefix of length l1 are stored in a contiguous range of positions: a bucket.
+ * Two index terms can have a common prefix of length greater than or equal to l1 only if they
+ * belong to the same bucket, so only the couples of index terms of the same bucket have to be
+ * considered in the evaluation of the co-occurrence measure. The sorted order is also the order
+ * of the lines of the lookup table.
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+public class PrefixBuckets
+{
+	//Keys of the index terms sorted according to the lexicographic order of the index terms.
+	private int[] sorted_keys;
+
+	//For each bucket, the position in sorted_keys of its first index term followed by the
+	//position that follows its last index term.
+	private int[] bucket_bounds;
+
+	//Number of couples of index terms that belong to the same bucket.
+	private long candidate_pairs;
+
+	/**
+	 * It sorts the keys of the index terms and it finds the buckets. Only buckets with at least
+	 * two index terms are stored, because a single index term can't form any couple.
+	 *
+	 * @param terms index terms, the key of an index term is its key in the arena.
+	 * @param l1 length of the prefix shared by the index terms of a bucket.
+	 */
+	public PrefixBuckets(final TermArena terms, int l1)
+	{
+		Integer[] order = new Integer[terms.size()];
+		for (int i = 0; i < order.length; i++)
+		{
+			order[i] = i;
+		}
+
+		Arrays.parallelSort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer key1, Integer key2)
+			{
+				return terms.compare(key1, key2);
+			}
+		});
+
+		sorted_keys = new int[order.length];
+		for (int i = 0; i < order.length; i++)
+		{
+			sorted_keys[i] = order[i];
+		}
+
+		IntArrayList starts = new IntArrayList();
+		int position = 0;
+
+		while (position < sorted_keys.length)
+		{
+			int first = sorted_keys[position];
+			int end = position + 1;
+
+			if (terms.length(first) >= l1)
+			{
+				//The bucket goes on as long as the index terms share the first l1 characters.
+				while (end < sorted_keys.length && terms.commonPrefixLength(first, sorted_keys[end]) >= l1)
+				{
+					end++;
+				}
+
+				if (end - position >= 2)
+				{
+					starts.add(position);
+					starts.add(end);
+					candidate_pairs += (long) (end - position) * (end - position - 1) / 2;
+				}
+			}
+
+			position = end;
+		}
+
+		bucket_bounds = starts.toIntArray();
+	}
+
+	/**
+	 * It returns the number of buckets.
+	 *
+	 * @return number of buckets with at least two index terms.
+	 */
+	public int size()
+	{
+		return bucket_bounds.length / 2;
+	}
+
+	/**
+	 * It returns the first position of a bucket in the sorted order.
+	 *
+	 * @param bucket index of the bucket.
+	 * @return first position of the bucket.
+	 */
+	public int start(int bucket)
+	{
+		return bucket_bounds[2 * bucket];
+	}
+
+	/**
+	 * It returns the position that follows the last index term of a bucket in the sorted order.
+	 *
+	 * @param bucket index of the bucket.
+	 * @return end of the bucket (exclusive).
+	 */
+	public int end(int bucket)
+	{
+		return bucket_bounds[2 * bucket + 1];
+	}
+
+	/**
+	 * It returns the key of the index term stored in a position of the sorted order.
+	 *
+	 * @param position position in the sorted order.
+	 * @return key of the index term.
+	 */
+	public int key(int position)
+	{
+		return sorted_keys[position];
+	}
+
+	/**
+	 * It returns the keys of all the index terms in the lexicographic order of the index terms.
+	 * The array must not be modified.
+	 *
+	 * @return sorted keys.
+	 */
+	public int[] getSortedKeys()
+	{
+		return sorted_keys;
+	}
+
+	/**
+	 * It returns the number of couples of index terms that share a prefix of length l1.
+	 *
+	 * @return number of candidate couples.
+	 */
+	public long getCandidatePairs()
+	{
+		return candidate_pairs;
+	}
+}
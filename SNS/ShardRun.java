@@ -0,0 +1,228 @@
+/**
+ * An element of this class is the file of the partial co-occurrence of a shard: the co-occurrence
+ * measure of the couples of index terms evaluated only over the documents of a range of ids. The
+ * co-occurrence is a sum over the documents, so the partial co-occurrences of shards with
+ * disjoint ranges are summed to obtain the co-occurrence over the whole collection.
+ *
+ * The file has a header (MAGIC, VERSION, l1, the shard, the number of shards, the part, the range
+ * of the documents, the number of index terms and a hash of them) followed by the couples with a partial
+ * co-occurrence greater than 0, in ascending order of their key (ArcTable.key), each one as a long
+ * key and an int co-occurrence, and by MAGIC. The couples are read one at a time, so the files of
+ * all the shards can be merged in a single pass. A file is written with the same Checkpoint.Output
+ * of the checkpoints, with a temporary name that is renamed when the file is complete.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public class ShardRun implements Closeable
+{
+	//First and last int of a file.
+	static final int MAGIC = 0x534E5350;
+
+	//Version of the format of the files.
+	static final int VERSION = 2;
+
+	//Header of the file.
+	int l1;
+	int shard;
+	int shards;
+	//Index of the run among the runs with the same range: 0 for the file of a shard, the index of
+	//the run among the runs of a pass of SnsTool.executeOutOfCore (PairSpill).
+	int part;
+	int first_document;
+	int end_document;
+	int number_terms;
+	long terms_hash;
+	long pairs;
+
+	private File file;
+	private Checkpoint.Input in;
+
+	//Couples not read yet.
+	private long remaining;
+
+	//Current couple.
+	private long key;
+	private int cooccurrence;
+
+	private ShardRun(File file)
+	{
+		this.file = file;
+	}
+
+	/**
+	 * It writes the partial co-occurrence of a shard.
+	 *
+	 * @param file the file.
+	 * @param header a ShardRun with the fields of the header, pairs excluded.
+	 * @param keys keys of the couples, in ascending order.
+	 * @param cooccurrences partial co-occurrence of each couple.
+	 * @param size number of couples.
+	 * @throws IOException
+	 */
+	public static void write(File file, ShardRun header, long[] keys, long[] cooccurrences, int size) throws IOException
+	{
+		File temporary = new File(file.getPath() + ".tmp");
+
+		try (Checkpoint.Output out = new Checkpoint.Output(temporary))
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(header.l1);
+			out.writeInt(header.shard);
+			out.writeInt(header.shards);
+			out.writeInt(header.part);
+			out.writeInt(header.first_document);
+			out.writeInt(header.end_document);
+			out.writeInt(header.number_terms);
+			out.writeLong(header.terms_hash);
+			out.writeLong(size);
+
+			for (int i = 0; i < size; i++)
+			{
+				out.writeLong(keys[i]);
+				out.writeInt((int) cooccurrences[i]);
+			}
+
+			out.writeInt(MAGIC);
+		}
+
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * It creates the header of the file of a shard, with part 0.
+	 *
+	 * @param l1 parameter l1.
+	 * @param shard index of the shard.
+	 * @param shards number of shards.
+	 * @param first_document first id of the documents of the shard.
+	 * @param end_document end of the ids of the documents of the shard (exclusive).
+	 * @param store PostingLists with the index terms.
+	 * @return the header.
+	 */
+	public static ShardRun header(int l1, int shard, int shards, int first_document, int end_document, PostingLists store)
+	{
+		ShardRun header = new ShardRun(null);
+		header.l1 = l1;
+		header.shard = shard;
+		header.shards = shards;
+		header.first_document = first_document;
+		header.end_document = end_document;
+		header.number_terms = store.size();
+		header.terms_hash = termsHash(store);
+		return header;
+	}
+
+	/**
+	 * It opens the file of a shard and it reads its header.
+	 *
+	 * @param file the file.
+	 * @return the ShardRun, positioned before the first couple.
+	 * @throws IOException
+	 */
+	public static ShardRun open(File file) throws IOException
+	{
+		ShardRun run = new ShardRun(file);
+		run.in = new Checkpoint.Input(file);
+
+		if (run.in.readInt() != MAGIC || run.in.readInt() != VERSION)
+		{
+			run.close();
+			throw new IOException("ShardRun: " + file + " is not a shard file of version " + VERSION);
+		}
+
+		run.l1 = run.in.readInt();
+		run.shard = run.in.readInt();
+		run.shards = run.in.readInt();
+		run.part = run.in.readInt();
+		run.first_document = run.in.readInt();
+		run.end_document = run.in.readInt();
+		run.number_terms = run.in.readInt();
+		run.terms_hash = run.in.readLong();
+		run.pairs = run.in.readLong();
+		run.remaining = run.pairs;
+
+		return run;
+	}
+
+	/**
+	 * It reads the next couple.
+	 *
+	 * @return false if there are no more couples.
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException
+	{
+		if (remaining == 0)
+		{
+			if (in.readInt() != MAGIC)
+			{
+				throw new IOException("ShardRun: " + file + " is corrupted");
+			}
+			return false;
+		}
+
+		key = in.readLong();
+		cooccurrence = in.readInt();
+		remaining--;
+		return true;
+	}
+
+	/**
+	 * It returns the key of the current couple.
+	 *
+	 * @return key
+	 */
+	public long getKey()
+	{
+		return key;
+	}
+
+	/**
+	 * It returns the partial co-occurrence of the current couple.
+	 *
+	 * @return cooccurrence
+	 */
+	public int getCooccurrence()
+	{
+		return cooccurrence;
+	}
+
+	/**
+	 * It returns the path of the file.
+	 *
+	 * @return file
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	public void close() throws IOException
+	{
+		in.close();
+	}
+
+	/**
+	 * It returns a hash of the index terms of a store, in the order of their keys. The shards
+	 * must have the same index terms with the same keys, so their hashes must be equal.
+	 *
+	 * @param store PostingLists with the index terms.
+	 * @return the hash.
+	 */
+	public static long termsHash(PostingLists store)
+	{
+		TermArena terms = store.getTerms();
+		long hash = store.size();
+		for (int key = 0; key < store.size(); key++)
+		{
+			hash = 31 * hash + terms.hash(key, 0);
+		}
+		return hash;
+	}
+}
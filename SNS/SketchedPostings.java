@@ -0,0 +1,347 @@
+/**
+ * An element of this class wraps a PostingLists and it estimates the co-occurrence measure of the
+ * couples of long posting lists from sketches, while the other couples are evaluated exactly by the
+ * wrapped store. It is a fast preview of the stemming process for a new collection.
+ *
+ * The posting list of an index term is seen as a multiset of documents, where a document appears
+ * tf times: each posting (doc, tf) gives the elements (doc, 1), ..., (doc, tf). The co-occurrence
+ * of two index terms is the size of the intersection of their multisets, and the size of their
+ * union is the sum of the maximum term frequencies, so given the weighted Jaccard similarity
+ * J = co / union and the total term frequencies T1 and T2 of the two index terms:
+ *
+ *     co = J * (T1 + T2) / (1 + J)
+ *
+ * The sketch of an index term is a bottom-k sketch of its multiset: the k smallest hashes of its
+ * elements. The k smallest hashes of the union of two sketches are the bottom-k sketch of the
+ * union of the two multisets, and the fraction of them that belongs to both the sketches is an
+ * unbiased estimate of J, with a standard error of at most 1 / (2 * sqrt(k)). The number of hashes
+ * is chosen from the maximum standard error given to the constructor.
+ *
+ * The co-occurrence of a couple is estimated only if both the posting lists have at least
+ * min_length postings: the exact intersection of a short list with a long one is already cheap.
+ * A couple that shares a few documents can be estimated as 0, so a few arcs can be lost.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SketchedPostings implements PostingLists
+{
+	//Store with the exact posting lists.
+	private PostingLists store;
+
+	//Number of hashes of a sketch.
+	private int k;
+
+	//Minimum number of postings of an index term with a sketch.
+	private int min_length;
+
+	//Position of the sketch of each index term in sketches, -1 if it has no sketch.
+	private int[] positions;
+
+	//Hashes of the sketches, k positions for each sketch, in ascending order.
+	private long[] sketches;
+
+	//Number of hashes of each sketch, less than k if the multiset has less than k elements.
+	private int[] sketch_sizes;
+
+	//Sum of the term frequencies of each index term with a sketch.
+	private long[] totals;
+
+	//Number of index terms with a sketch.
+	private int sketched_terms;
+
+	//Number of couples evaluated exactly and estimated.
+	private LongAdder exact_pairs = new LongAdder();
+	private LongAdder estimated_pairs = new LongAdder();
+
+	/**
+	 * It builds the sketches of the index terms with at least min_length postings on the threads
+	 * of a pool.
+	 *
+	 * @param store store with the exact posting lists.
+	 * @param error maximum standard error of the estimate of the weighted Jaccard similarity.
+	 * @param min_length minimum number of postings of an index term with a sketch.
+	 * @param pool pool of threads.
+	 */
+	public SketchedPostings(PostingLists store, double error, int min_length, ForkJoinPool pool)
+	{
+		if (!(error > 0 && error < 0.5))
+		{
+			throw new IllegalArgumentException("SketchedPostings: the error must be in (0, 0.5), not " + error);
+		}
+
+		this.store = store;
+		this.k = (int) Math.ceil(1 / (4 * error * error));
+		this.min_length = Math.max(1, min_length);
+
+		positions = new int[store.size()];
+		for (int key = 0; key < store.size(); key++)
+		{
+			positions[key] = store.length(key) >= this.min_length ? sketched_terms++ : -1;
+		}
+
+		sketches = new long[sketched_terms * k];
+		sketch_sizes = new int[sketched_terms];
+		totals = new long[sketched_terms];
+
+		final PostingLists postings = store;
+		ParallelRange.run(pool, store.size(), 64, new ParallelRange.Body()
+		{
+			public void run(int from, int to)
+			{
+				int[] docs = new int[0];
+				int[] tfs = new int[0];
+
+				for (int key = from; key < to; key++)
+				{
+					if (positions[key] < 0)
+					{
+						continue;
+					}
+
+					int length = postings.length(key);
+					if (docs.length < length)
+					{
+						docs = new int[length];
+						tfs = new int[length];
+					}
+
+					postings.postings(key, docs, tfs);
+					buildSketch(positions[key], docs, tfs, length);
+				}
+			}
+		});
+	}
+
+	/**
+	 * It builds the sketch of a posting list: a max-heap keeps the k smallest hashes of its
+	 * elements, which are sorted at the end.
+	 */
+	private void buildSketch(int position, int[] docs, int[] tfs, int length)
+	{
+		int start = position * k;
+		int size = 0;
+		long total = 0;
+
+		for (int i = 0; i < length; i++)
+		{
+			total += tfs[i];
+
+			for (int occurrence = 1; occurrence <= tfs[i]; occurrence++)
+			{
+				long hash = hash(docs[i], occurrence);
+
+				if (size < k)
+				{
+					//sift up
+					int child = size++;
+					while (child > 0)
+					{
+						int parent = (child - 1) >>> 1;
+						if (sketches[start + parent] >= hash)
+						{
+							break;
+						}
+						sketches[start + child] = sketches[start + parent];
+						child = parent;
+					}
+					sketches[start + child] = hash;
+				}
+				else if (hash < sketches[start])
+				{
+					//sift down from the root, which is replaced
+					int parent = 0;
+					while (true)
+					{
+						int child = 2 * parent + 1;
+						if (child >= k)
+						{
+							break;
+						}
+						if (child + 1 < k && sketches[start + child + 1] > sketches[start + child])
+						{
+							child++;
+						}
+						if (sketches[start + child] <= hash)
+						{
+							break;
+						}
+						sketches[start + parent] = sketches[start + child];
+						parent = child;
+					}
+					sketches[start + parent] = hash;
+				}
+			}
+		}
+
+		Arrays.sort(sketches, start, start + size);
+		sketch_sizes[position] = size;
+		totals[position] = total;
+	}
+
+	/**
+	 * It returns the hash of the element (doc, occurrence) of a multiset, the same for all the
+	 * index terms.
+	 */
+	private static long hash(int doc, int occurrence)
+	{
+		long z = ((long) doc << 32 | occurrence) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * It returns the co-occurrence measure of two index terms: it is estimated from the sketches
+	 * if both the index terms have one, otherwise it is evaluated by the wrapped store.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return co-occurrence of the two index terms.
+	 */
+	public int cooccurrence(int key1, int key2)
+	{
+		int position1 = positions[key1];
+		int position2 = positions[key2];
+
+		if (position1 < 0 || position2 < 0)
+		{
+			exact_pairs.increment();
+			return store.cooccurrence(key1, key2);
+		}
+
+		estimated_pairs.increment();
+		return estimate(position1, position2);
+	}
+
+	/**
+	 * It estimates the co-occurrence of two index terms from their sketches.
+	 */
+	private int estimate(int position1, int position2)
+	{
+		int i = position1 * k;
+		int end1 = i + sketch_sizes[position1];
+		int j = position2 * k;
+		int end2 = j + sketch_sizes[position2];
+
+		//The smallest k hashes of the union of the two sketches.
+		int union = 0;
+		int shared = 0;
+
+		while (union < k && i < end1 && j < end2)
+		{
+			if (sketches[i] < sketches[j])
+			{
+				i++;
+			}
+			else if (sketches[i] > sketches[j])
+			{
+				j++;
+			}
+			else
+			{
+				shared++;
+				i++;
+				j++;
+			}
+			union++;
+		}
+
+		//A sketch ends before k hashes only if it contains all the hashes of its multiset.
+		union = Math.min(k, union + (end1 - i) + (end2 - j));
+
+		if (shared == 0)
+		{
+			return 0;
+		}
+
+		double jaccard = shared / (double) union;
+		long total1 = totals[position1];
+		long total2 = totals[position2];
+		long co = Math.round(jaccard * (total1 + total2) / (1 + jaccard));
+
+		return (int) Math.max(1, Math.min(co, Math.min(total1, total2)));
+	}
+
+	/**
+	 * It returns the number of hashes of a sketch.
+	 *
+	 * @return k
+	 */
+	public int getHashes()
+	{
+		return k;
+	}
+
+	/**
+	 * It returns the number of index terms with a sketch.
+	 *
+	 * @return sketched terms
+	 */
+	public int getSketchedTerms()
+	{
+		return sketched_terms;
+	}
+
+	/**
+	 * It returns the number of couples whose co-occurrence has been evaluated exactly.
+	 *
+	 * @return exact pairs
+	 */
+	public long getExactPairs()
+	{
+		return exact_pairs.sum();
+	}
+
+	/**
+	 * It returns the number of couples whose co-occurrence has been estimated.
+	 *
+	 * @return estimated pairs
+	 */
+	public long getEstimatedPairs()
+	{
+		return estimated_pairs.sum();
+	}
+
+	public int size()
+	{
+		return store.size();
+	}
+
+	public long getPostings()
+	{
+		return store.getPostings();
+	}
+
+	/**
+	 * It returns the number of bytes of the posting lists and of the sketches.
+	 *
+	 * @return bytes
+	 */
+	public long getBytes()
+	{
+		return store.getBytes() + 8L * sketches.length;
+	}
+
+	public String getTerm(int key)
+	{
+		return store.getTerm(key);
+	}
+
+	public TermArena getTerms()
+	{
+		return store.getTerms();
+	}
+
+	public int length(int key)
+	{
+		return store.length(key);
+	}
+
+	public void postings(int key, int[] docs, int[] tfs)
+	{
+		store.postings(key, docs, tfs);
+	}
+}
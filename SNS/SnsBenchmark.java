@@ -0,0 +1,498 @@
+/**
+ * Micro benchmarks of the kernels used in the construction of the SNS stemmer. Each benchmark
+ * runs some warm-up iterations, so that the JIT compiler can optimize the kernels, and then it
+ * prints the average time of an invocation. The results of the different kernels are compared,
+ * so a benchmark also verifies that the kernels agree.
+ *
+ * Usage: java -cp ".:lib/*" SnsBenchmark intersection
+ *        java -cp ".:lib/*" SnsBenchmark compression [lexicon.txt inverted.txt]
+ *        java -cp ".:lib/*" SnsBenchmark engine [lexicon.txt inverted.txt]
+ *        java -cp ".:lib/*" SnsBenchmark hybrid [lexicon.txt inverted.txt]
+ */
+
+import java.io.IOException;
+import java.util.Random;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+public class SnsBenchmark
+{
+	//Number of iterations that are not measured.
+	static final int WARMUP = 5;
+
+	//Number of measured iterations.
+	static final int ITERATIONS = 20;
+
+	//Number of documents of the synthetic collection.
+	static final int DOCUMENTS = 2000000;
+
+	//Maximum number of couples of index terms evaluated by the benchmarks over a collection.
+	static final int COLLECTION_PAIRS = 1 << 20;
+
+	//Value returned by the kernels, printed to avoid the elimination of dead code.
+	static long blackhole;
+
+	public static void main(String[] args) throws IOException
+	{
+		String benchmark = args.length > 0 ? args[0] : "intersection";
+
+		if (benchmark.equals("intersection"))
+		{
+			intersection();
+		}
+		else if (benchmark.equals("compression") && args.length >= 3)
+		{
+			compression(args[1], args[2]);
+		}
+		else if (benchmark.equals("compression"))
+		{
+			compression();
+		}
+		else if (benchmark.equals("engine") && args.length >= 3)
+		{
+			engine("collection", new PostingFileReader(args[1], args[2], Runtime.getRuntime().availableProcessors(), false).read());
+		}
+		else if (benchmark.equals("engine"))
+		{
+			engine();
+		}
+		else if (benchmark.equals("hybrid") && args.length >= 3)
+		{
+			hybrid(args[1], args[2]);
+		}
+		else if (benchmark.equals("hybrid"))
+		{
+			hybrid();
+		}
+		else
+		{
+			System.out.println("Unknown benchmark: " + benchmark);
+		}
+
+		System.out.println("(" + blackhole + ")");
+	}
+
+	/**
+	 * It compares the intersection kernels over couples of posting lists with skewed lengths:
+	 * the longer list has 500000 postings and the shorter one is up to 10000 times shorter. The
+	 * last case is a couple of dense lists.
+	 */
+	static void intersection()
+	{
+		Random random = new Random(42);
+		int[] ratios = { 1, 4, 16, 64, 256, 1024, 10000 };
+
+		System.out.println("ratio\tlinear\tblock\tgallop\tdense\tadaptive\t(microseconds per couple)");
+
+		for (int ratio : ratios)
+		{
+			int[][] list1 = randomList(random, 500000 / ratio, DOCUMENTS);
+			int[][] list2 = randomList(random, 500000, DOCUMENTS);
+			intersectionCase(String.valueOf(ratio), list1, list2);
+		}
+
+		int[][] dense1 = randomList(random, 700000, 1000000);
+		int[][] dense2 = randomList(random, 600000, 1000000);
+		intersectionCase("dense", dense1, dense2);
+	}
+
+	private static void intersectionCase(String name, int[][] list1, int[][] list2)
+	{
+		int[] docs1 = list1[0], tfs1 = list1[1];
+		int[] docs2 = list2[0], tfs2 = list2[1];
+		int n1 = docs1.length, n2 = docs2.length;
+
+		long[] times = new long[5];
+		int[] results = new int[5];
+
+		for (int iteration = 0; iteration < WARMUP + ITERATIONS; iteration++)
+		{
+			for (int kernel = 0; kernel < 5; kernel++)
+			{
+				long start = System.nanoTime();
+				int co;
+				switch (kernel)
+				{
+					case 0: co = Intersection.linear(docs1, tfs1, 0, n1, docs2, tfs2, 0, n2); break;
+					case 1: co = Intersection.blockSkipping(docs1, tfs1, 0, n1, docs2, tfs2, 0, n2); break;
+					case 2: co = Intersection.galloping(docs1, tfs1, 0, n1, docs2, tfs2, 0, n2); break;
+					case 3: co = Intersection.dense(docs1, tfs1, 0, n1, docs2, tfs2, 0, n2); break;
+					default: co = Intersection.cooccurrence(docs1, tfs1, 0, n1, docs2, tfs2, 0, n2); break;
+				}
+				long elapsed = System.nanoTime() - start;
+
+				if (iteration >= WARMUP)
+				{
+					times[kernel] += elapsed;
+				}
+				results[kernel] = co;
+				blackhole += co;
+			}
+		}
+
+		StringBuilder row = new StringBuilder(name);
+		for (int kernel = 0; kernel < 5; kernel++)
+		{
+			row.append("\t" + String.format("%.1f", times[kernel] / (ITERATIONS * 1000.0)));
+			if (results[kernel] != results[0])
+			{
+				row.append("(!)");
+			}
+		}
+		System.out.println(row);
+	}
+
+	/**
+	 * It compares the raw and the compressed posting lists over synthetic lists: for each length
+	 * of the longer list it prints the bytes per posting, the decoding throughput and the time of
+	 * the co-occurrence of lists with skewed lengths in the two modes.
+	 */
+	static void compression()
+	{
+		Random random = new Random(42);
+		int[] lengths = { 1000, 20000, 500000 };
+		int[] ratios = { 1, 16, 256 };
+
+		System.out.println("length\tratio\tbytes/posting\tdecoding (Mpostings/s)\traw\tcompressed\t(microseconds per couple)");
+
+		for (int length : lengths)
+		{
+			for (int ratio : ratios)
+			{
+				int[][] list1 = randomList(random, Math.max(1, length / ratio), DOCUMENTS);
+				int[][] list2 = randomList(random, length, DOCUMENTS);
+
+				PostingArena arena = new PostingArena(2, list1[0].length + list2[0].length);
+				CompressedPostings compressed = new CompressedPostings(2, list1[0].length + list2[0].length);
+				for (int[][] list : new int[][][] { list1, list2 })
+				{
+					arena.addTerm("", list[0], list[1], 0, list[0].length);
+					compressed.addTerm("", list[0], list[1], 0, list[0].length);
+				}
+
+				long[] times = new long[3];
+				for (int iteration = 0; iteration < WARMUP + ITERATIONS; iteration++)
+				{
+					long start = System.nanoTime();
+					blackhole += compressed.decodeAll();
+					long decoded = System.nanoTime();
+					int raw_co = arena.cooccurrence(0, 1);
+					long raw = System.nanoTime();
+					int compressed_co = compressed.cooccurrence(0, 1);
+					long end = System.nanoTime();
+
+					if (iteration >= WARMUP)
+					{
+						times[0] += decoded - start;
+						times[1] += raw - decoded;
+						times[2] += end - raw;
+					}
+					if (raw_co != compressed_co)
+					{
+						System.out.println("(!) " + raw_co + " != " + compressed_co);
+					}
+					blackhole += raw_co + compressed_co;
+				}
+
+				System.out.println(length + "\t" + ratio
+						+ "\t" + String.format("%.2f", compressed.getBytes() / (double) compressed.getPostings())
+						+ "\t" + String.format("%.1f", compressed.getPostings() * ITERATIONS / (times[0] / 1000.0))
+						+ "\t" + String.format("%.1f", times[1] / (ITERATIONS * 1000.0))
+						+ "\t" + String.format("%.1f", times[2] / (ITERATIONS * 1000.0)));
+			}
+		}
+	}
+
+	/**
+	 * It compares the raw and the compressed posting lists of a collection: it prints the
+	 * memory used in the two modes, the decoding throughput and the time of the co-occurrence
+	 * of the first COLLECTION_PAIRS couples of index terms that share a prefix of length 3.
+	 *
+	 * @param lexicon path of the lexicon.txt file.
+	 * @param inverted path of the inverted.txt file.
+	 * @throws IOException
+	 */
+	static void compression(String lexicon, String inverted) throws IOException
+	{
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		PostingStore raw = new PostingFileReader(lexicon, inverted, parallelism, false).read();
+		CompressedPostings compressed = (CompressedPostings) new PostingFileReader(lexicon, inverted, parallelism, true).read();
+
+		System.out.println("postings\t" + raw.getPostings());
+		System.out.println("raw\t" + raw.getBytes() / (1024 * 1024) + " MB");
+		System.out.println("compressed\t" + compressed.getBytes() / (1024 * 1024) + " MB (ratio " + String.format("%.2f", raw.getBytes() / (double) Math.max(1, compressed.getBytes())) + ")");
+
+		long start = System.nanoTime();
+		blackhole += compressed.decodeAll();
+		System.out.println("decoding\t" + String.format("%.1f", compressed.getPostings() / ((System.nanoTime() - start) / 1000.0)) + " Mpostings/s");
+
+		PrefixBuckets buckets = new PrefixBuckets(raw.getTerms(), 3);
+		long[] times = new long[2];
+		long[] sums = new long[2];
+
+		for (int iteration = 0; iteration < 1 + ITERATIONS / 4; iteration++)
+		{
+			for (int mode = 0; mode < 2; mode++)
+			{
+				PostingLists store = mode == 0 ? raw : compressed;
+				long pairs = 0;
+				long sum = 0;
+				long begin = System.nanoTime();
+
+				for (int bucket = 0; bucket < buckets.size() && pairs < COLLECTION_PAIRS; bucket++)
+				{
+					for (int i = buckets.start(bucket) + 1; i < buckets.end(bucket) && pairs < COLLECTION_PAIRS; i++)
+					{
+						for (int j = buckets.start(bucket); j < i; j++)
+						{
+							sum += store.cooccurrence(buckets.key(i), buckets.key(j));
+							pairs++;
+						}
+					}
+				}
+
+				if (iteration > 0)
+				{
+					times[mode] += System.nanoTime() - begin;
+				}
+				sums[mode] = sum;
+				blackhole += sum;
+			}
+		}
+
+		System.out.println("co-occurrence\traw " + String.format("%.1f", times[0] / 1e6 / (ITERATIONS / 4)) + " ms, compressed " + String.format("%.1f", times[1] / 1e6 / (ITERATIONS / 4)) + " ms" + (sums[0] != sums[1] ? " (!)" : ""));
+	}
+
+	/**
+	 * It compares the term at a time and the document at a time engines of the co-occurrence
+	 * measure over synthetic buckets: for each number of index terms of a bucket, 8 buckets whose
+	 * index terms have from 100 to 5000 postings over DOCUMENTS / 20 documents.
+	 */
+	static void engine()
+	{
+		Random random = new Random(42);
+		int[] bucket_sizes = { 4, 16, 64, 256 };
+
+		for (int bucket_size : bucket_sizes)
+		{
+			PostingArena store = new PostingArena(8 * bucket_size, 8 * bucket_size * 3000);
+			for (int bucket = 0; bucket < 8; bucket++)
+			{
+				for (int term = 0; term < bucket_size; term++)
+				{
+					int[][] list = randomList(random, 100 + random.nextInt(4900), DOCUMENTS / 20);
+					store.addTerm("b" + (char) ('a' + bucket) + "x" + term, list[0], list[1], 0, list[0].length);
+				}
+			}
+
+			engine("bucket " + bucket_size, store);
+		}
+	}
+
+	/**
+	 * It compares the term at a time and the document at a time engines of the co-occurrence
+	 * measure over all the couples of index terms of a store that share a prefix of length 3, on a
+	 * single thread: it prints the time of the two engines and it verifies that they give the same
+	 * couples and the same sum of the co-occurrences.
+	 *
+	 * @param name name of the case.
+	 * @param store the posting lists.
+	 */
+	static void engine(String name, final PostingLists store)
+	{
+		PrefixBuckets buckets = new PrefixBuckets(store.getTerms(), 3);
+		long[] times = new long[2];
+		final long[] sums = new long[2];
+		final long[] pairs = new long[2];
+
+		for (int iteration = 0; iteration < 1 + ITERATIONS / 4; iteration++)
+		{
+			sums[0] = sums[1] = pairs[0] = pairs[1] = 0;
+
+			long begin = System.nanoTime();
+			for (int bucket = 0; bucket < buckets.size(); bucket++)
+			{
+				for (int i = buckets.start(bucket) + 1; i < buckets.end(bucket); i++)
+				{
+					for (int j = buckets.start(bucket); j < i; j++)
+					{
+						int co = store.cooccurrence(buckets.key(i), buckets.key(j));
+						if (co != 0)
+						{
+							sums[0] += co;
+							pairs[0]++;
+						}
+					}
+				}
+			}
+			long middle = System.nanoTime();
+
+			DocumentCooccurrence engine = new DocumentCooccurrence(1);
+			engine.evaluate(store, buckets, new ParallelCooccurrence.PairVisitor()
+			{
+				public void visit(int key1, int key2, int co)
+				{
+					sums[1] += co;
+					pairs[1]++;
+				}
+			});
+			engine.shutdown();
+			long end = System.nanoTime();
+
+			if (iteration > 0)
+			{
+				times[0] += middle - begin;
+				times[1] += end - middle;
+			}
+			blackhole += sums[0] + sums[1];
+		}
+
+		System.out.println(name + "\tcouples " + buckets.getCandidatePairs() + " (" + pairs[0] + " co-occurring)"
+				+ "\tterm " + String.format("%.1f", times[0] / 1e6 / (ITERATIONS / 4)) + " ms"
+				+ "\tdocument " + String.format("%.1f", times[1] / 1e6 / (ITERATIONS / 4)) + " ms"
+				+ (sums[0] != sums[1] || pairs[0] != pairs[1] ? " (!)" : ""));
+	}
+
+	/**
+	 * It looks for the crossover between the sorted arrays and the bitmaps of HybridPostings:
+	 * for each couple of densities (postings per document id) of two posting lists over 2^20
+	 * documents, it prints the time of the co-occurrence of the raw lists and of the same lists
+	 * stored only as bitmaps. A chunk is stored as a bitmap by default when it has more than
+	 * HybridPostings.ARRAY_MAX postings, a density of 1/16.
+	 */
+	static void hybrid()
+	{
+		Random random = new Random(42);
+		int documents = 1 << 20;
+		int[] densities = { 256, 64, 16, 8, 4, 2 };
+
+		System.out.println("density1\tdensity2\traw\tbitmaps\t(microseconds per couple)");
+
+		for (int i = 0; i < densities.length; i++)
+		{
+			for (int j = i; j < densities.length; j++)
+			{
+				int[][] list1 = randomList(random, documents / densities[i], documents);
+				int[][] list2 = randomList(random, documents / densities[j], documents);
+
+				PostingArena arena = new PostingArena(2, list1[0].length + list2[0].length);
+				arena.addTerm("", list1[0], list1[1], 0, list1[0].length);
+				arena.addTerm("", list2[0], list2[1], 0, list2[0].length);
+				HybridPostings bitmaps = new HybridPostings(arena, 0);
+
+				long[] times = new long[2];
+				for (int iteration = 0; iteration < WARMUP + ITERATIONS; iteration++)
+				{
+					long start = System.nanoTime();
+					int raw_co = arena.cooccurrence(0, 1);
+					long middle = System.nanoTime();
+					int bitmap_co = bitmaps.cooccurrence(0, 1);
+					long end = System.nanoTime();
+
+					if (iteration >= WARMUP)
+					{
+						times[0] += middle - start;
+						times[1] += end - middle;
+					}
+					if (raw_co != bitmap_co)
+					{
+						System.out.println("(!) " + raw_co + " != " + bitmap_co);
+					}
+					blackhole += raw_co + bitmap_co;
+				}
+
+				System.out.println("1/" + densities[i] + "\t1/" + densities[j]
+						+ "\t" + String.format("%.1f", times[0] / (ITERATIONS * 1000.0))
+						+ "\t" + String.format("%.1f", times[1] / (ITERATIONS * 1000.0)));
+			}
+		}
+	}
+
+	/**
+	 * It compares the raw and the hybrid posting lists of a collection, with the default
+	 * threshold of the bitmaps and with lower ones: it prints the number of bitmaps, the memory
+	 * and the time of the co-occurrence of the first COLLECTION_PAIRS couples of index terms that
+	 * share a prefix of length 3 and with a bitmap in at least one of them.
+	 *
+	 * @param lexicon path of the lexicon.txt file.
+	 * @param inverted path of the inverted.txt file.
+	 * @throws IOException
+	 */
+	static void hybrid(String lexicon, String inverted) throws IOException
+	{
+		PostingArena raw = (PostingArena) new PostingFileReader(lexicon, inverted, Runtime.getRuntime().availableProcessors(), false).read();
+		PrefixBuckets buckets = new PrefixBuckets(raw.getTerms(), 3);
+
+		System.out.println("postings\t" + raw.getPostings() + "\traw " + raw.getBytes() / (1024 * 1024) + " MB");
+		System.out.println("array max\tbitmaps\tcontainers\tMB\tcouples\traw\thybrid\t(ms)");
+
+		for (int array_max : new int[] { HybridPostings.ARRAY_MAX, HybridPostings.ARRAY_MAX / 4, HybridPostings.ARRAY_MAX / 16 })
+		{
+			HybridPostings hybrid = new HybridPostings(raw, array_max);
+			long[] times = new long[2];
+			long[] sums = new long[2];
+			long pairs = 0;
+
+			for (int iteration = 0; iteration < 1 + ITERATIONS / 4; iteration++)
+			{
+				for (int mode = 0; mode < 2; mode++)
+				{
+					PostingLists store = mode == 0 ? raw : hybrid;
+					long sum = 0;
+					pairs = 0;
+					long begin = System.nanoTime();
+
+					for (int bucket = 0; bucket < buckets.size() && pairs < COLLECTION_PAIRS; bucket++)
+					{
+						for (int i = buckets.start(bucket) + 1; i < buckets.end(bucket) && pairs < COLLECTION_PAIRS; i++)
+						{
+							for (int j = buckets.start(bucket); j < i; j++)
+							{
+								if (hybrid.hasBitmaps(buckets.key(i)) || hybrid.hasBitmaps(buckets.key(j)))
+								{
+									sum += store.cooccurrence(buckets.key(i), buckets.key(j));
+									pairs++;
+								}
+							}
+						}
+					}
+
+					if (iteration > 0)
+					{
+						times[mode] += System.nanoTime() - begin;
+					}
+					sums[mode] = sum;
+					blackhole += sum;
+				}
+			}
+
+			System.out.println(array_max + "\t" + hybrid.getBitmaps() + "\t" + hybrid.getContainers()
+					+ "\t" + hybrid.getBytes() / (1024 * 1024) + "\t" + pairs
+					+ "\t" + String.format("%.1f", times[0] / 1e6 / (ITERATIONS / 4))
+					+ "\t" + String.format("%.1f", times[1] / 1e6 / (ITERATIONS / 4))
+					+ (sums[0] != sums[1] ? " (!)" : ""));
+		}
+	}
+
+	/**
+	 * It returns a posting list (document ids and term frequencies) with about length postings
+	 * drawn uniformly from documents ids in [0, documents).
+	 */
+	static int[][] randomList(Random random, int length, int documents)
+	{
+		IntArrayList docs = new IntArrayList(length);
+		IntArrayList tfs = new IntArrayList(length);
+		double probability = Math.max(1, length) / (double) documents;
+
+		for (int doc = 0; doc < documents; doc++)
+		{
+			if (random.nextDouble() < probability)
+			{
+				docs.add(doc);
+				tfs.add(1 + random.nextInt(5));
+			}
+		}
+
+		return new int[][] { docs.toIntArray(), tfs.toIntArray() };
+	}
+}
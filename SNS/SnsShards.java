@@ -0,0 +1,218 @@
+/**
+ * This class runs the SNS stemmer on shards of the collection made by ranges of ids of documents.
+ * The partial co-occurrence of each shard is evaluated by a separate JVM, which reads only the
+ * postings of its range, and the partial results are merged before the graph is built:
+ *
+ * java SnsShards shard i n first end   evaluates the shard i of n, with the documents in [first, end)
+ * java SnsShards merge [files]         merges the shard files (default: all the files of the directory)
+ * java SnsShards check [files]         verifies that the shard files can be merged, without merging them
+ * java SnsShards launch n              runs n shards as local processes and merges them
+ *
+ * The shards read text_files/lexicon.txt and text_files/inverted.txt and they write
+ * shard_i_of_n.bin in the directory given by -Dsns.shards.dir (default shards), which can be shared
+ * by several machines. The merge writes lookup_table.txt and, if the checkpoints are enabled, the
+ * checkpoint of the co-occurrence. The parameters are the system properties of SnsStemmer
+ * (sns.l1, sns.l2, sns.threads, sns.compressed, sns.checkpoint, sns.checkpoint.dir).
+ */
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SnsShards
+{
+	static final String LEXICON = "text_files/lexicon.txt";
+	static final String INVERTED = "text_files/inverted.txt";
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length == 0)
+		{
+			System.out.println("usage: SnsShards shard <i> <n> <first> <end> | merge [files] | check [files] | launch <n>");
+			return;
+		}
+
+		File directory = new File(System.getProperty("sns.shards.dir", "shards"));
+
+		if (args[0].equals("shard") && args.length == 5)
+		{
+			int shard = Integer.parseInt(args[1]);
+			int shards = Integer.parseInt(args[2]);
+
+			if (!directory.isDirectory() && !directory.mkdirs())
+			{
+				throw new IOException("SnsShards: can't create the directory " + directory);
+			}
+
+			createTool().executeShard(createReader(), shard, shards, Integer.parseInt(args[3]), Integer.parseInt(args[4]), shardFile(directory, shard, shards));
+		}
+		else if (args[0].equals("merge"))
+		{
+			createTool().executeMerge(createReader(), shardFiles(args, directory));
+		}
+		else if (args[0].equals("check"))
+		{
+			List<File> files = shardFiles(args, directory);
+			createTool().checkMerge(createReader(), files);
+			System.out.println("SnsShards: the " + files.size() + " shard files can be merged");
+		}
+		else if (args[0].equals("launch") && args.length == 2)
+		{
+			launch(Integer.parseInt(args[1]), directory);
+		}
+		else
+		{
+			System.out.println("SnsShards: unknown command " + Arrays.toString(args));
+		}
+	}
+
+	/**
+	 * It splits the ids of the documents in n contiguous ranges, it runs a JVM for each shard and
+	 * it merges their results. The threads of -Dsns.threads are divided among the shards, and
+	 * -Dsns.shards.jvm gives further options of the JVMs of the shards (e.g. "-Xmx2g").
+	 *
+	 * @param shards number of shards.
+	 * @param directory directory of the shard files.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	static void launch(int shards, File directory) throws IOException, InterruptedException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("SnsShards: can't create the directory " + directory);
+		}
+
+		long documents = createReader().maxDocument() + 1L;
+		int span = (int) Math.max(1, (documents + shards - 1) / shards);
+		int threads = Math.max(1, threads() / shards);
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		List<Process> processes = new ArrayList<Process>();
+		List<File> files = new ArrayList<File>();
+
+		for (int shard = 0; shard < shards; shard++)
+		{
+			//The last range extends to the greatest id, so every document belongs to a shard.
+			int first = (int) Math.min(Integer.MAX_VALUE, (long) shard * span);
+			int end = shard == shards - 1 ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, (long) (shard + 1) * span);
+
+			List<String> command = new ArrayList<String>();
+			command.add(java);
+			String options = System.getProperty("sns.shards.jvm", "").trim();
+			if (!options.isEmpty())
+			{
+				command.addAll(Arrays.asList(options.split("\\s+")));
+			}
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add("-Dsns.l1=" + Integer.getInteger("sns.l1", 3));
+			command.add("-Dsns.l2=" + Integer.getInteger("sns.l2", 5));
+			command.add("-Dsns.threads=" + threads);
+			command.add("-Dsns.compressed=" + Boolean.getBoolean("sns.compressed"));
+			command.add("-Dsns.dense=" + Boolean.getBoolean("sns.dense"));
+			command.add("-Dsns.engine=" + System.getProperty("sns.engine", "term"));
+			command.add("-Dsns.hybrid=" + Boolean.getBoolean("sns.hybrid"));
+			command.add("-Dsns.shards.dir=" + directory.getPath());
+			command.add("SnsShards");
+			command.add("shard");
+			command.add(Integer.toString(shard));
+			command.add(Integer.toString(shards));
+			command.add(Integer.toString(first));
+			command.add(Integer.toString(end));
+
+			File log = new File(directory, "shard_" + shard + "_of_" + shards + ".log");
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(log);
+
+			processes.add(builder.start());
+			files.add(shardFile(directory, shard, shards));
+			System.out.println("Shard " + shard + " of " + shards + ": documents " + first + " - " + end + " (" + log + ")");
+		}
+
+		for (int shard = 0; shard < shards; shard++)
+		{
+			int status = processes.get(shard).waitFor();
+			if (status != 0)
+			{
+				throw new IOException("SnsShards: shard " + shard + " failed with status " + status);
+			}
+		}
+
+		createTool().executeMerge(createReader(), files);
+		System.out.println("End");
+	}
+
+	/**
+	 * It returns the shard files given after the command, or all the shard files of the directory
+	 * if none is given.
+	 */
+	private static List<File> shardFiles(String[] args, File directory)
+	{
+		List<File> files = new ArrayList<File>();
+		for (int i = 1; i < args.length; i++)
+		{
+			files.add(new File(args[i]));
+		}
+		if (files.isEmpty())
+		{
+			files = listShardFiles(directory);
+		}
+		return files;
+	}
+
+	private static SnsTool createTool()
+	{
+		SnsTool tools = new SnsTool(Integer.getInteger("sns.l1", 3), Integer.getInteger("sns.l2", 5), threads());
+		tools.setDocumentAtATime(SnsStemmer.documentAtATime());
+		tools.setHybrid(Boolean.getBoolean("sns.hybrid"));
+
+		if (Boolean.getBoolean("sns.checkpoint"))
+		{
+			tools.setCheckpoint(new Checkpoint(System.getProperty("sns.checkpoint.dir", "checkpoints")), Checkpoint.NONE);
+		}
+
+		return tools;
+	}
+
+	private static PostingFileReader createReader()
+	{
+		return new PostingFileReader(LEXICON, INVERTED, threads(), Boolean.getBoolean("sns.compressed"));
+	}
+
+	private static int threads()
+	{
+		return Integer.getInteger("sns.threads", Runtime.getRuntime().availableProcessors());
+	}
+
+	static File shardFile(File directory, int shard, int shards)
+	{
+		return new File(directory, "shard_" + shard + "_of_" + shards + ".bin");
+	}
+
+	/**
+	 * It returns the shard files of a directory, in the order of their names.
+	 */
+	static List<File> listShardFiles(File directory)
+	{
+		File[] files = directory.listFiles(new FilenameFilter()
+		{
+			public boolean accept(File dir, String name)
+			{
+				return name.startsWith("shard_") && name.endsWith(".bin");
+			}
+		});
+
+		if (files == null)
+		{
+			return new ArrayList<File>();
+		}
+
+		Arrays.sort(files);
+		return new ArrayList<File>(Arrays.asList(files));
+	}
+}
@@ -1,9 +1,9 @@
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.concurrent.Semaphore;
-import java.util.Scanner;
 
 public class SnsStemmer implements Runnable
 {
@@ -15,6 +15,13 @@ public class SnsStemmer implements Runnable
 	//It is used to guarantee that the access to end_execution is in mutual exclusion.
 	private static Semaphore semaphore = new Semaphore(1);
 	
+	//Stage from which the stemming process is resumed (--resume-from [reading|cooccurrence|last]).
+	private static int resume_stage = Checkpoint.NONE;
+	
+	//Lexicon and inverted files of the documents appended to the collection (--incremental lexicon inverted).
+	private static String delta_lexicon = null;
+	private static String delta_inverted = null;
+	
 	//Time between two registration of the use of memory
 	long sleep_time = 60 * 1000;
 	
@@ -70,62 +77,128 @@ public class SnsStemmer implements Runnable
 		
 		else
 		{
-			//Expected number of elements of the lexicon file
-			Scanner sc = new Scanner(System.in);
-			System.out.println("Collection (choice between bg, cz, it, ru, hu or de):");
-			String collection = sc.next();
+			//System.out.println("L1 parameter (recommended value 3):");
+			int l1 = Integer.getInteger("sns.l1", 3); //l1 parameter (-Dsns.l1=n)
+			//System.out.println("L2 parameter (recommended value 5):"); //l2 parameter
+			int l2 = Integer.getInteger("sns.l2", 5); //l2 parameter (-Dsns.l2=n)
+
+			//Grid of values of a sweep (-Dsns.sweep.l1=3,4 -Dsns.sweep.l2=4,5,6). If one of them is
+			//set, a lookup table is written for each setting.
+			String sweep_l1 = System.getProperty("sns.sweep.l1");
+			String sweep_l2 = System.getProperty("sns.sweep.l2");
 			
-			int n_expected_elements;
-			if(collection.equals("it"))
-			{
-				n_expected_elements = 389771;
-			}
-			else if(collection.equals("ru"))
-			{
-				n_expected_elements = 377630;
-			}
-			else if(collection.equals("de"))
-			{
-				n_expected_elements = 1030177;
-			}
-			else if(collection.equals("hu"))
-			{
-				n_expected_elements = 542382;
-			}
-			else if(collection.equals("cz"))
-			{
-				n_expected_elements = 462039;
-			}
-			else if(collection.equals("bg"))
-			{
-				n_expected_elements = 298897;
-			}
-			else if(collection.equals("enTREC678"))
+			//Number of threads used to evaluate the co-occurrence measure (-Dsns.threads=n)
+			int threads = Integer.getInteger("sns.threads", Runtime.getRuntime().availableProcessors());
+
+			//Initialization of a SnsTool object
+			SnsTool tools = new SnsTool(l1, l2, threads);
+
+			//Engine of the co-occurrence measure (-Dsns.engine=term, couple by couple, the default, or
+			//-Dsns.engine=document, document at a time)
+			tools.setDocumentAtATime(documentAtATime());
+
+			//Couples of index terms whose suffixes can't form an arc skipped before their
+			//intersection (-Dsns.prefilter=true)
+			tools.setPrefilter(Boolean.getBoolean("sns.prefilter"));
+
+			//Dense chunks of the long posting lists stored as bitmaps (-Dsns.hybrid=true)
+			tools.setHybrid(Boolean.getBoolean("sns.hybrid"));
+      
+			//Terrier index used instead of the text files (-Dsns.terrier.index=path, -Dsns.terrier.prefix=data)
+			String terrier_index = System.getProperty("sns.terrier.index");
+
+			//Memory budget in MB (-Dsns.memory.budget=n). If set, each stage is executed in memory or
+			//out of core (-Dsns.outofcore=true to always use the out-of-core mode)
+			Long memory_budget = Long.getLong("sns.memory.budget");
+
+			//Prefix partitions processed one at a time, each one within the memory budget
+			//(-Dsns.partitioned=true, default budget 256 MB)
+			boolean partitioned = Boolean.getBoolean("sns.partitioned");
+
+			//Prefix partitions processed in descending order of postings, with the lookup table
+			//published every -Dsns.progressive.flush=s seconds (default 60) and no partition started
+			//after -Dsns.progressive.budget=s seconds (-Dsns.progressive=true, default budget 256 MB)
+			boolean progressive = Boolean.getBoolean("sns.progressive");
+
+			//Reading of a sorted inverted file overlapped with the co-occurrence (-Dsns.pipelined=true)
+			boolean pipelined = Boolean.getBoolean("sns.pipelined");
+
+			//Compressed posting lists (-Dsns.compressed=true)
+			boolean compressed = Boolean.getBoolean("sns.compressed");
+
+			//Approximate co-occurrence of the long posting lists (-Dsns.approx.error=e, maximum standard
+			//error of the estimates, -Dsns.approx.length=n, minimum number of postings of an estimated
+			//index term) and exact lookup table compared with the approximate one (-Dsns.approx.compare=path)
+			String approximation_error = System.getProperty("sns.approx.error");
+			String approximation_reference = System.getProperty("sns.approx.compare");
+			if (approximation_error != null)
 			{
-				n_expected_elements = 767573;
+				tools.setApproximation(Double.parseDouble(approximation_error), Integer.getInteger("sns.approx.length", 1000));
 			}
-			else
+
+			//Checkpoints after the reading and the co-occurrence (-Dsns.checkpoint=true to enable them,
+			//-Dsns.checkpoint.dir=path for their directory). They are always enabled by --resume-from
+			//and --incremental, which start from a checkpoint.
+			if (Boolean.getBoolean("sns.checkpoint") || resume_stage != Checkpoint.NONE || delta_lexicon != null)
 			{
-				n_expected_elements = 0;
+				tools.setCheckpoint(new Checkpoint(System.getProperty("sns.checkpoint.dir", "checkpoints")), resume_stage);
 			}
-			//System.out.println("L1 parameter (recommended value 3):");
-			int l1 = 3; //l1 parameter
-			//System.out.println("L2 parameter (recommended value 5):"); //l2 parameter
-			int l2 = 5; 
-
-			//Initialization of a SnsTool object
-			SnsTool tools = new SnsTool(l1, l2);
       
 			try 
 			{
+				PostingSource source;
+				if (terrier_index != null)
+				{
+					source = new TerrierPostingSource(terrier_index, System.getProperty("sns.terrier.prefix", "data"), compressed);
+				}
+				else
+				{
+					//System.out.println("Insert the name of the lexicon file (example 'lexicon.txt'):");
+					String lex = "lexicon.txt";
+					//System.out.println("Insert the name of the inverted_list file (example 'inverted.txt'):");
+					String inv = "inverted.txt";
+					source = new PostingFileReader("text_files/" + lex, "text_files/" + inv, threads, compressed);
+				}
+
 				//Invocation of stemming process
-				//System.out.println("Insert the name of the lexicon file (example 'lexicon.txt'):");
-				String lex = "lexicon.txt";
-				//System.out.println("Insert the name of the inverted_list file (example 'inverted.txt'):");
-				String inv = "inverted.txt";
-				tools.executeSnsStemmer(lex, inv, n_expected_elements);
-				
-				sc.close();
+				if (terrier_index != null && (progressive || partitioned || memory_budget != null || pipelined))
+				{
+					//These modes read the text files in passes or in batches.
+					System.out.println("SnsStemmer: sns.progressive, sns.partitioned, sns.memory.budget and sns.pipelined can't be used with sns.terrier.index, the stemming process is not executed");
+				}
+				else if (delta_lexicon != null)
+				{
+					tools.executeIncremental(new PostingFileReader(delta_lexicon, delta_inverted, threads, compressed));
+				}
+				else if (sweep_l1 != null || sweep_l2 != null)
+				{
+					tools.executeSweep(source, parseValues(sweep_l1, l1), parseValues(sweep_l2, l2));
+				}
+				else if (progressive)
+				{
+					tools.executeProgressive((PostingFileReader) source, (memory_budget == null ? 256 : memory_budget) * 1024 * 1024, Long.getLong("sns.progressive.budget", 0) * 1000, Long.getLong("sns.progressive.flush", 60) * 1000);
+				}
+				else if (partitioned)
+				{
+					tools.executePartitioned((PostingFileReader) source, (memory_budget == null ? 256 : memory_budget) * 1024 * 1024);
+				}
+				else if (memory_budget != null)
+				{
+					tools.executeOutOfCore((PostingFileReader) source, memory_budget * 1024 * 1024, Boolean.getBoolean("sns.outofcore"), new File(System.getProperty("sns.spill.dir", "spill")));
+				}
+				else if (pipelined)
+				{
+					tools.executePipelined((PostingFileReader) source);
+				}
+				else
+				{
+					tools.executeSnsStemmer(source);
+
+					if (approximation_error != null && approximation_reference != null)
+					{
+						System.out.println(LookupTableComparison.compare(approximation_reference, "lookup_table.txt", "approximation_report.txt"));
+					}
+				}
 			} 
 			catch (IOException e1) 
 			{
@@ -152,6 +225,45 @@ public class SnsStemmer implements Runnable
 		}
 	}
 	
+	/**
+	 * It parses a comma separated list of values of a parameter.
+	 * 
+	 * @param values the list, null for the default value only.
+	 * @param default_value value used if the list is null.
+	 * @return the values.
+	 */
+	private static int[] parseValues(String values, int default_value)
+	{
+		if (values == null)
+		{
+			return new int[] { default_value };
+		}
+
+		String[] fields = values.split(",");
+		int[] parsed = new int[fields.length];
+		for (int i = 0; i < fields.length; i++)
+		{
+			parsed[i] = Integer.parseInt(fields[i].trim());
+		}
+		return parsed;
+	}
+
+	/**
+	 * It returns true if -Dsns.engine selects the document at a time engine of the
+	 * co-occurrence measure.
+	 *
+	 * @return true for -Dsns.engine=document, false for -Dsns.engine=term (the default).
+	 */
+	static boolean documentAtATime()
+	{
+		String engine = System.getProperty("sns.engine", "term");
+		if (!engine.equals("term") && !engine.equals("document"))
+		{
+			throw new IllegalArgumentException("SnsStemmer: unknown engine " + engine + " (term or document)");
+		}
+		return engine.equals("document");
+	}
+
 	/**
 	 * This method inspects the state of the variable end_execution and returns its value.
 	 * It accesses it in mutual exclusion. 
@@ -182,6 +294,22 @@ public class SnsStemmer implements Runnable
 
 	public static void main(String[] args) throws FileNotFoundException, IOException 
 	{
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].equals("--resume-from"))
+			{
+				//Without a stage the process starts from the last complete checkpoint.
+				boolean has_stage = i + 1 < args.length && !args[i + 1].startsWith("--");
+				resume_stage = Checkpoint.stage(has_stage ? args[++i] : "last");
+			}
+			else if (args[i].equals("--incremental") && i + 2 < args.length)
+			{
+				//The lookup table is updated with the posting lists of the new documents.
+				delta_lexicon = args[++i];
+				delta_inverted = args[++i];
+			}
+		}
+		
 		SnsStemmer s1 = new SnsStemmer();
 		
 		//Initialization of the thread that will keep track of the use of the memory
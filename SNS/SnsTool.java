@@ -5,152 +5,414 @@
  */
 
 //standard library
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.util.Scanner;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.ListIterator;
-import java.util.NoSuchElementException;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 //fastutil library
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
-
-//jgrapht library
-import org.jgrapht.alg.ConnectivityInspector;
-import org.jgrapht.graph.DefaultWeightedEdge;
-import org.jgrapht.graph.SimpleWeightedGraph;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
 
 public class SnsTool 
 {
 	// parameters l1 and l2.
 	int l1, l2;
 
+	// number of threads used to evaluate the co-occurrence measure.
+	int parallelism;
+
+	// number of index terms of a chunk of the lookup table.
+	static final int LOOKUP_CHUNK = 1 << 14;
+
+	// estimated bytes of a raw posting, of a compressed one, of an index term
+	// and of a potential arc (ArcTable, L2Table, SuffixTable and graph).
+	static final long RAW_POSTING_BYTES = 8;
+	static final long COMPRESSED_POSTING_BYTES = 3;
+	static final long TERM_BYTES = 96;
+	static final long ARC_BYTES = 64;
+
+	// checkpoints of the stemming process, null if they are disabled.
+	Checkpoint checkpoint;
+
+	// last stage from which the stemming process can be resumed.
+	int resume_stage = Checkpoint.NONE;
+
+	// maximum standard error of the estimates of the co-occurrence measure, 0
+	// if it is evaluated exactly, and minimum number of postings of an index
+	// term whose co-occurrences are estimated.
+	double approximation_error;
+	int approximation_length;
+
+	// true if the co-occurrence measure is evaluated document at a time by a
+	// DocumentCooccurrence object instead of couple by couple.
+	boolean document_at_a_time;
+
+	// true if the couples of index terms whose couple of suffixes can't reach
+	// a counter of 2 are skipped (PrefilteredPostings).
+	boolean prefilter;
+
+	// true if the dense chunks of the long posting lists are stored as
+	// bitmaps (HybridPostings).
+	boolean hybrid;
+
 	/**
 	 * It simply initializes the private variables l1 and l2 with the input
-	 * values.
+	 * values. The co-occurrence measure is evaluated by a single thread.
 	 * 
 	 * @param paramL1
 	 * @param paramL2
 	 */
 
 	public SnsTool(int paramL1, int paramL2) 
+	{
+		this(paramL1, paramL2, 1);
+	}
+
+	/**
+	 * It initializes the private variables l1 and l2 and the number of threads
+	 * used to evaluate the co-occurrence measure.
+	 * 
+	 * @param paramL1
+	 * @param paramL2
+	 * @param paramParallelism
+	 */
+
+	public SnsTool(int paramL1, int paramL2, int paramParallelism) 
 	{
 		l1 = paramL1;
 		l2 = paramL2;
+		parallelism = paramParallelism;
+	}
+
+	/**
+	 * It enables the checkpoints of the stemming process. A checkpoint is
+	 * written after the reading and after the evaluation of the co-occurrence
+	 * measure. If resume_from is not Checkpoint.NONE, the process starts from
+	 * the last complete checkpoint of a stage not after resume_from.
+	 * 
+	 * @param paramCheckpoint
+	 * @param resume_from
+	 */
+
+	public void setCheckpoint(Checkpoint paramCheckpoint, int resume_from) 
+	{
+		checkpoint = paramCheckpoint;
+		resume_stage = resume_from;
+	}
+
+	/**
+	 * It enables the approximate co-occurrence measure: the co-occurrence of
+	 * the couples of index terms with at least min_length postings each is
+	 * estimated from their sketches (SketchedPostings), the other couples are
+	 * evaluated exactly. The co-occurrence of an approximate run is not saved
+	 * in a checkpoint and it is never resumed from one.
+	 * 
+	 * @param error
+	 * @param min_length
+	 */
+
+	public void setApproximation(double error, int min_length) 
+	{
+		approximation_error = error;
+		approximation_length = min_length;
+	}
+
+	/**
+	 * It selects the engine that evaluates the co-occurrence measure: if
+	 * document_at_a_time is true the posting lists of the buckets are
+	 * transposed in a forward index and every document is visited once
+	 * (DocumentCooccurrence), otherwise the posting lists of each couple of
+	 * index terms are intersected. Both the engines give the same
+	 * co-occurrences; the document engine always evaluates them exactly, so it
+	 * ignores the sketches of an approximate run.
+	 * 
+	 * @param paramDocumentAtATime
+	 */
+
+	public void setDocumentAtATime(boolean paramDocumentAtATime) 
+	{
+		document_at_a_time = paramDocumentAtATime;
+	}
+
+	/**
+	 * It enables the prefilter of the couples of suffixes: before the
+	 * co-occurrence measure, an upper bound of the counter of each couple of
+	 * suffixes is counted from the index terms alone, and the posting lists of
+	 * the couples of index terms whose suffixes can't reach a counter of 2 are
+	 * not intersected (PrefilteredPostings). The lookup table doesn't change,
+	 * but those couples are missing from the potential arcs, so the checkpoint
+	 * of the co-occurrence is not written. The document engine evaluates all
+	 * the couples and it ignores the prefilter.
+	 * 
+	 * @param paramPrefilter
+	 */
+
+	public void setPrefilter(boolean paramPrefilter) 
+	{
+		prefilter = paramPrefilter;
+	}
+
+	/**
+	 * It enables the hybrid posting lists: the chunks of 65536 document ids
+	 * with more than 4096 postings of an index term are stored as bitmaps, and
+	 * the couples with a bitmap are intersected chunk by chunk, with the AND of
+	 * the words of two bitmaps (HybridPostings). It applies only to the
+	 * posting lists stored uncompressed in a PostingArena; the co-occurrences
+	 * don't change.
+	 * 
+	 * @param paramHybrid
+	 */
+
+	public void setHybrid(boolean paramHybrid) 
+	{
+		hybrid = paramHybrid;
+	}
+
+	/**
+	 * It carries out the stemming process reading the index terms and their
+	 * posting lists from the lexicon.txt and inverted.txt files of the
+	 * text_files directory.
+	 * 
+	 * @param lexicon
+	 * @param inverted
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	public void executeSnsStemmer(String lexicon, String inverted) throws FileNotFoundException, IOException
+	{
+		executeSnsStemmer(new PostingFileReader("text_files/" + lexicon, "text_files/" + inverted, parallelism));
 	}
 
 	/**
 	 * This method is responsible of carrying out the stemming process. This is
 	 * made by several procedures which are invoked one at a time, in the right
-	 * order. First of all, the lexicon and inverted files are read in order to
-	 * associate each index term to a IndexElement object. This object maintains
-	 * for each document of the input collection the number of occurrences of
-	 * that term for that document. This operation is executed in the readAll
-	 * method. Then for each couple of descriptors, the cooccurrence measure is
-	 * evaluated. This is equal to the sum of the minimum frequency between the
+	 * order. First of all, the lexicon and inverted lists are read in order to
+	 * store each index term and its posting list in a PostingStore object. This
+	 * object maintains for each document of the input collection the number of
+	 * occurrences of that term for that document. This operation is executed in the readAll
+	 * method. Then for each couple of descriptors that share a prefix of length
+	 * l1, the cooccurrence measure is evaluated. This is equal to the sum of the minimum frequency between the
 	 * two terms for each document that contains both the descriptors. This
 	 * calculation is done in arcs_nodes_evalutation method. Then in the
-	 * creationGraph method, a simple weighted graph is built from the
+	 * creationGraph method, a graph in compressed sparse row format is built from the
 	 * informations obtained in the previous methods. The following procedure is
 	 * the update of the weights of the arcs of the graph, based on the data
 	 * associated with the nodes that are directly connected with the ones that
 	 * are related to each other by the selected edge. Then the addStrongEdge
 	 * method removes from the graph the edges that are not strong edges.
 	 * Finally the connected components are found in the findConnectedComponents
-	 * method and the output of the stemming process is obtained.
+	 * method and the output of the stemming process is obtained. If the
+	 * checkpoints are enabled, the state is saved after the reading and after
+	 * the co-occurrence, and a resumed process skips the completed stages.
 	 * 
-	 * @param lexicon
-	 * @param inverted
-	 * @param expected_elements
+	 * @param source PostingSource of the index terms and their posting lists.
 	 * @throws FileNotFoundException
 	 * @throws IOException
 	 */
 
-	public void executeSnsStemmer(String lexicon, String inverted, int expected_elements) throws FileNotFoundException, IOException
+	public void executeSnsStemmer(PostingSource source) throws FileNotFoundException, IOException
 	{
 
 		long startTime = System.currentTimeMillis();
 
 		PrintWriter time = new PrintWriter("execution_time.txt", "UTF-8");
 
-		//It stores an IndexElement for each index term. This is filled up with
-		//IndexElement objects in the readAll method.
-		Int2ObjectOpenHashMap<IndexElement> map = new Int2ObjectOpenHashMap<IndexElement>(expected_elements);
+		//Ids of the suffixes of the index terms.
+		SuffixTable suffixes;
 
-		//The key of an entry is made by the concatenation of the suffixes of a
-		//couple of index terms which share the same prefix, according to the
-		//lexicographic order. The length of the common prefix must be longer
-		//or equal to l1. This Map is used in the arcs_nodes_evaluation method.
-		Object2ObjectOpenHashMap<String, L2_element> hM_l2 = new Object2ObjectOpenHashMap<String, L2_element>();
+		//The key of an entry is made by the ids of the suffixes of a couple of
+		//index terms which share the same prefix, independently of their order.
+		//The length of the common prefix must be longer or equal to l1. This
+		//table is used in the arcs_nodes_evaluation method.
+		L2Table hM_l2;
 
-		//Linked list of Arc objects. arcs_nodes_evaluation creates an Arc
-		//object only for the couples of index_terms that share a common prefix
-		//with length greater or equal to l1.
-		Object2ObjectOpenHashMap<String, Arc> arcs = new Object2ObjectOpenHashMap<String, Arc>();
+		//Every couple of index terms with a co-occurrence greater than 0.
+		ArcTable potential_arcs;
 
-		//LinkedList of the index terms that belong at least to an Arc object.
-		LinkedList<String> nodes = new LinkedList<String>();
+		//The store keeps the index terms and their posting lists, raw or
+		//compressed.
+		PostingLists store;
 
-		//Its entries are made by an index term and all the edges that have
-		//that index term as one of the extremities of the Arc object.
-		Object2ObjectOpenHashMap<String, ObjectArrayList<DefaultWeightedEdge>> arc_hash_sets = new Object2ObjectOpenHashMap<String, ObjectArrayList<DefaultWeightedEdge>>(
-				expected_elements);
+		//Two index terms can have a common prefix of length greater than or equal
+		//to l1 only if they belong to the same bucket, so the couples of index terms
+		//that belong to different buckets are never considered. The sorted order of
+		//the index terms is also used to write the lookup table.
+		PrefixBuckets buckets;
 
-		
-		long startReadingTime = System.currentTimeMillis();
+		//Last stage with a checkpoint from which the process is resumed.
+		int resume = lastStage(source, resume_stage, l1, l2);
 
-		//Reading from the lexicon.txt and inverted.txt files. 
-		//The expected number of elements of the map is equal to expected_elements.
-		readAll(map, lexicon, inverted, expected_elements);
+		if (approximation_error > 0)
+		{
+			//The checkpoint of the co-occurrence has the exact measure.
+			resume = Math.min(resume, Checkpoint.READING);
+		}
 
-		long endReadingTime = System.currentTimeMillis();
+		if (resume == Checkpoint.COOCCURRENCE)
+		{
+			long startResumeTime = System.currentTimeMillis();
+
+			//The posting lists are not needed anymore, the store keeps only
+			//the index terms.
+			Checkpoint.Cooccurrence state = checkpoint.readCooccurrence(l1, l2);
+			store = state.store;
+			suffixes = state.suffixes;
+			hM_l2 = state.hM_l2;
+			potential_arcs = state.potential_arcs;
+			buckets = new PrefixBuckets(store.getTerms(), l1);
+
+			time.print("Resume from the co-occurrence checkpoint\t = \t" + (System.currentTimeMillis() - startResumeTime) / 1000.0 + " seconds\n");
+			System.out.println("Resumed from the checkpoint of the co-occurrence");
+		}
+		else
+		{
+			store = readStage(source, resume, time);
 
-		time.print("Time for the reading from files \t = \t" + (endReadingTime - startReadingTime) / 1000.0 + " seconds\n");
-		System.out.println("Reading is finished");
-		
-		
-		
-		long startEvalTime = System.currentTimeMillis();
+			store = hybridStage(store, time);
+
+			SketchedPostings sketches = null;
+			if (approximation_error > 0)
+			{
+				long startSketchTime = System.currentTimeMillis();
 
-		arcs_nodes_evalutation(map, hM_l2, arcs, nodes);
+				ForkJoinPool pool = new ForkJoinPool(parallelism);
+				sketches = new SketchedPostings(store, approximation_error, approximation_length, pool);
+				pool.shutdown();
+				store = sketches;
 
-		long endEvalTime = System.currentTimeMillis();
+				time.print("Sketches \t = \t" + (System.currentTimeMillis() - startSketchTime) / 1000.0 + " seconds (" + sketches.getSketchedTerms() + " index terms, " + sketches.getHashes() + " hashes)\n");
+			}
 
-		time.print("Computation of the cooccurrence measure\t = \t" + (endEvalTime - startEvalTime) / 1000.0 + " seconds\n");
 
-		System.out.println("Computation of the cooccurrence is finished");
+
+			long startEvalTime = System.currentTimeMillis();
+
+			suffixes = new SuffixTable(store.size());
+			hM_l2 = new L2Table(1 << 16);
+			potential_arcs = new ArcTable(1 << 16);
+
+			buckets = new PrefixBuckets(store.getTerms(), l1);
+
+			PrefilteredPostings prefiltered = null;
+			if (prefilter)
+			{
+				long startPrefilterTime = System.currentTimeMillis();
+
+				prefiltered = new PrefilteredPostings(store, buckets, l2);
+				store = prefiltered;
+
+				time.print("Prefilter of the couples of suffixes \t = \t" + (System.currentTimeMillis() - startPrefilterTime) / 1000.0 + " seconds (" + prefiltered.getQualifyingSuffixes() + " couples of suffixes can reach a counter of 2)\n");
+			}
+
+			arcs_nodes_evalutation(store, buckets, suffixes, hM_l2, potential_arcs);
+
+			long endEvalTime = System.currentTimeMillis();
+
+			time.print("Computation of the cooccurrence measure\t = \t" + (endEvalTime - startEvalTime) / 1000.0 + " seconds\n");
+
+			System.out.println("Computation of the cooccurrence is finished");
+
+			if (prefiltered != null)
+			{
+				time.print("Intersections avoided by the prefilter \t = \t" + prefiltered.getSkippedPairs() + " of " + (prefiltered.getSkippedPairs() + prefiltered.getEvaluatedPairs()) + " couples\n");
+				System.out.println("Intersections avoided by the prefilter: " + prefiltered.getSkippedPairs());
+			}
+
+			if (sketches != null)
+			{
+				time.print("Estimated couples \t = \t" + sketches.getEstimatedPairs() + " (" + sketches.getExactPairs() + " exact)\n");
+			}
+			else if (checkpoint != null && prefiltered == null)
+			{
+				checkpoint.writeCooccurrence(l1, l2, store, suffixes, hM_l2, potential_arcs);
+				time.print("Checkpoint of the cooccurrence \t = \t" + (System.currentTimeMillis() - endEvalTime) / 1000.0 + " seconds\n");
+			}
+		}
+
+		executeGraphStages(store, buckets, hM_l2, potential_arcs, time);
+
+		long endTime = System.currentTimeMillis();
+
+		time.print("Total time spent\t = \t" + (endTime - startTime) / 1000.0 + " seconds\n");
+		time.close();
+
+	}
+	
+	/**
+	 * It carries out the stages of the stemming process that follow the
+	 * co-occurrence measure: the selection of the arcs, the graph, the
+	 * reweighting, the strong edges and the lookup table, which is written in
+	 * lookup_table.txt.
+	 * 
+	 * @param store PostingLists with the index terms.
+	 * @param buckets PrefixBuckets that gives the lexicographic order of the index terms.
+	 * @param hM_l2 L2Table of the couples of suffixes.
+	 * @param potential_arcs couples of index terms with a co-occurrence greater than 0.
+	 * @param time PrintWriter of the execution_time.txt file.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	private void executeGraphStages(PostingLists store, PrefixBuckets buckets, L2Table hM_l2, ArcTable potential_arcs, PrintWriter time) throws FileNotFoundException, IOException
+	{
+		//Table of the arcs of the graph. save_nodes_arcs adds an arc only
+		//for the couples of index_terms that share a common prefix with length
+		//greater or equal to l1 and whose suffixes have a counter >= 2.
+		ArcTable arcs = new ArcTable(1 << 16);
+
+		//Keys of the index terms that belong at least to an arc.
+		IntArrayList nodes = new IntArrayList();
+
+		save_nodes_arcs(hM_l2, potential_arcs, arcs, nodes, store.size());
 		
 		
 
 		long startGraphTime = System.currentTimeMillis();
 
-		SimpleWeightedGraph<String, DefaultWeightedEdge> graph = new SimpleWeightedGraph<String, DefaultWeightedEdge>(DefaultWeightedEdge.class);
-		
-		creationGraph(graph, arcs);
+		CsrGraph graph = creationGraph(store.size(), arcs);
 
 		long endGraphTime = System.currentTimeMillis();
 
-		time.print("Graph building\t = \t" + (endGraphTime - startGraphTime) / 1000.0 + " seconds\n");
+		time.print("Graph building\t = \t" + (endGraphTime - startGraphTime) / 1000.0 + " seconds (" + nodes.size() + " nodes, " + graph.getNumberEdges() + " edges, " + graph.getBytes() + " bytes)\n");
 		System.out.println("End of the construction of the graph");
 
 		
 		
 		long startReWTime = System.currentTimeMillis();
 
-		reWeighting(arc_hash_sets, graph, expected_elements, nodes, arcs);
+		//Pool of threads used by the last stages.
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		reWeighting(graph, arcs, pool);
 
 		long endReWTime = System.currentTimeMillis();
 
@@ -161,7 +423,7 @@ public class SnsTool
 
 		long startStrongTime = System.currentTimeMillis();
 
-		addStrongEdges(arc_hash_sets, graph, nodes, arcs);
+		addStrongEdges(graph, nodes, arcs);
 
 		long endStrongTime = System.currentTimeMillis();
 
@@ -172,667 +434,2149 @@ public class SnsTool
 
 		long startLTTime = System.currentTimeMillis();
 
-		ConnectivityInspector<String, DefaultWeightedEdge> connected_components = new ConnectivityInspector<String, DefaultWeightedEdge>(graph);
-		
-		List<Set<String>> list_of_components = connected_components.connectedSets();
-
-		TreeSet<String[]> orderedLookupTable = new TreeSet<String[]>(new LookupComparator());
+		findConnectedComponents(graph, arcs, buckets, store, pool, "lookup_table.txt");
 
-		findConnectedComponents(list_of_components, orderedLookupTable, connected_components);
+		pool.shutdown();
 		
-		long endTime = System.currentTimeMillis();
-
-		time.print("LT creation\t = \t" + (endTime - startLTTime) / 1000.0 + " seconds\n");
-		time.print("Total time spent\t = \t" + (endTime - startTime) / 1000.0 + " seconds\n");
-		time.close();
-
+		time.print("LT creation\t = \t" + (System.currentTimeMillis() - startLTTime) / 1000.0 + " seconds\n");
 	}
-	
+
 	/**
-	 * It stores a set of index terms and their term-frequencies in an open HashMap.
-	 * It considers two text files containing a set of index terms and their
-	 * term frequencies and for each of them it verifies if its first character
-	 * is actually a digit or if its length is less than l1. If it is the case
-	 * the index term is not stored in the HashMap and it won't be considered in
-	 * the following phases of the construction of the SNS stemmer. If the
-	 * length of an index term is less than l1 it can't have a common prefix of
-	 * length greater than (or equal to) l1 with any of the other index terms, 
-	 * so it would be discarded in the successive methods. If the first character 
-	 * of the index term is a digit, the corresponding index term results from a
-	 * typing error, so it isn't considered anymore.
-	 * 
-	 * @param map HashMap using open addressing strategy.
-	 * @param lexicon filename of the lexicon.txt file.
-	 * @param inverted filename of the inverted.txt file.
+	 * It carries out the stemming process for a grid of values of l1 and l2,
+	 * writing the lookup table of each setting in lookup_table_l1_l2.txt. The
+	 * stages that don't depend on the parameters are executed only once: the
+	 * reading, the sorting of the index terms and the co-occurrence measure,
+	 * which is evaluated for the couples of index terms with a common prefix
+	 * of length greater than or equal to the smallest l1. The slot of a couple
+	 * of index terms depends only on their suffixes after the common prefix,
+	 * so the counters of the slots of each setting are derived from the length
+	 * of the common prefix of each couple: a couple is considered by a setting
+	 * if that length is greater than or equal to l1, and it increases the
+	 * counter of its slot if that length is greater than l2. The graph, the
+	 * reweighting, the strong edges and the lookup table of the settings are
+	 * evaluated in parallel on the threads of the pool.
+	 * 
+	 * @param source PostingSource of the index terms and their posting lists.
+	 * @param l1_values values of l1.
+	 * @param l2_values values of l2.
 	 * @throws FileNotFoundException
 	 * @throws IOException
 	 */
 
-	private void readAll(Int2ObjectOpenHashMap<IndexElement> map, String lexicon, String inverted, int expected_elements) throws FileNotFoundException, IOException 
+	public void executeSweep(PostingSource source, final int[] l1_values, final int[] l2_values) throws FileNotFoundException, IOException
 	{
-		
-		//Key values for the input map
-		int key_index = 0;
+		long startTime = System.currentTimeMillis();
 
-		int elements_div = expected_elements / 10;
-		int status = expected_elements / elements_div;
-		
-		//Text files are read as streams of characters by means of FileReader
-		//and BufferedReader objects.
-		FileReader reader_lex = new FileReader("text_files/" + lexicon);
-		FileReader reader_inv = new FileReader("text_files/" + inverted);
+		final PrintWriter time = new PrintWriter("execution_time.txt", "UTF-8");
+
+		int min_l1 = l1_values[0];
+		for (int value : l1_values)
+		{
+			min_l1 = Math.min(min_l1, value);
+		}
 
-		BufferedReader buffer_reader_lex = new BufferedReader(reader_lex);
-		BufferedReader buffer_reader_inv = new BufferedReader(reader_inv);
+		//Only the checkpoint of the reading is used, the one of the co-occurrence
+		//depends on l1 and l2.
+		int resume = lastStage(source, Math.min(resume_stage, Checkpoint.READING), min_l1, 0);
+		final PostingStore store = readStage(source, resume, time);
 
-		//It will store single lines from lexicon.txt
-		String line_lex = "";
-		
-		//It will store single lines from inverted.txt
-		String line_inv = "";
-		
-		//It will store an index term
-		String word = "";
+		long startEvalTime = System.currentTimeMillis();
 
-		//The first row is not useful.
-		buffer_reader_lex.readLine();
-		buffer_reader_inv.readLine();
-		buffer_reader_lex.readLine();
-		buffer_reader_inv.readLine();
+		final PrefixBuckets buckets = new PrefixBuckets(store.getTerms(), min_l1);
+		final L2Table hM_l2 = new L2Table(1 << 16);
+		final ArcTable potential_arcs = new ArcTable(1 << 16);
 
-		while (true) 
-		{
+		//The counters of hM_l2 are not used: with l2 = Integer.MAX_VALUE they
+		//are never increased.
+		new SnsTool(min_l1, Integer.MAX_VALUE, parallelism).arcs_nodes_evalutation(store, buckets, new SuffixTable(store.size()), hM_l2, potential_arcs);
+
+		//Pool of threads used by the settings.
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
 
-			line_lex = buffer_reader_lex.readLine();
-			line_inv = buffer_reader_inv.readLine();
+		//Length of the common prefix of the index terms of each potential arc.
+		final int[] prefix_lengths = new int[potential_arcs.size()];
 
-			//This if-statement allows to avoid a
-			//java.lang.NullPointerException
-			if (line_lex == null) 
+		final TermArena terms = store.getTerms();
+
+		ParallelRange.run(pool, potential_arcs.size(), new ParallelRange.Body()
+		{
+			public void run(int from, int to)
 			{
-				break;
+				for (int arc = from; arc < to; arc++)
+				{
+					prefix_lengths[arc] = terms.commonPrefixLength(potential_arcs.getRow(arc), potential_arcs.getColumn(arc));
+				}
 			}
-			else 
-			{
-				Scanner scanner_line_lex = new Scanner(line_lex);
+		});
+
+		long endEvalTime = System.currentTimeMillis();
 
-				//scanner_line_object will use "," to identify tokens in the
-				//considered line.
-				scanner_line_lex.useDelimiter(",");
+		time.print("Computation of the cooccurrence measure (l1 = " + min_l1 + ")\t = \t" + (endEvalTime - startEvalTime) / 1000.0 + " seconds (" + potential_arcs.size() + " potential arcs)\n");
+		System.out.println("Computation of the cooccurrence is finished");
 
-				//We are only interested in the first word.
-				word = scanner_line_lex.next();
+		final IOException[] failure = new IOException[1];
 
-				if (word.length() < 3) 
-				{
-				} 
-				else 
+		ParallelRange.run(pool, l1_values.length * l2_values.length, 1, new ParallelRange.Body()
+		{
+			public void run(int from, int to)
+			{
+				for (int setting = from; setting < to; setting++)
 				{
-					try 
+					int l1 = l1_values[setting / l2_values.length];
+					int l2 = l2_values[setting % l2_values.length];
+
+					try
 					{
-						//If the first character of the index term is a numeric digit,
-						//the index term is not useful in the further phases of the construction
-						//of the SnS stemmer. 
-						Integer.parseInt(word.substring(0, 1));
-						
-						continue;
-					} 
-					catch (NumberFormatException e) 
+						executeSetting(l1, l2, store, buckets, hM_l2, potential_arcs, prefix_lengths, pool, time);
+					}
+					catch (IOException e)
 					{
-						Scanner scanner_line_inv = new Scanner(line_inv);
-						
-						
-						//It is not useful, it is the index of the index term
-						//in the inverted.txt file
-						//scanner_line_inv.nextInt();
-						scanner_line_inv.nextInt();
-						
-						//From now to the end of the line we consider as valid
-						//only integer values
-						scanner_line_inv.useDelimiter("[^0-9]+");
-						
-						LinkedList<WordStat> postingList = new LinkedList<WordStat>();
-
-						while (scanner_line_inv.hasNextInt()) 
+						synchronized (failure)
 						{
-							//At each iteration a single couple of id document
-							//and term frequency is considered.
-							int doc = scanner_line_inv.nextInt();
-							int tf = scanner_line_inv.nextInt();
-							
-							WordStat ws = new WordStat(doc, tf);
-							postingList.add(ws);
+							failure[0] = e;
 						}
+					}
+				}
+			}
+		});
 
-						/*
-						* There is an IndexElement object only for the index
-						* terms that at this stage are considered as
-						* potentially useful in the definition of the stems.
-						*/
-						IndexElement indexElement = new IndexElement(word, postingList);
+		pool.shutdown();
 
-						map.put(key_index++, indexElement);
+		if (failure[0] != null)
+		{
+			time.close();
+			throw failure[0];
+		}
 
-						if (key_index % elements_div == 0) 
-						{
-							System.out.println("Reading: " + (int)(((key_index / elements_div) / (double) status) * 100) + "%");
-						}
+		time.print("Total time spent\t = \t" + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds\n");
+		time.close();
+	}
 
-						scanner_line_inv.close();
-					}
+	/**
+	 * It carries out the stages of the stemming process that follow the
+	 * co-occurrence measure for a setting of l1 and l2 of the sweep, and it
+	 * writes the lookup table in lookup_table_l1_l2.txt.
+	 * 
+	 * @param l1 parameter l1 of the setting.
+	 * @param l2 parameter l2 of the setting.
+	 * @param store PostingLists with the index terms.
+	 * @param buckets PrefixBuckets that gives the lexicographic order of the index terms.
+	 * @param hM_l2 L2Table that gives the slots of the couples of suffixes.
+	 * @param potential_arcs couples of index terms with a co-occurrence greater than 0.
+	 * @param prefix_lengths length of the common prefix of each potential arc.
+	 * @param pool pool of threads.
+	 * @param time PrintWriter of the execution_time.txt file.
+	 * @throws IOException
+	 */
+
+	private void executeSetting(int l1, int l2, PostingLists store, PrefixBuckets buckets, L2Table hM_l2, ArcTable potential_arcs, int[] prefix_lengths, ForkJoinPool pool, PrintWriter time) throws IOException
+	{
+		long startTime = System.currentTimeMillis();
+
+		//Counters of the slots of hM_l2 for this setting.
+		int[] counters = new int[hM_l2.size()];
+
+		for (int potential_arc = 0; potential_arc < potential_arcs.size(); potential_arc++)
+		{
+			if (prefix_lengths[potential_arc] >= l1 && prefix_lengths[potential_arc] > l2)
+			{
+				counters[potential_arcs.getSlot(potential_arc)]++;
+			}
+		}
+
+		ArcTable arcs = new ArcTable(1 << 16);
+		IntArrayList nodes = new IntArrayList();
+		save_nodes_arcs(l1, counters, prefix_lengths, potential_arcs, arcs, nodes, store.size());
+
+		CsrGraph graph = creationGraph(store.size(), arcs);
+		reWeighting(graph, arcs, pool);
+		addStrongEdges(graph, nodes, arcs);
+
+		String file_name = "lookup_table_" + l1 + "_" + l2 + ".txt";
+		findConnectedComponents(graph, arcs, buckets, store, pool, file_name);
+
+		time.print("Setting l1 = " + l1 + ", l2 = " + l2 + "\t = \t" + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds (" + nodes.size() + " nodes, " + arcs.size() + " edges, " + file_name + ")\n");
+		System.out.println("Lookup table " + file_name + " written");
+	}
+
+	/**
+	 * It updates the result of a previous stemming process after new documents
+	 * have been appended to the collection. The state of the previous process
+	 * is the checkpoint of the co-occurrence, and the source gives the posting
+	 * lists of the new documents only (the delta), whose ids must not appear
+	 * in the previous collection.
+	 * 
+	 * The co-occurrence of two index terms is a sum over the documents, so the
+	 * new co-occurrence of a couple is the old one plus the one evaluated over
+	 * the delta, and only the couples of index terms that both appear in the
+	 * delta can change: the co-occurrence measure is evaluated only for the
+	 * couples of the buckets of the delta. The co-occurrence of a couple that
+	 * was already a potential arc is increased, a new couple becomes a
+	 * potential arc and it increases the counter of its slot as in the
+	 * arcs_nodes_evalutation method. The index terms that appear only in the
+	 * delta get new keys. The index terms and the potential arcs are found
+	 * through the dictionary and the index of the arcs of the checkpoint, which
+	 * are built the first time that a checkpoint without them is updated. That
+	 * update writes the checkpoint again with the indexes, the next ones append
+	 * their changes to it (Checkpoint.appendUpdate). The checkpoint of the
+	 * reading is deleted because it doesn't contain the delta.
+	 * 
+	 * The arcs link only index terms of the same bucket, so the graph of a
+	 * bucket changes only if the delta changes one of its arcs: the
+	 * co-occurrence of an arc, a new arc or a previous potential arc whose slot
+	 * reaches the counter 2, which are found through the list of the arcs of
+	 * the slot. The reweighting, the strong edges and the connected components
+	 * are evaluated again only for these buckets, before the delta for the
+	 * previous conflation classes and after it for the new ones, and the lines
+	 * of the other buckets are copied from the previous lookup_table.txt. The
+	 * conflation classes that changed are written in changed_classes.txt. The
+	 * cost of the update depends on the size of the delta and of the buckets
+	 * that it touches, the posting lists of the previous collection are never
+	 * read.
+	 * 
+	 * @param delta PostingSource of the posting lists of the new documents.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	public void executeIncremental(PostingSource delta) throws FileNotFoundException, IOException
+	{
+		long startTime = System.currentTimeMillis();
+
+		//The checkpoint describes the previous collection, whose inputs are not
+		//known here.
+		if (checkpoint != null)
+		{
+			checkpoint.setInputs(null);
+		}
+		if (checkpoint == null || checkpoint.lastStage(Checkpoint.COOCCURRENCE, l1, l2) != Checkpoint.COOCCURRENCE)
+		{
+			throw new IOException("executeIncremental: a checkpoint of the co-occurrence with l1 = " + l1 + " and l2 = " + l2 + " is required");
+		}
+
+		PrintWriter time = new PrintWriter("execution_time.txt", "UTF-8");
+
+		Checkpoint.Cooccurrence state = checkpoint.readCooccurrence(l1, l2);
+		PostingArena store = state.store;
+		L2Table hM_l2 = state.hM_l2;
+		ArcTable potential_arcs = state.potential_arcs;
+
+		//The index terms of the store are distinct, so their ids in the
+		//dictionary are their keys.
+		boolean indexed = state.dictionary != null;
+		if (!indexed)
+		{
+			state.dictionary = new SuffixTable(store.size());
+			for (int key = 0; key < store.size(); key++)
+			{
+				state.dictionary.intern(store.getTerms(), key, 0);
+			}
+			state.arc_index = new ArcIndex(potential_arcs, store.size(), hM_l2.size());
+		}
+		ArcIndex arc_index = state.arc_index;
+
+		long endResumeTime = System.currentTimeMillis();
+
+		time.print("Resume from the co-occurrence checkpoint\t = \t" + (endResumeTime - startTime) / 1000.0 + " seconds" + (indexed ? "" : " (index of the arcs built)") + "\n");
+
+		PostingStore delta_store = readAll(delta);
+		Checkpoint.Update update = new Checkpoint.Update(delta.fingerprint(), state);
+
+		long endReadingTime = System.currentTimeMillis();
+
+		time.print("Time for the reading of the delta \t = \t" + (endReadingTime - endResumeTime) / 1000.0 + " seconds\n");
+		reportPostings(delta_store, time);
+
+		//Key of each index term of the delta in the updated store. A new index
+		//term of the delta gets the id of the key that it receives when it is
+		//added to the store.
+		int[] keys = new int[delta_store.size()];
+		int new_terms = 0;
+		for (int delta_key = 0; delta_key < delta_store.size(); delta_key++)
+		{
+			int key = state.dictionary.intern(delta_store.getTerms(), delta_key, 0);
+			if (key == store.size())
+			{
+				store.addTerm(delta_store.getTerms(), delta_key);
+				new_terms++;
+			}
+			keys[delta_key] = key;
+		}
+
+		//Co-occurrence of the couples of index terms of the delta, the suffixes
+		//and the counters evaluated here are not used.
+		ArcTable delta_arcs = new ArcTable(1 << 16);
+		arcs_nodes_evalutation(delta_store, new PrefixBuckets(delta_store.getTerms(), l1), new SuffixTable(delta_store.size()), new L2Table(1 << 16), delta_arcs);
+
+		//The couples that were already potential arcs are updated, the other
+		//ones are new potential arcs. Their slots are created here, but the
+		//delta is applied only after the previous conflation classes are found.
+		ArcTable added_arcs = new ArcTable(1 << 10);
+
+		for (int delta_arc = 0; delta_arc < delta_arcs.size(); delta_arc++)
+		{
+			int key1 = keys[delta_arcs.getRow(delta_arc)];
+			int key2 = keys[delta_arcs.getColumn(delta_arc)];
+			int co = delta_arcs.getCooccurrence(delta_arc);
+			int arc = arc_index.get(key1, key2);
+
+			if (arc >= 0)
+			{
+				update.updated_arcs.add(arc);
+				update.added_cooccurrences.add(co);
+			}
+			else
+			{
+				added_arcs.add(key1, key2, co, suffixSlot(store, key1, key2, state.suffixes, hM_l2, false));
+			}
+		}
+		delta_arcs = null;
+
+		//Units added by the new potential arcs to the counter of each slot.
+		TermArena terms = store.getTerms();
+		int[] increments = new int[hM_l2.size()];
+		for (int arc = 0; arc < added_arcs.size(); arc++)
+		{
+			if (terms.commonPrefixLength(added_arcs.getRow(arc), added_arcs.getColumn(arc)) > l2)
+			{
+				increments[added_arcs.getSlot(arc)]++;
+			}
+		}
+
+		PrefixBuckets buckets = new PrefixBuckets(terms, l1);
+
+		//Bucket of each index term, -1 if it doesn't belong to a bucket.
+		int[] term_buckets = new int[store.size()];
+		Arrays.fill(term_buckets, -1);
+		for (int bucket = 0; bucket < buckets.size(); bucket++)
+		{
+			for (int position = buckets.start(bucket); position < buckets.end(bucket); position++)
+			{
+				term_buckets[buckets.key(position)] = bucket;
+			}
+		}
+
+		//Buckets whose graph is changed by the delta. Without a previous lookup
+		//table all the buckets are written.
+		BitSet dirty = new BitSet(buckets.size());
+		if (!new File("lookup_table.txt").isFile())
+		{
+			dirty.set(0, buckets.size());
+		}
+
+		for (int i = 0; i < update.updated_arcs.size(); i++)
+		{
+			int arc = update.updated_arcs.getInt(i);
+			int slot = potential_arcs.getSlot(arc);
+			if (hM_l2.getCounter(slot) + increments[slot] >= 2)
+			{
+				dirty.set(term_buckets[potential_arcs.getRow(arc)]);
+			}
+		}
 
+		for (int arc = 0; arc < added_arcs.size(); arc++)
+		{
+			int slot = added_arcs.getSlot(arc);
+			if (hM_l2.getCounter(slot) + increments[slot] >= 2)
+			{
+				dirty.set(term_buckets[added_arcs.getRow(arc)]);
+			}
+		}
+
+		for (int slot = 0; slot < increments.length; slot++)
+		{
+			if (increments[slot] > 0 && hM_l2.getCounter(slot) < 2 && hM_l2.getCounter(slot) + increments[slot] >= 2)
+			{
+				for (int arc = arc_index.firstOfSlot(slot); arc >= 0; arc = arc_index.nextOfSlot(arc))
+				{
+					dirty.set(term_buckets[potential_arcs.getRow(arc)]);
+				}
+			}
+		}
+
+		//Keys of the index terms of the dirty buckets, in the lexicographic order.
+		IntArrayList dirty_list = new IntArrayList();
+		for (int bucket = dirty.nextSetBit(0); bucket >= 0; bucket = dirty.nextSetBit(bucket + 1))
+		{
+			for (int position = buckets.start(bucket); position < buckets.end(bucket); position++)
+			{
+				dirty_list.add(buckets.key(position));
+			}
+		}
+		int[] dirty_keys = dirty_list.toIntArray();
+		dirty_list = null;
+
+		//Pool of threads used by the graph stages.
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+		//Conflation classes of the dirty buckets before the delta.
+		int[] roots = new int[store.size()];
+		String[] stems = bucketStems(store, dirty_keys, hM_l2, potential_arcs, arc_index, pool, roots);
+		Map<String, String[]> old_classes = conflationClasses(dirty_keys, terms, roots, stems);
+
+		for (int i = 0; i < update.updated_arcs.size(); i++)
+		{
+			potential_arcs.addCooccurrence(update.updated_arcs.getInt(i), update.added_cooccurrences.getInt(i));
+		}
+
+		for (int arc = 0; arc < added_arcs.size(); arc++)
+		{
+			int key1 = added_arcs.getRow(arc);
+			int key2 = added_arcs.getColumn(arc);
+			int slot = added_arcs.getSlot(arc);
+
+			if (terms.commonPrefixLength(key1, key2) > l2)
+			{
+				hM_l2.addCounter(slot);
+				update.counted_slots.add(slot);
+			}
+			arc_index.add(potential_arcs, potential_arcs.add(key1, key2, added_arcs.getCooccurrence(arc), slot));
+		}
+
+		long endEvalTime = System.currentTimeMillis();
+
+		time.print("Computation of the cooccurrence measure of the delta\t = \t" + (endEvalTime - endReadingTime) / 1000.0 + " seconds (" + new_terms + " new index terms, " + update.updated_arcs.size() + " updated arcs, " + added_arcs.size() + " new arcs, " + dirty.cardinality() + " of " + buckets.size() + " buckets changed)\n");
+		System.out.println("Computation of the cooccurrence of the delta is finished");
+
+		if (indexed)
+		{
+			checkpoint.appendUpdate(update, state);
+		}
+		else
+		{
+			//The updated checkpoint describes the previous inputs and the delta.
+			checkpoint.setInputs(checkpoint.getInputs(Checkpoint.COOCCURRENCE) + ", delta " + update.inputs);
+			checkpoint.writeCooccurrence(l1, l2, store, state.suffixes, hM_l2, potential_arcs, state.dictionary, arc_index);
+		}
+		checkpoint.discard(Checkpoint.READING);
+
+		long endCheckpointTime = System.currentTimeMillis();
+
+		time.print("Checkpoint of the cooccurrence \t = \t" + (endCheckpointTime - endEvalTime) / 1000.0 + " seconds" + (indexed ? " (appended)" : "") + "\n");
+
+		//Conflation classes of the dirty buckets after the delta.
+		roots = new int[store.size()];
+		stems = bucketStems(store, dirty_keys, hM_l2, potential_arcs, arc_index, pool, roots);
+		pool.shutdown();
+
+		updateLookupTable(buckets, terms, dirty, roots, stems, "lookup_table.txt");
+
+		time.print("Graph stages and LT of the changed buckets\t = \t" + (System.currentTimeMillis() - endCheckpointTime) / 1000.0 + " seconds (" + dirty_keys.length + " index terms)\n");
+
+		int changed_classes = writeChangedClasses(old_classes, conflationClasses(dirty_keys, terms, roots, stems), "changed_classes.txt");
+
+		long endTime = System.currentTimeMillis();
+
+		time.print("Changed conflation classes\t = \t" + changed_classes + " (changed_classes.txt)\n");
+		time.print("Total time spent\t = \t" + (endTime - startTime) / 1000.0 + " seconds\n");
+		time.close();
+	}
+
+	/**
+	 * It evaluates the connected components of the graph of some buckets: the
+	 * potential arcs of their index terms are found through the lists of the
+	 * rows of the index of the arcs, and the ones whose slot has a counter
+	 * greater than or equal to 2 are reweighted, filtered by the strong edges
+	 * and merged in components as in executeGraphStages.
+	 * 
+	 * @param store PostingLists that gives the index terms.
+	 * @param sorted_keys keys of the index terms of the buckets, in the lexicographic order.
+	 * @param hM_l2 L2Table of the couples of suffixes.
+	 * @param potential_arcs ArcTable of the potential arcs.
+	 * @param arc_index index of the potential arcs.
+	 * @param pool pool of threads.
+	 * @param roots root of the component of each index term of the buckets.
+	 * @return the stem of each component with at least two index terms, indexed by its root.
+	 */
+
+	private String[] bucketStems(PostingLists store, int[] sorted_keys, L2Table hM_l2, ArcTable potential_arcs, ArcIndex arc_index, ForkJoinPool pool, int[] roots)
+	{
+		ArcTable arcs = new ArcTable(1 << 10);
+
+		//Each potential arc is in the list of its row only, and the row and
+		//the column of an arc belong to the same bucket.
+		for (int key : sorted_keys)
+		{
+			for (int arc = arc_index.firstOfRow(key); arc >= 0; arc = arc_index.nextOfRow(arc))
+			{
+				if (hM_l2.getCounter(potential_arcs.getSlot(arc)) >= 2)
+				{
+					arcs.add(key, potential_arcs.getColumn(arc), potential_arcs.getCooccurrence(arc), potential_arcs.getSlot(arc));
+				}
+			}
+		}
+
+		CsrGraph graph = creationGraph(store.size(), arcs);
+
+		IntArrayList nodes = new IntArrayList();
+		for (int key : sorted_keys)
+		{
+			if (graph.start(key) < graph.end(key))
+			{
+				nodes.add(key);
+			}
+		}
+
+		reWeighting(graph, arcs, pool);
+		addStrongEdges(graph, nodes, arcs);
+
+		return findComponents(graph, arcs, sorted_keys, store.getTerms(), pool, roots);
+	}
+
+	/**
+	 * It groups the index terms of some buckets in their conflation classes.
+	 * A class is identified by its first index term in the lexicographic
+	 * order, so two components with the same stem are two classes.
+	 * 
+	 * @param sorted_keys keys of the index terms of the buckets, in the lexicographic order.
+	 * @param terms index terms.
+	 * @param roots root of the component of each index term.
+	 * @param stems stem of each component, indexed by its root.
+	 * @return the stem and the list of the index terms, separated by a space, of each class.
+	 */
+
+	private Map<String, String[]> conflationClasses(int[] sorted_keys, TermArena terms, int[] roots, String[] stems)
+	{
+		Map<Integer, StringBuilder> lists = new HashMap<Integer, StringBuilder>();
+		IntArrayList order = new IntArrayList();
+
+		for (int key : sorted_keys)
+		{
+			int root = roots[key];
+			if (stems[root] == null)
+			{
+				continue;
+			}
+
+			StringBuilder list = lists.get(root);
+			if (list == null)
+			{
+				list = new StringBuilder();
+				lists.put(root, list);
+				order.add(root);
+			}
+			else
+			{
+				list.append(' ');
+			}
+			terms.appendTo(key, list);
+		}
+
+		Map<String, String[]> classes = new HashMap<String, String[]>(2 * order.size());
+		for (int i = 0; i < order.size(); i++)
+		{
+			int root = order.getInt(i);
+			String list = lists.get(root).toString();
+			classes.put(list.substring(0, list.indexOf(' ')), new String[] { stems[root], list });
+		}
+		return classes;
+	}
+
+	/**
+	 * It writes the conflation classes that changed between two sets of
+	 * classes, in the lexicographic order of their first index terms. Each line
+	 * is made by the stem, the old index terms and the new ones, separated by a
+	 * tab; the stem is the one of the new class, or of the old class if there
+	 * is no new one.
+	 * 
+	 * @param old_classes classes before the update.
+	 * @param new_classes classes after the update.
+	 * @param file_name name of the report.
+	 * @return the number of changed classes.
+	 * @throws IOException
+	 */
+
+	private int writeChangedClasses(Map<String, String[]> old_classes, Map<String, String[]> new_classes, String file_name) throws IOException
+	{
+		TreeSet<String> first_terms = new TreeSet<String>(old_classes.keySet());
+		first_terms.addAll(new_classes.keySet());
+
+		int changed = 0;
+
+		try (PrintWriter writer = new PrintWriter(file_name, "UTF-8"))
+		{
+			for (String first_term : first_terms)
+			{
+				String[] old_class = old_classes.get(first_term);
+				String[] new_class = new_classes.get(first_term);
+
+				if (old_class == null || new_class == null || !old_class[1].equals(new_class[1]))
+				{
+					writer.print((new_class != null ? new_class[0] : old_class[0]) + "\t" + (old_class == null ? "" : old_class[1]) + "\t" + (new_class == null ? "" : new_class[1]) + "\n");
+					changed++;
+				}
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * It writes the lookup table after an incremental update: the lines of the
+	 * buckets that have not changed are copied from the previous lookup table,
+	 * the ones of the changed buckets are written from their new components.
+	 * Both follow the lexicographic order, so the buckets and the previous
+	 * lines are merged by the prefix of length l1 of their index terms. The
+	 * table is written to a temporary file, which is renamed to the lookup
+	 * table.
+	 * 
+	 * @param buckets PrefixBuckets of the updated index terms.
+	 * @param terms index terms.
+	 * @param dirty the changed buckets.
+	 * @param roots root of the component of each index term of the changed buckets.
+	 * @param stems stem of each component, indexed by its root.
+	 * @param file_name name of the lookup table, it can be missing.
+	 * @throws IOException
+	 */
+
+	private void updateLookupTable(PrefixBuckets buckets, TermArena terms, BitSet dirty, int[] roots, String[] stems, String file_name) throws IOException
+	{
+		File table = new File(file_name);
+		File temporary = new File(file_name + ".tmp");
+
+		FileOutputStream file = new FileOutputStream(temporary);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(file, StandardCharsets.UTF_8), 1 << 16);
+
+		try (BufferedReader reader = table.isFile() ? new BufferedReader(new InputStreamReader(new FileInputStream(table), StandardCharsets.UTF_8), 1 << 16) : null)
+		{
+			String line = reader == null ? null : reader.readLine();
+			StringBuilder lines = new StringBuilder();
+
+			for (int bucket = 0; bucket < buckets.size(); bucket++)
+			{
+				String prefix = terms.getPrefix(buckets.key(buckets.start(bucket)), l1);
+
+				//The previous lines of the bucket, and the ones before it that
+				//don't belong to any bucket.
+				while (line != null && line.substring(0, Math.min(l1, line.length())).compareTo(prefix) <= 0)
+				{
+					if (!dirty.get(bucket) && line.startsWith(prefix))
+					{
+						writer.write(line);
+						writer.write('\n');
+					}
+					line = reader.readLine();
+				}
+
+				if (dirty.get(bucket))
+				{
+					lines.setLength(0);
+					for (int position = buckets.start(bucket); position < buckets.end(bucket); position++)
+					{
+						int key = buckets.key(position);
+						String stem = stems[roots[key]];
+
+						if (stem != null)
+						{
+							terms.appendTo(key, lines);
+							lines.append('\t').append(stem).append('\n');
+						}
+					}
+					writer.write(lines.toString());
+				}
+			}
+
+			writer.flush();
+			file.getFD().sync();
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		replaceFile(temporary, table);
+	}
+
+	/**
+	 * It wraps the posting lists of an arena in a HybridPostings object if the
+	 * hybrid posting lists are enabled, otherwise it returns the store as is.
+	 * 
+	 * @param store
+	 * @param time
+	 * @return the store used to evaluate the co-occurrence measure.
+	 */
+
+	private PostingLists hybridStage(PostingLists store, PrintWriter time) 
+	{
+		if (!hybrid || !(store instanceof PostingArena))
+		{
+			return store;
+		}
+
+		long startHybridTime = System.currentTimeMillis();
+
+		HybridPostings hybrid_store = new HybridPostings((PostingArena) store);
+
+		time.print("Bitmaps of the dense posting lists \t = \t" + (System.currentTimeMillis() - startHybridTime) / 1000.0 + " seconds (" + hybrid_store.getBitmaps() + " bitmaps of " + hybrid_store.getContainers() + " containers, " + hybrid_store.getBytes() / (1024 * 1024) + " MB)\n");
+
+		return hybrid_store;
+	}
+
+	/**
+	 * It evaluates the partial co-occurrence of a shard: only the postings of
+	 * the documents with an id in [first_document, end_document) are read, and
+	 * the co-occurrence measure of the couples of index terms that share a
+	 * prefix of length l1 is evaluated over them. The couples with a partial
+	 * co-occurrence greater than 0 are written in a ShardRun file in ascending
+	 * order of their key. The suffixes and the counters are evaluated by the
+	 * merge, which sees the co-occurrence over the whole collection.
+	 * 
+	 * @param source PostingFileReader of the whole collection.
+	 * @param shard index of the shard.
+	 * @param shards number of shards.
+	 * @param first_document first id of the documents of the shard.
+	 * @param end_document end of the ids of the documents of the shard (exclusive).
+	 * @param file the ShardRun file.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	public void executeShard(PostingFileReader source, int shard, int shards, int first_document, int end_document, File file) throws FileNotFoundException, IOException
+	{
+		long startTime = System.currentTimeMillis();
+
+		PrintWriter time = new PrintWriter("execution_time_shard_" + shard + ".txt", "UTF-8");
+
+		source.setDocumentRange(first_document, end_document);
+		PostingLists store = readAll(source);
+
+		long endReadingTime = System.currentTimeMillis();
+
+		time.print("Time for the reading of the shard \t = \t" + (endReadingTime - startTime) / 1000.0 + " seconds (documents " + first_document + " - " + end_document + ")\n");
+		reportPostings(store, time);
+		store = hybridStage(store, time);
+
+		ArcTable partial_arcs = new ArcTable(1 << 16);
+		arcs_nodes_evalutation(store, new PrefixBuckets(store.getTerms(), l1), new SuffixTable(store.size()), new L2Table(1 << 16), partial_arcs);
+
+		long[] keys = new long[partial_arcs.size()];
+		long[] cooccurrences = new long[partial_arcs.size()];
+		for (int arc = 0; arc < partial_arcs.size(); arc++)
+		{
+			keys[arc] = ArcTable.key(partial_arcs.getRow(arc), partial_arcs.getColumn(arc));
+			cooccurrences[arc] = partial_arcs.getCooccurrence(arc);
+		}
+		LongArrays.radixSort(keys, cooccurrences);
+
+		long endEvalTime = System.currentTimeMillis();
+
+		time.print("Computation of the partial cooccurrence measure\t = \t" + (endEvalTime - endReadingTime) / 1000.0 + " seconds (" + keys.length + " couples)\n");
+
+		ShardRun.write(file, ShardRun.header(l1, shard, shards, first_document, end_document, store), keys, cooccurrences, keys.length);
+
+		long endTime = System.currentTimeMillis();
+
+		time.print("Writing of " + file + "\t = \t" + (endTime - endEvalTime) / 1000.0 + " seconds\n");
+		time.print("Total time spent\t = \t" + (endTime - startTime) / 1000.0 + " seconds\n");
+		time.close();
+	}
+
+	/**
+	 * It merges the partial co-occurrences of the shards and it carries out
+	 * the rest of the stemming process. The files must come from shards with
+	 * the same l1, the same index terms and ranges of documents that cover all
+	 * the ids without overlapping. The couples are merged by a k-way merge in
+	 * ascending order of their key and the partial co-occurrences of a couple
+	 * are summed, so the result doesn't depend on the order of the files or on
+	 * the number of shards. Each couple becomes a potential arc as in the
+	 * arcs_nodes_evalutation method, then the checkpoint of the co-occurrence
+	 * is written (if the checkpoints are enabled) and the stages that follow
+	 * the co-occurrence measure write lookup_table.txt.
+	 * 
+	 * @param source PostingFileReader of the collection, only its lexicon is read.
+	 * @param files the ShardRun files of all the shards.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	public void executeMerge(PostingFileReader source, List<File> files) throws FileNotFoundException, IOException
+	{
+		long startTime = System.currentTimeMillis();
+
+		PrintWriter time = new PrintWriter("execution_time.txt", "UTF-8");
+
+		//The index terms are read from the lexicon, their keys are the same of the shards.
+		final PostingStore store = readTerms(source.getLexicon());
+
+		final SuffixTable suffixes = new SuffixTable(store.size());
+		final L2Table hM_l2 = new L2Table(1 << 16);
+		final ArcTable potential_arcs = new ArcTable(1 << 16);
+
+		//Each couple becomes a potential arc.
+		mergeRuns(files, store, new ParallelCooccurrence.PairVisitor()
+		{
+			public void visit(int key1, int key2, int co)
+			{
+				addPotentialArc(store, key1, key2, co, suffixes, hM_l2, potential_arcs);
+			}
+		});
+
+		long endMergeTime = System.currentTimeMillis();
+
+		time.print("Merge of the shards\t = \t" + (endMergeTime - startTime) / 1000.0 + " seconds (" + files.size() + " shards, " + potential_arcs.size() + " potential arcs)\n");
+		System.out.println("Merge of the shards is finished");
+
+		if (checkpoint != null)
+		{
+			checkpoint.setInputs(source.fingerprint());
+			checkpoint.writeCooccurrence(l1, l2, store, suffixes, hM_l2, potential_arcs);
+			checkpoint.discard(Checkpoint.READING);
+			time.print("Checkpoint of the cooccurrence \t = \t" + (System.currentTimeMillis() - endMergeTime) / 1000.0 + " seconds\n");
+		}
+
+		executeGraphStages(store, new PrefixBuckets(store.getTerms(), l1), hM_l2, potential_arcs, time);
+
+		time.print("Total time spent\t = \t" + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds\n");
+		time.close();
+	}
+
+	/**
+	 * It carries out the stemming process within a memory budget. The memory
+	 * needed by each stage is estimated from the statistics of the lexicon:
+	 * the number of postings (the sum of the document frequencies) and the
+	 * number of couples of index terms of the buckets, an upper bound of the
+	 * potential arcs. If everything fits in the budget, the stemming process
+	 * is the usual one. Otherwise, for each stage the in-memory or the
+	 * out-of-core mode is chosen:
+	 * 
+	 * - reading: if the postings don't fit in half of the budget, the
+	 *   collection is read in several passes, each one over a range of ids of
+	 *   documents whose postings fit in it;
+	 * - co-occurrence: the couples with a partial co-occurrence greater than 0
+	 *   of each pass are given to a PairSpill whose buffer fits in the other
+	 *   half of the budget, and they are written in sorted runs when the
+	 *   buffer is full;
+	 * - merge: the runs are combined by the k-way merge of mergeRuns twice.
+	 *   The first merge evaluates the counters of the slots, the latter keeps
+	 *   only the couples whose slot has a counter greater than or equal to 2,
+	 *   so the potential arcs that can't become arcs are never kept in memory.
+	 * 
+	 * The checkpoint of the co-occurrence is not written in the out-of-core
+	 * mode, because it would contain only the arcs.
+	 * 
+	 * @param source PostingFileReader of the collection.
+	 * @param budget memory budget in bytes.
+	 * @param force true to use the out-of-core mode even if everything fits in the budget.
+	 * @param spill_directory directory of the runs.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	public void executeOutOfCore(PostingFileReader source, long budget, boolean force, File spill_directory) throws FileNotFoundException, IOException
+	{
+		long startTime = System.currentTimeMillis();
+
+		//Statistics of the lexicon.
+		final PostingStore store = readTerms(source.getLexicon());
+		long postings_bytes = source.estimatePostings() * (source.isCompressed() ? COMPRESSED_POSTING_BYTES : RAW_POSTING_BYTES) + TERM_BYTES * store.size();
+		long arcs_bytes = new PrefixBuckets(store.getTerms(), l1).getCandidatePairs() * ARC_BYTES;
+
+		if (!force && postings_bytes + arcs_bytes <= budget)
+		{
+			System.out.println("Memory budget: in-memory mode (" + postings_bytes + " + " + arcs_bytes + " bytes estimated, " + budget + " bytes of budget)");
+			executeSnsStemmer(source);
+			return;
+		}
+
+		PrintWriter time = new PrintWriter("execution_time.txt", "UTF-8");
+
+		//Half of the budget is given to the postings of a pass and half to the
+		//buffer of the PairSpill.
+		long half_budget = Math.max(1, budget / 2);
+
+		//Reading: the number of passes over ranges of documents.
+		int passes = (int) Math.max(1, (postings_bytes + half_budget - 1) / half_budget);
+
+		//Co-occurrence: the couples of the buffer of the PairSpill.
+		int capacity = (int) Math.max(1 << 16, Math.min(Integer.MAX_VALUE - 8, half_budget / PairSpill.RECORD_BYTES));
+
+		time.print("Memory budget \t = \t" + budget + " bytes (estimated " + postings_bytes + " bytes of postings, at most " + arcs_bytes + " bytes of potential arcs)\n");
+		time.print("Out-of-core mode \t = \t" + passes + " passes over the documents, runs of " + capacity + " couples\n");
+		System.out.println("Memory budget: out-of-core mode (" + passes + " passes, runs of " + capacity + " couples)");
+
+		long documents = source.maxDocument() + 1L;
+		int span = (int) Math.max(1, (documents + passes - 1) / passes);
+		PairSpill spill = new PairSpill(spill_directory, capacity);
+
+		try
+		{
+			for (int pass = 0; pass < passes; pass++)
+			{
+				long startPassTime = System.currentTimeMillis();
+
+				//The last range extends to the greatest id, so every document belongs to a pass.
+				int first = (int) Math.min(Integer.MAX_VALUE, (long) pass * span);
+				int end = pass == passes - 1 ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, (long) (pass + 1) * span);
+
+				source.setDocumentRange(first, end);
+				PostingStore pass_store = readAll(source);
+
+				spill.start(ShardRun.header(l1, pass, passes, first, end, pass_store), "pass_" + pass);
+				evaluatePairs(pass_store, new PrefixBuckets(pass_store.getTerms(), l1), spill);
+				spill.flush();
+
+				time.print("Pass " + (pass + 1) + " of " + passes + "\t = \t" + (System.currentTimeMillis() - startPassTime) / 1000.0 + " seconds (documents " + first + " - " + end + ", " + pass_store.getPostings() + " postings, " + spill.getFiles().size() + " runs so far)\n");
+				System.out.println("Pass " + (pass + 1) + " of " + passes + " is finished");
+			}
+			source.setDocumentRange(0, Integer.MAX_VALUE);
+
+			long startMergeTime = System.currentTimeMillis();
+
+			final SuffixTable suffixes = new SuffixTable(store.size());
+			final L2Table hM_l2 = new L2Table(1 << 16);
+			final ArcTable potential_arcs = new ArcTable(1 << 16);
+
+			//First merge: the counters of the slots.
+			mergeRuns(spill.getFiles(), store, new ParallelCooccurrence.PairVisitor()
+			{
+				public void visit(int key1, int key2, int co)
+				{
+					suffixSlot(store, key1, key2, suffixes, hM_l2, true);
+				}
+			});
+
+			//Latter merge: only the couples that become arcs.
+			mergeRuns(spill.getFiles(), store, new ParallelCooccurrence.PairVisitor()
+			{
+				public void visit(int key1, int key2, int co)
+				{
+					int slot = suffixSlot(store, key1, key2, suffixes, hM_l2, false);
+					if (hM_l2.getCounter(slot) >= 2)
+					{
+						potential_arcs.add(key1, key2, co, slot);
+					}
+				}
+			});
+
+			time.print("Merge of the runs\t = \t" + (System.currentTimeMillis() - startMergeTime) / 1000.0 + " seconds (" + spill.getFiles().size() + " runs, " + potential_arcs.size() + " arcs)\n");
+			System.out.println("Merge of the runs is finished");
+
+			executeGraphStages(store, new PrefixBuckets(store.getTerms(), l1), hM_l2, potential_arcs, time);
+		}
+		finally
+		{
+			spill.delete();
+		}
+
+		time.print("Total time spent\t = \t" + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds\n");
+		time.close();
+	}
+
+	/**
+	 * It carries out the stemming process one prefix partition at a time, so
+	 * that only the posting lists of a partition are in memory. An arc joins
+	 * two index terms of the same bucket, so the graph, the reweighting, the
+	 * strong edges and the connected components of a bucket don't depend on
+	 * the other buckets: the only global state is the L2Table of the couples
+	 * of suffixes, whose counters are increased by the couples of all the
+	 * buckets. A partition is a range of consecutive buckets whose postings
+	 * and potential arcs, estimated from the document frequencies of the
+	 * lexicon, fit in the budget; a bucket larger than the budget is a
+	 * partition alone. The process has two phases:
+	 * - the counting pass reads the posting lists of each partition, it
+	 *   evaluates the co-occurrence of its couples and it increases the
+	 *   counters of their slots, then it frees the posting lists;
+	 * - the partitions are read again, one at a time: the couples of a
+	 *   partition whose slot has a counter greater than or equal to 2 are its
+	 *   arcs, and its graph is processed and its lines of the lookup table are
+	 *   appended to lookup_table.txt before the next partition is read.
+	 * The buckets are in lexicographic order, so the lookup table is the same
+	 * of the whole process. If there is a single partition, its posting lists
+	 * are read only once. The index terms of a partition get keys local to it.
+	 * 
+	 * @param source PostingFileReader of the whole collection.
+	 * @param budget memory budget of a partition in bytes.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	public void executePartitioned(PostingFileReader source, long budget) throws FileNotFoundException, IOException
+	{
+		long startTime = System.currentTimeMillis();
+
+		PrintWriter time = new PrintWriter("execution_time.txt", "UTF-8");
+
+		//Buckets of all the index terms, with their global keys.
+		PostingArena lexicon_terms = readTerms(source.getLexicon());
+		PrefixBuckets buckets = new PrefixBuckets(lexicon_terms.getTerms(), l1);
+		IntArrayList partition_bounds = partitionBuckets(buckets, source.estimateLengths(), source.isCompressed(), budget, time);
+		int partitions = partition_bounds.size() - 1;
+
+
+
+		long startCountTime = System.currentTimeMillis();
+
+		SuffixTable suffixes = new SuffixTable(1 << 16);
+		L2Table hM_l2 = new L2Table(1 << 16);
+
+		//Posting lists of the only partition, kept for the second phase.
+		PostingStore single_store = null;
+
+		for (int partition = 0; partition < partitions; partition++)
+		{
+			PostingStore store = countPartition(source, buckets, partition_bounds, partition, lexicon_terms.size(), suffixes, hM_l2);
+
+			if (partitions == 1)
+			{
+				single_store = store;
+			}
+		}
+
+		long endCountTime = System.currentTimeMillis();
+
+		time.print("Counting pass\t = \t" + (endCountTime - startCountTime) / 1000.0 + " seconds (" + suffixes.size() + " suffixes, " + hM_l2.size() + " couples of suffixes)\n");
+		System.out.println("Counting pass is finished");
+
+
+
+		//Pool of threads used by the stages of the partitions.
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		OutputStream writer = new BufferedOutputStream(new FileOutputStream("lookup_table.txt"), 1 << 16);
+
+		//Number of nodes and of arcs of the partitions.
+		long[] totals = new long[2];
+
+		try
+		{
+			for (int partition = 0; partition < partitions; partition++)
+			{
+				PostingStore store = single_store != null ? single_store : readPartition(source, buckets, partition_bounds.getInt(partition), partition_bounds.getInt(partition + 1), lexicon_terms.size());
+				processPartition(store, suffixes, hM_l2, pool, writer, totals);
+				single_store = null;
+			}
+		}
+		finally
+		{
+			writer.close();
+			pool.shutdown();
+		}
+
+		time.print("Partitions processing\t = \t" + (System.currentTimeMillis() - endCountTime) / 1000.0 + " seconds (" + totals[0] + " nodes, " + totals[1] + " arcs)\n");
+		time.print("Total time spent\t = \t" + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds\n");
+		time.close();
+	}
+
+	/**
+	 * It carries out the stemming process one prefix partition at a time as
+	 * executePartitioned, publishing a lookup table that grows while the
+	 * partitions are processed. The conflation classes never cross a bucket,
+	 * so once the counting pass has read all the partitions, the lines of a
+	 * partition are final and they don't depend on the partitions processed
+	 * before it. The partitions are then processed in descending order of
+	 * postings, estimated from the lexicon, so the index terms that cover
+	 * most of the collection are stemmed first. The lines of each partition
+	 * are kept in memory, and every flush_interval milliseconds the lines of
+	 * the processed partitions are written in the order of the buckets to a
+	 * temporary file, which replaces lookup_table.txt by an atomic rename: a
+	 * reader always finds a complete table, where the index terms of the
+	 * partitions not processed yet are missing and so map to themselves. When
+	 * all the partitions are processed the table is the one of
+	 * executePartitioned.
+	 * 
+	 * If time_budget is greater than 0, no partition is started after
+	 * time_budget milliseconds from the start: the last table published is
+	 * the result, and it is empty if the counting pass has not been
+	 * completed.
+	 * 
+	 * @param source PostingFileReader of the whole collection.
+	 * @param budget memory budget of a partition in bytes.
+	 * @param time_budget wall-clock budget in milliseconds, 0 for no budget.
+	 * @param flush_interval milliseconds between two publications of the lookup table.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	public void executeProgressive(PostingFileReader source, long budget, long time_budget, long flush_interval) throws FileNotFoundException, IOException
+	{
+		long startTime = System.currentTimeMillis();
+		long deadline = time_budget > 0 ? startTime + time_budget : Long.MAX_VALUE;
+
+		PrintWriter time = new PrintWriter("execution_time.txt", "UTF-8");
+
+		//Buckets of all the index terms, with their global keys.
+		PostingArena lexicon_terms = readTerms(source.getLexicon());
+		PrefixBuckets buckets = new PrefixBuckets(lexicon_terms.getTerms(), l1);
+		int[] lengths = source.estimateLengths();
+		IntArrayList partition_bounds = partitionBuckets(buckets, lengths, source.isCompressed(), budget, time);
+		int partitions = partition_bounds.size() - 1;
+
+		//Estimated postings of each partition.
+		final long[] masses = new long[partitions];
+		long total_mass = 0;
+		for (int partition = 0; partition < partitions; partition++)
+		{
+			for (int bucket = partition_bounds.getInt(partition); bucket < partition_bounds.getInt(partition + 1); bucket++)
+			{
+				for (int position = buckets.start(bucket); position < buckets.end(bucket); position++)
+				{
+					int key = buckets.key(position);
+					masses[partition] += key < lengths.length ? lengths[key] : 0;
+				}
+			}
+			total_mass += masses[partition];
+		}
+		lengths = null;
+
+		//Partitions in descending order of postings.
+		Integer[] order = new Integer[partitions];
+		for (int partition = 0; partition < partitions; partition++)
+		{
+			order[partition] = partition;
+		}
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer partition1, Integer partition2)
+			{
+				int compare = Long.compare(masses[partition2], masses[partition1]);
+				return compare != 0 ? compare : Integer.compare(partition1, partition2);
+			}
+		});
+
+
+
+		long startCountTime = System.currentTimeMillis();
+
+		SuffixTable suffixes = new SuffixTable(1 << 16);
+		L2Table hM_l2 = new L2Table(1 << 16);
+
+		//Posting lists of the only partition, kept for the second phase.
+		PostingStore single_store = null;
+
+		int counted = 0;
+		while (counted < partitions && System.currentTimeMillis() < deadline)
+		{
+			PostingStore store = countPartition(source, buckets, partition_bounds, counted, lexicon_terms.size(), suffixes, hM_l2);
+
+			if (partitions == 1)
+			{
+				single_store = store;
+			}
+			counted++;
+		}
+
+		long endCountTime = System.currentTimeMillis();
+
+		time.print("Counting pass\t = \t" + (endCountTime - startCountTime) / 1000.0 + " seconds (" + counted + " of " + partitions + " partitions, " + suffixes.size() + " suffixes, " + hM_l2.size() + " couples of suffixes)\n");
+		System.out.println(counted == partitions ? "Counting pass is finished" : "Counting pass stopped by the wall-clock budget");
+
+
+
+		//Lines of the lookup table of each partition, null if it has not been processed.
+		byte[][] lines = new byte[partitions][];
+
+		int processed = 0;
+		long processed_mass = 0;
+		int flushes = 0;
+		long[] totals = new long[2];
+
+		if (counted == partitions)
+		{
+			//Pool of threads used by the stages of the partitions.
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			long last_flush = System.currentTimeMillis();
+
+			try
+			{
+				while (processed < partitions && System.currentTimeMillis() < deadline)
+				{
+					int partition = order[processed];
+					PostingStore store = single_store != null ? single_store : readPartition(source, buckets, partition_bounds.getInt(partition), partition_bounds.getInt(partition + 1), lexicon_terms.size());
+
+					ByteArrayOutputStream partition_lines = new ByteArrayOutputStream();
+					processPartition(store, suffixes, hM_l2, pool, partition_lines, totals);
+					lines[partition] = partition_lines.toByteArray();
+
+					processed++;
+					processed_mass += masses[partition];
+					single_store = null;
+
+					if (processed < partitions && System.currentTimeMillis() - last_flush >= flush_interval)
+					{
+						publishLookupTable(lines, "lookup_table.txt");
+						flushes++;
+						last_flush = System.currentTimeMillis();
+
+						System.out.println("Lookup table published: " + processed + " of " + partitions + " partitions (" + (int) (processed_mass * 100 / Math.max(1, total_mass)) + "% of the postings)");
+					}
+				}
+			}
+			finally
+			{
+				pool.shutdown();
+			}
+		}
+
+		publishLookupTable(lines, "lookup_table.txt");
+		flushes++;
+
+		time.print("Partitions processing\t = \t" + (System.currentTimeMillis() - endCountTime) / 1000.0 + " seconds (" + processed + " of " + partitions + " partitions, " + processed_mass + " of " + total_mass + " postings estimated, " + totals[0] + " nodes, " + totals[1] + " arcs, " + flushes + " publications of the lookup table)\n");
+		time.print("Total time spent\t = \t" + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds\n");
+		time.close();
+
+		System.out.println("Lookup table published: " + processed + " of " + partitions + " partitions" + (processed < partitions ? " (wall-clock budget exhausted)" : ""));
+	}
+
+	/**
+	 * It carries out the stemming process with the reading of the inverted
+	 * file overlapped with the co-occurrence measure (PostingPipeline). The
+	 * index terms of the lexicon must be sorted in lexicographic order,
+	 * otherwise the phased executeSnsStemmer is used. A reader thread cuts the
+	 * inverted file in batches that never split a bucket, the batches are
+	 * evaluated by the threads of a pool as soon as they are read, and the
+	 * calling thread adds the index terms of each batch to a store without
+	 * posting lists and its couples to the potential arcs. The reader stops
+	 * while the queue of the batches is full, so only the posting lists of a
+	 * few batches are in memory. The checkpoint of the reading is not used;
+	 * the checkpoint of the co-occurrence is written as in executeSnsStemmer.
+	 * 
+	 * @param source PostingFileReader of the collection.
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+
+	public void executePipelined(PostingFileReader source) throws FileNotFoundException, IOException
+	{
+		if (!source.isSorted())
+		{
+			System.out.println("The lexicon is not sorted, the pipelined mode is not used");
+			executeSnsStemmer(source);
+			return;
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		PrintWriter time = new PrintWriter("execution_time.txt", "UTF-8");
+
+		//Index terms of the batches, with their global keys.
+		final PostingArena store = new PostingArena(1 << 16, 0);
+		final SuffixTable suffixes = new SuffixTable(1 << 16);
+		final L2Table hM_l2 = new L2Table(1 << 16);
+		final ArcTable potential_arcs = new ArcTable(1 << 16);
+
+		PostingPipeline pipeline = new PostingPipeline(parallelism, l1);
+
+		try
+		{
+			pipeline.run(source, new PostingPipeline.BatchVisitor()
+			{
+				public void terms(int first_key, TermArena terms)
+				{
+					for (int key = 0; key < terms.size(); key++)
+					{
+						store.addTerm(terms, key);
+					}
+				}
+
+				public void visit(int key1, int key2, int co)
+				{
+					addPotentialArc(store, key1, key2, co, suffixes, hM_l2, potential_arcs);
+				}
+			});
+		}
+		finally
+		{
+			pipeline.shutdown();
+		}
+
+		store.trim();
+
+		long endEvalTime = System.currentTimeMillis();
+
+		time.print("Pipelined reading and computation of the cooccurrence measure\t = \t" + (endEvalTime - startTime) / 1000.0 + " seconds (" + pipeline.getBatches() + " batches, reading " + pipeline.getReadingTime() / 1000.0 + " seconds, waiting for the batches " + pipeline.getWaitingTime() / 1000.0 + " seconds)\n");
+
+		System.out.println("Computation of the cooccurrence is finished");
+
+		if (checkpoint != null)
+		{
+			checkpoint.setInputs(source.fingerprint());
+			checkpoint.writeCooccurrence(l1, l2, store, suffixes, hM_l2, potential_arcs);
+			checkpoint.discard(Checkpoint.READING);
+			time.print("Checkpoint of the cooccurrence \t = \t" + (System.currentTimeMillis() - endEvalTime) / 1000.0 + " seconds\n");
+		}
+
+		executeGraphStages(store, new PrefixBuckets(store.getTerms(), l1), hM_l2, potential_arcs, time);
+
+		time.print("Total time spent\t = \t" + (System.currentTimeMillis() - startTime) / 1000.0 + " seconds\n");
+		time.close();
+	}
+
+	/**
+	 * It reads the posting lists of the index terms of a range of buckets.
+	 * 
+	 * @param source PostingFileReader of the whole collection.
+	 * @param buckets PrefixBuckets of all the index terms.
+	 * @param first_bucket first bucket of the range.
+	 * @param end_bucket end of the range of buckets (exclusive).
+	 * @param number_terms number of index terms of the collection.
+	 * @return PostingStore with the index terms of the buckets, with keys in the order of the lexicon.
+	 * @throws IOException
+	 */
+
+	private PostingStore readPartition(PostingFileReader source, PrefixBuckets buckets, int first_bucket, int end_bucket, int number_terms) throws IOException
+	{
+		BitSet keys = new BitSet(number_terms);
+		for (int bucket = first_bucket; bucket < end_bucket; bucket++)
+		{
+			for (int position = buckets.start(bucket); position < buckets.end(bucket); position++)
+			{
+				keys.set(buckets.key(position));
+			}
+		}
+
+		source.setTermSelection(keys);
+		try
+		{
+			return readAll(source);
+		}
+		finally
+		{
+			source.setTermSelection(null);
+		}
+	}
+
+	/**
+	 * It splits the buckets in prefix partitions: a partition is a range of
+	 * consecutive buckets whose postings and potential arcs, estimated from
+	 * the document frequencies of the lexicon, fit in the budget; a bucket
+	 * larger than the budget is a partition alone.
+	 * 
+	 * @param buckets PrefixBuckets of all the index terms.
+	 * @param lengths estimated number of postings of each index term.
+	 * @param compressed true if the posting lists are compressed.
+	 * @param budget memory budget of a partition in bytes.
+	 * @param time PrintWriter of the execution times.
+	 * @return the first bucket of each partition, followed by the number of buckets.
+	 */
+
+	private IntArrayList partitionBuckets(PrefixBuckets buckets, int[] lengths, boolean compressed, long budget, PrintWriter time)
+	{
+		long posting_bytes = compressed ? COMPRESSED_POSTING_BYTES : RAW_POSTING_BYTES;
+
+		//First bucket of each partition, followed by the number of buckets.
+		IntArrayList partition_bounds = new IntArrayList();
+		partition_bounds.add(0);
+		long partition_bytes = 0;
+		long largest_bytes = 0;
+
+		for (int bucket = 0; bucket < buckets.size(); bucket++)
+		{
+			long terms = buckets.end(bucket) - buckets.start(bucket);
+			long bytes = terms * (terms - 1) / 2 * ARC_BYTES;
+			for (int position = buckets.start(bucket); position < buckets.end(bucket); position++)
+			{
+				int key = buckets.key(position);
+				bytes += (key < lengths.length ? lengths[key] : 0) * posting_bytes + TERM_BYTES;
+			}
+
+			if (partition_bytes > 0 && partition_bytes + bytes > budget)
+			{
+				partition_bounds.add(bucket);
+				largest_bytes = Math.max(largest_bytes, partition_bytes);
+				partition_bytes = 0;
+			}
+			partition_bytes += bytes;
+		}
+		partition_bounds.add(buckets.size());
+		largest_bytes = Math.max(largest_bytes, partition_bytes);
+
+		int partitions = partition_bounds.size() - 1;
+
+		time.print("Partitions \t = \t" + partitions + " (" + buckets.size() + " buckets, largest partition " + largest_bytes + " bytes estimated, " + budget + " bytes of budget)\n");
+		System.out.println("Prefix partitions: " + partitions);
+
+		return partition_bounds;
+	}
+
+	/**
+	 * It reads the posting lists of a partition, it evaluates the
+	 * co-occurrence of its couples and it increases the counters of their
+	 * slots in the L2Table.
+	 * 
+	 * @param source PostingFileReader of the whole collection.
+	 * @param buckets PrefixBuckets of all the index terms.
+	 * @param partition_bounds bounds of the partitions (partitionBuckets).
+	 * @param partition the partition.
+	 * @param number_terms number of index terms of the collection.
+	 * @param suffixes SuffixTable of the suffixes.
+	 * @param hM_l2 L2Table of the couples of suffixes.
+	 * @return the PostingStore of the partition.
+	 * @throws IOException
+	 */
+
+	private PostingStore countPartition(PostingFileReader source, PrefixBuckets buckets, IntArrayList partition_bounds, int partition, int number_terms, final SuffixTable suffixes, final L2Table hM_l2) throws IOException
+	{
+		final PostingStore store = readPartition(source, buckets, partition_bounds.getInt(partition), partition_bounds.getInt(partition + 1), number_terms);
+
+		evaluatePairs(store, new PrefixBuckets(store.getTerms(), l1), new ParallelCooccurrence.PairVisitor()
+		{
+			public void visit(int key1, int key2, int co)
+			{
+				suffixSlot(store, key1, key2, suffixes, hM_l2, true);
+			}
+		});
+
+		return store;
+	}
+
+	/**
+	 * It processes a partition after the counting pass: the couples of the
+	 * partition whose slot has a counter greater than or equal to 2 are its
+	 * arcs, and its graph is processed and its lines of the lookup table are
+	 * written to a stream, which is not closed.
+	 * 
+	 * @param store PostingLists of the partition.
+	 * @param suffixes SuffixTable of the suffixes.
+	 * @param hM_l2 L2Table of the couples of suffixes, after the counting pass.
+	 * @param pool pool of threads.
+	 * @param writer stream of the lookup table.
+	 * @param totals number of nodes and of arcs, increased by the ones of the partition.
+	 * @throws IOException
+	 */
+
+	private void processPartition(final PostingLists store, final SuffixTable suffixes, final L2Table hM_l2, ForkJoinPool pool, OutputStream writer, long[] totals) throws IOException
+	{
+		PrefixBuckets partition_buckets = new PrefixBuckets(store.getTerms(), l1);
+
+		//Only the couples that become arcs are kept.
+		final ArcTable potential_arcs = new ArcTable(1 << 10);
+
+		evaluatePairs(store, partition_buckets, new ParallelCooccurrence.PairVisitor()
+		{
+			public void visit(int key1, int key2, int co)
+			{
+				int slot = suffixSlot(store, key1, key2, suffixes, hM_l2, false);
+				if (hM_l2.getCounter(slot) >= 2)
+				{
+					potential_arcs.add(key1, key2, co, slot);
+				}
+			}
+		});
+
+		ArcTable arcs = new ArcTable(1 << 10);
+		IntArrayList nodes = new IntArrayList();
+		save_nodes_arcs(hM_l2, potential_arcs, arcs, nodes, store.size());
+
+		CsrGraph graph = creationGraph(store.size(), arcs);
+		reWeighting(graph, arcs, pool);
+		addStrongEdges(graph, nodes, arcs);
+		findConnectedComponents(graph, arcs, partition_buckets, store, pool, writer);
+
+		totals[0] += nodes.size();
+		totals[1] += arcs.size();
+	}
+
+	/**
+	 * It writes the lines of the processed partitions, in the order of the
+	 * partitions, to a temporary file that is synced to the disk and then
+	 * renamed to the lookup table, atomically if the file system allows it.
+	 * 
+	 * @param lines lines of each partition, null if it has not been processed.
+	 * @param file_name name of the lookup table.
+	 * @throws IOException
+	 */
+
+	private void publishLookupTable(byte[][] lines, String file_name) throws IOException
+	{
+		File table = new File(file_name);
+		File temporary = new File(file_name + ".tmp");
+
+		FileOutputStream file = new FileOutputStream(temporary);
+		OutputStream writer = new BufferedOutputStream(file, 1 << 16);
+
+		try
+		{
+			for (byte[] partition_lines : lines)
+			{
+				if (partition_lines != null)
+				{
+					writer.write(partition_lines);
+				}
+			}
+			writer.flush();
+			file.getFD().sync();
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		replaceFile(temporary, table);
+	}
+
+	/**
+	 * It renames a temporary file to a file that it replaces, atomically if
+	 * the file system allows it.
+	 * 
+	 * @param temporary the temporary file.
+	 * @param file the replaced file.
+	 * @throws IOException
+	 */
+
+	private void replaceFile(File temporary, File file) throws IOException
+	{
+		try
+		{
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e)
+		{
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * It reads the index terms that are kept from a lexicon file, without
+	 * their posting lists. Their keys are the ones given by a PostingFileReader
+	 * of the same lexicon.
+	 * 
+	 * @param lexicon path of the lexicon.txt file.
+	 * @return a PostingArena with the index terms.
+	 * @throws IOException
+	 */
+
+	private PostingArena readTerms(String lexicon) throws IOException
+	{
+		String[] words = new PostingFileReader(lexicon, null, 1).readLexicon(lexicon);
+		PostingArena store = new PostingArena(words.length, 0);
+		for (String word : words)
+		{
+			if (word != null)
+			{
+				store.addTerm(word);
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * It merges ShardRun files by a k-way merge in ascending order of the keys
+	 * of the couples, and it gives back each couple with the sum of its partial
+	 * co-occurrences to a visitor.
+	 * 
+	 * @param files the ShardRun files.
+	 * @param store PostingLists with the index terms of the lexicon.
+	 * @param visitor object that receives the couples.
+	 * @throws IOException
+	 */
+
+	private void mergeRuns(List<File> files, PostingLists store, ParallelCooccurrence.PairVisitor visitor) throws IOException
+	{
+		List<ShardRun> runs = new ArrayList<ShardRun>();
+		PriorityQueue<ShardRun> queue = new PriorityQueue<ShardRun>(Math.max(1, files.size()), new Comparator<ShardRun>()
+		{
+			public int compare(ShardRun run1, ShardRun run2)
+			{
+				return Long.compare(run1.getKey(), run2.getKey());
+			}
+		});
+
+		try
+		{
+			for (File file : files)
+			{
+				runs.add(ShardRun.open(file));
+			}
+			checkShards(runs, store);
+
+			for (ShardRun run : runs)
+			{
+				if (run.next())
+				{
+					queue.add(run);
+				}
+			}
+
+			while (!queue.isEmpty())
+			{
+				long key = queue.peek().getKey();
+				int co = 0;
+
+				//The partial co-occurrences of the same couple are at the head of the queue.
+				while (!queue.isEmpty() && queue.peek().getKey() == key)
+				{
+					ShardRun run = queue.poll();
+					co += run.getCooccurrence();
+					if (run.next())
+					{
+						queue.add(run);
+					}
+				}
+
+				visitor.visit((int) (key >>> 32), (int) key, co);
+			}
+		}
+		finally
+		{
+			for (ShardRun run : runs)
+			{
+				run.close();
+			}
+		}
+	}
+
+	/**
+	 * It verifies that the ShardRun files of the shards can be merged, as
+	 * executeMerge does before the merge, without merging them.
+	 * 
+	 * @param source PostingFileReader of the collection, only its lexicon is read.
+	 * @param files the ShardRun files of all the shards.
+	 * @throws IOException if the shards can't be merged.
+	 */
+
+	public void checkMerge(PostingFileReader source, List<File> files) throws IOException
+	{
+		PostingStore store = readTerms(source.getLexicon());
+		List<ShardRun> runs = new ArrayList<ShardRun>();
+
+		try
+		{
+			for (File file : files)
+			{
+				runs.add(ShardRun.open(file));
+			}
+			checkShards(runs, store);
+		}
+		finally
+		{
+			for (ShardRun run : runs)
+			{
+				run.close();
+			}
+		}
+	}
+
+	/**
+	 * It verifies that the shards can be merged: they must have the l1 of this
+	 * object, the index terms of the store and ranges of documents that are
+	 * contiguous from 0 to Integer.MAX_VALUE. A file can't be given twice and
+	 * a shard (its index, the number of shards and its part) can't appear in
+	 * two files. Only the runs of the same pass of executeOutOfCore share a
+	 * range: they hold different couples and their parts are 0, 1, 2, ...
+	 * 
+	 * @param runs the opened ShardRun files.
+	 * @param store PostingLists with the index terms of the lexicon.
+	 * @throws IOException if the shards can't be merged.
+	 */
+
+	private void checkShards(List<ShardRun> runs, PostingLists store) throws IOException
+	{
+		long terms_hash = ShardRun.termsHash(store);
+
+		Set<File> paths = new HashSet<File>();
+		Set<String> parts = new HashSet<String>();
+		for (ShardRun run : runs)
+		{
+			if (!paths.add(run.getFile().getCanonicalFile()))
+			{
+				throw new IOException("checkShards: " + run.getFile() + " is given more than once");
+			}
+			if (!parts.add(run.shard + " " + run.shards + " " + run.part))
+			{
+				throw new IOException("checkShards: " + run.getFile() + " repeats the shard " + run.shard + " of " + run.shards + (run.part > 0 ? " (part " + run.part + ")" : ""));
+			}
+		}
+
+		List<ShardRun> sorted = new ArrayList<ShardRun>(runs);
+		Collections.sort(sorted, new Comparator<ShardRun>()
+		{
+			public int compare(ShardRun run1, ShardRun run2)
+			{
+				int compare = Integer.compare(run1.first_document, run2.first_document);
+				return compare != 0 ? compare : Integer.compare(run1.part, run2.part);
+			}
+		});
+
+		int previous_first = -1;
+		int previous_part = -1;
+		int next_document = 0;
+
+		for (ShardRun run : sorted)
+		{
+			if (run.l1 != l1)
+			{
+				throw new IOException("checkShards: " + run.getFile() + " was evaluated with l1 = " + run.l1);
+			}
+			if (run.number_terms != store.size() || run.terms_hash != terms_hash)
+			{
+				throw new IOException("checkShards: " + run.getFile() + " has different index terms");
+			}
+			if (run.first_document == previous_first && run.end_document == next_document)
+			{
+				//The next run of the same pass.
+				if (run.part != previous_part + 1)
+				{
+					throw new IOException("checkShards: " + run.getFile() + " repeats the documents from " + run.first_document + " to " + run.end_document);
 				}
-
-				scanner_line_lex.close();
-
+				previous_part = run.part;
+				continue;
+			}
+			if (run.first_document != next_document)
+			{
+				throw new IOException("checkShards: the documents from " + next_document + " to " + run.first_document + " are missing or repeated");
 			}
+			if (run.part != 0)
+			{
+				throw new IOException("checkShards: the runs that precede " + run.getFile() + " are missing");
+			}
+			previous_first = run.first_document;
+			previous_part = run.part;
+			next_document = run.end_document;
 		}
 
-		buffer_reader_lex.close();
-		reader_lex.close();
-		buffer_reader_inv.close();
-		reader_inv.close();
-
+		if (next_document != Integer.MAX_VALUE)
+		{
+			throw new IOException("checkShards: the documents from " + next_document + " are missing");
+		}
 	}
-	
 
 	/**
-	 * It receives two String objects and it returns their common prefix. If it
-	 * does not exist it returns null.
+	 * It returns the last stage, not after up_to, with a checkpoint of the
+	 * inputs of a source for the parameters l1 and l2, Checkpoint.NONE if the
+	 * checkpoints are disabled.
 	 * 
-	 * @param w1 a String object
-	 * @param w2 a String object
-	 * @return the longest common prefix
+	 * @param source PostingSource of the index terms.
+	 * @param up_to the last stage that can be returned.
+	 * @param l1 parameter l1.
+	 * @param l2 parameter l2.
+	 * @return the stage.
+	 * @throws IOException
 	 */
 
-	private String commonPrefix(String w1, String w2) 
+	private int lastStage(PostingSource source, int up_to, int l1, int l2) throws IOException
 	{
-		int minLength = Math.min(w1.length(), w2.length());
-		
-		for (int i = 0; i < minLength; i++) 
+		if (checkpoint == null)
 		{
-			if (w1.charAt(i) != w2.charAt(i)) 
-			{
-				return w1.substring(0, i);
-			}
+			return Checkpoint.NONE;
 		}
-		return w1.substring(0, minLength);
+
+		checkpoint.setInputs(source.fingerprint());
+		return checkpoint.lastStage(up_to, l1, l2);
 	}
 
 	/**
-	 * It returns the suffix of a String object, given the longest common prefix
-	 * evaluated in relation to an other String object.
+	 * It reads the index terms and their posting lists, from the checkpoint of
+	 * the reading if resume is Checkpoint.READING, otherwise from the source.
+	 * In the latter case the checkpoint of the reading is written, if the
+	 * checkpoints are enabled.
 	 * 
-	 * @param word a String object.
-	 * @param prefix a prefix of word.
-	 * @return suffix a suffix of word.
+	 * @param source PostingSource of the index terms.
+	 * @param resume stage from which the process is resumed.
+	 * @param time PrintWriter of the execution_time.txt file.
+	 * @return store PostingStore with the index terms and their posting lists.
+	 * @throws IOException
 	 */
 
-	private String mySuffix(String word, String prefix) 
+	private PostingStore readStage(PostingSource source, int resume, PrintWriter time) throws IOException
 	{
-		int prefixLength = prefix.length();
-		int wordLength = word.length();
+		PostingStore store;
+		long startReadingTime = System.currentTimeMillis();
+
+		if (resume == Checkpoint.READING)
+		{
+			store = checkpoint.readPostings();
+			time.print("Resume from the reading checkpoint \t = \t" + (System.currentTimeMillis() - startReadingTime) / 1000.0 + " seconds\n");
+			System.out.println("Resumed from the checkpoint of the reading");
+		}
+		else
+		{
+			store = readAll(source);
+
+			long endReadingTime = System.currentTimeMillis();
+
+			time.print("Time for the reading from files \t = \t" + (endReadingTime - startReadingTime) / 1000.0 + " seconds\n");
+			System.out.println("Reading is finished");
+
+			if (checkpoint != null)
+			{
+				checkpoint.writePostings(store);
+				time.print("Checkpoint of the reading \t = \t" + (System.currentTimeMillis() - endReadingTime) / 1000.0 + " seconds\n");
+			}
+		}
 
-		String suffix = word.substring(prefixLength, wordLength);
-		return suffix;
+		reportPostings(store, time);
 
+		return store;
 	}
 
 	/**
-	 * It returns the length of a String object if it isn't null, otherwise it
-	 * returns 0.
+	 * It reads the index terms of a PostingSource and their posting lists in
+	 * a PostingStore. The source keeps only the index terms accepted by
+	 * PostingSource.isKept (at least 3 characters, not starting with a digit),
+	 * so the other ones are not in the store. The source can be a couple of
+	 * lexicon.txt and inverted.txt files (PostingFileReader) or a Terrier
+	 * index (TerrierPostingSource).
 	 * 
-	 * @param commonPrefix a String object
-	 * @return the length of commonPrefix if it isn't null, 0 otherwise.
+	 * @param source PostingSource of the index terms.
+	 * @return store PostingStore with the index terms and their posting lists.
+	 * @throws IOException
 	 */
 
-	private int getLengthPrefix(String commonPrefix) 
+	private PostingStore readAll(PostingSource source) throws IOException 
 	{
-		if (commonPrefix == null) 
-		{
-			return 0;
-		}
-		
-		return commonPrefix.length();
+		return source.read();
 	}
 
 	/**
-	 * It takes into account 2 String objects and it concatenates them according
-	 * to the lexicographic order. This String object will be used as key in a
-	 * HashMap.
+	 * It writes the number of postings and the memory used to store them. If
+	 * the posting lists are compressed, it writes the compression ratio (raw
+	 * size over compressed size, where a raw posting takes 8 bytes) and it
+	 * measures the decoding throughput decoding all the posting lists once.
+	 * These values are used to choose between the raw and the compressed mode
+	 * for a collection.
 	 * 
-	 * @param string1 a String object.
-	 * @param string2 a String object.
-	 * @return key a String object, concatenation of the 2 provided String objects
+	 * @param store PostingLists with the index terms and their posting lists.
+	 * @param time PrintWriter of the execution_time.txt file.
 	 */
-	
-	private String getKeyL2(String string1, String string2) 
+
+	private void reportPostings(PostingLists store, PrintWriter time)
 	{
-		String key = "";
-		
-		if (string1.compareTo(string2) <= 0) 
-		{
-			key = string1 + "###" + string2;
-		}
-		else 
+		time.print("Postings \t = \t" + store.getPostings() + " (" + store.size() + " index terms, " + store.getBytes() + " bytes)\n");
+
+		if (store instanceof CompressedPostings)
 		{
-			key = string2 + "###" + string1;
-		}
+			long startDecodingTime = System.nanoTime();
+			((CompressedPostings) store).decodeAll();
+			double seconds = Math.max(1, System.nanoTime() - startDecodingTime) / 1e9;
 
-		return key;
-	}	
+			time.print("Compression ratio \t = \t" + String.format("%.2f", 8.0 * store.getPostings() / Math.max(1, store.getBytes())) + "\n");
+			time.print("Decoding throughput \t = \t" + String.format("%.1f", store.getPostings() / seconds / 1e6) + " millions of postings per second\n");
+		}
+	}
 	
+
 	/**
-	 * This method receives 2 LinkedLists associated with two index terms and it
-	 * returns the corresponding co-occurrence measure. This value is equal to
-	 * the sum of the minimum of the term frequencies of the selected index
-	 * terms evaluated for each document of the collection. If an index term
-	 * doesn't appear in a document, its term frequency for that document is
-	 * equal to zero and in this case the contribution of the two index terms to
-	 * the co-occurrence value for that document also is equal to zero.
+	 * This method receives the keys of two index terms stored in a PostingLists
+	 * and it returns the corresponding co-occurrence measure. This value is
+	 * equal to the sum of the minimum of the term frequencies of the selected
+	 * index terms evaluated for each document of the collection. If an index
+	 * term doesn't appear in a document, its term frequency for that document
+	 * is equal to zero and in this case the contribution of the two index terms
+	 * to the co-occurrence value for that document also is equal to zero. The
+	 * raw posting lists of a PostingArena are intersected by the kernels of the
+	 * Intersection class, the ones of a CompressedPostings are decoded block by
+	 * block during the intersection.
 	 * 
-	 * @param l1 LinkedList of WordStat objects.
-	 * @param l2 LinkedList of WordStat objects.
+	 * @param store PostingLists that stores the posting lists.
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
 	 * @return coOccurrenceValue value of co-occurrence for two index terms.
 	 */
 		
-	private int cooccurrence2terms(LinkedList<WordStat> linklist1, LinkedList<WordStat> linklist2) 
+	static int cooccurrence2terms(PostingLists store, int key1, int key2) 
 	{
-		//Co-occurrence value
-		int coOccurrenceValue = 0;
-
-		//LinkedLists of WordStat objects associated with two index terms
-		ListIterator<WordStat> list1 = linklist1.listIterator();
-		ListIterator<WordStat> list2 = linklist2.listIterator();
-
-		//First couples of WordStat objects
-		WordStat w1 = list1.next();
-		WordStat w2 = list2.next();
-
-		while (true) 
-		{
-			if (w1.getDoc() == w2.getDoc()) 
-			{
-				//Each of the index terms is in the document.
-				coOccurrenceValue += Math.min(w1.getFrequency(), w2.getFrequency());
-
-				if (list1.hasNext() && list2.hasNext()) 
-				{
-					w1 = list1.next();
-					w2 = list2.next();
-				} 
-				else 
-				{
-					//If list1 or list2 has no elements left, the
-					//computation of the co-occurrence is finished.
-					break;
-				}
-
-			} 
-			else if (w1.getDoc() < w2.getDoc()) 
-			{
-				/*
-				 * If the first index term is in a document but the latter one
-				 * is not, the WordStat objects associated with the first one
-				 * are ignored until there is one with an id that is equal to
-				 * the id of the following WordStat object in the LinkedList
-				 * associated with the latter index term.
-				 */
-
-				if (list1.hasNext()) 
-				{
-					w1 = list1.next();
-				} 
-				else 
-				{
-					//list1 has no elements left, the computation is finished.
-					break;
-				}
-
-			} 
-			else 
-			{
-				if (list2.hasNext())
-				{
-					w2 = list2.next();
-				} 
-				else 
-				{
-					//list2 has no elements left, the computation is finished.
-					break;
-				}
-			}
-
-		}
-
-		return coOccurrenceValue;
-
+		return store.cooccurrence(key1, key2);
 	}	
 	
 	/**
 	 * Calculates the co-occurence between word pairs. Stores the information
-	 * concerning the length of the common prefix in the HashMap hM_l2, checking
+	 * concerning the length of the common prefix in the L2Table hM_l2, checking
 	 * if the length is greater than or equal to l2, or only greater than or
 	 * equal to l1. These information are used to select nodes and edges to be
-	 * added to the graph using the method save_nodes_arcs.
+	 * added to the graph using the method save_nodes_arcs, which is invoked
+	 * after the checkpoint of the co-occurrence. The couples of index
+	 * terms are generated from the buckets of a PrefixBuckets object, so the
+	 * couples with a common prefix shorter than l1 are never visited. If more
+	 * than one thread is available, the co-occurrence measure is evaluated by a
+	 * ParallelCooccurrence object, which gives back the couples in the same
+	 * order of the sequential evaluation.
 	 * 
-	 * @param map HashMap using open addressing strategy.
-	 * @param hM_l2 HashMap of L2_element using String as index.
-	 * @param arcs HashMap of Arcs using String as index.
-	 * @param nodes LinkedList of nodes.
+	 * @param store PostingLists that stores the posting lists.
+	 * @param buckets PrefixBuckets of the index terms.
+	 * @param suffixes SuffixTable that gives the ids of the suffixes.
+	 * @param hM_l2 L2Table of the couples of suffixes.
+	 * @param potential_arcs ArcTable of the couples with a co-occurrence greater than 0.
 	 */
 
-	private void arcs_nodes_evalutation(Int2ObjectOpenHashMap<IndexElement> map, Object2ObjectOpenHashMap<String, L2_element> hM_l2, Object2ObjectOpenHashMap<String, Arc> arcs, LinkedList<String> nodes) 
+	private void arcs_nodes_evalutation(final PostingLists store, PrefixBuckets buckets, final SuffixTable suffixes, final L2Table hM_l2, final ArcTable potential_arcs) 
 	{
-		ObjectArrayList<String> arcs_retrieval = new ObjectArrayList<String>();
- 
- 		int numColumns = map.size() - 1;
-		int numColumns_div = numColumns / 25;
-		int status = numColumns / numColumns_div;
-		
-		for (int indexCols = 0; indexCols <= numColumns - 1; indexCols++) 
+		evaluatePairs(store, buckets, new ParallelCooccurrence.PairVisitor()
 		{
-			if (indexCols % numColumns_div == 0) 
+			public void visit(int key1, int key2, int co)
 			{
-				//approximate status print
-				System.out.println("Cooccurence calculation: " + (int)(((indexCols / numColumns_div) / (double) status) * 100) + "%");
+				addPotentialArc(store, key1, key2, co, suffixes, hM_l2, potential_arcs);
 			}
-			for (int indexRows = 0; indexRows <= indexCols; indexRows++) 
-			{
+		});
+	}
+
+	/**
+	 * It evaluates the co-occurrence measure of the couples of index terms of
+	 * the buckets and it gives back the couples with a co-occurrence greater
+	 * than 0 to a visitor, on the calling thread and in the order of the
+	 * buckets, with one or more threads, couple by couple or document at a
+	 * time.
+	 * 
+	 * @param store PostingLists that stores the posting lists.
+	 * @param buckets PrefixBuckets of the index terms.
+	 * @param visitor object that receives the couples.
+	 */
+
+	private void evaluatePairs(PostingLists store, PrefixBuckets buckets, ParallelCooccurrence.PairVisitor visitor) 
+	{
+		if (document_at_a_time)
+		{
+			DocumentCooccurrence engine = new DocumentCooccurrence(parallelism);
+
+			engine.evaluate(store, buckets, visitor);
+
+			engine.shutdown();
+		}
+		else if (parallelism > 1)
+		{
+			ParallelCooccurrence engine = new ParallelCooccurrence(parallelism);
 
-				//First index term
-				String index_term1 = (map.get(indexCols + 1)).getIEString();
-				
-				//Latter index term
-				String index_term2 = (map.get(indexRows)).getIEString();
+			engine.evaluate(store, buckets, visitor);
 
-				//Longest common prefix.
-				String prefix = commonPrefix(index_term1, index_term2);
+			engine.shutdown();
+		}
+		else
+		{
+			int numBuckets = buckets.size();
+			int numBuckets_div = Math.max(1, numBuckets / 25);
 
-				//Length of the common prefix
-				int prefix_length = getLengthPrefix(prefix);
-				
-				//Check if the prefix length is greater than l1
-				//if it is not the case, we can skip this couple of word
-				//because are considered not sematically related
-				
-				if (prefix_length >= l1)
+			for (int bucket = 0; bucket < numBuckets; bucket++) 
+			{
+				if (bucket % numBuckets_div == 0) 
 				{
-					
-					int co = cooccurrence2terms((map.get(indexCols + 1)).getIEPostingList(), (map.get(indexRows)).getIEPostingList());
-					
-					/*
-					 * This statement verifies if the co-occurrence of the 2
-					 * index_terms is greater than 0. If it is not the case, we
-					 * won't consider again this couple of index_terms in the
-					 * construction of the arcs because with high probability 
-					 * they aren't semantically related. 
-					 */
-					
-					if (co != 0) 
+					//approximate status print
+					System.out.println("Cooccurence calculation: " + (int)((bucket / (double) numBuckets) * 100) + "%");
+				}
+				for (int indexCols = buckets.start(bucket) + 1; indexCols < buckets.end(bucket); indexCols++) 
+				{
+					int key1 = buckets.key(indexCols);
+
+					for (int indexRows = buckets.start(bucket); indexRows < indexCols; indexRows++) 
 					{
-					
-						String suffix_index_term1 = mySuffix(index_term1, prefix);
-						
-						//Suffix of the latter index term after the elimination of
-						//the common prefix.
-						String suffix_index_term2 = mySuffix(index_term2, prefix);
+						int key2 = buckets.key(indexRows);
 
-						Arc potential_arc = new Arc(index_term1, index_term2, co);
+						int co = cooccurrence2terms(store, key1, key2);
 
 						/*
-						 * Construction of a single String object from the two
-						 * suffixes. This string does not depend on the order of
-						 * consideration of the two String objects. This is
-						 * important because we will use this String as key in a
-						 * Map, therefore 2 couples of Strings that contains the
-						 * same Strings but in different order will point to the
-						 * same bucket.
+						 * This statement verifies if the co-occurrence of the 2
+						 * index_terms is greater than 0. If it is not the case, we
+						 * won't consider again this couple of index_terms in the
+						 * construction of the arcs because with high probability 
+						 * they aren't semantically related. 
 						 */
 
-						String key_l2 = getKeyL2(suffix_index_term1, suffix_index_term2);
-						L2_element element_l2 = hM_l2.get(key_l2);
-
-						if (prefix_length > l2) 
-						{
-							if (element_l2 == null) 
-							{
-								
-							 /*
-								* There isn't an L2 element with the same key of that
-								* associated with the selected couple of index terms, so
-								* a new one is created and its counter is increased by a unit.
-								*/
-								
-								L2_element element_new_l2 = new L2_element();
-								element_new_l2.addCounter();
-								element_new_l2.addArc(potential_arc);
-								hM_l2.put(key_l2, element_new_l2);
-								
-							} 
-							else 
-							{
-							 
-								//An L2_element with the same key already exists so we only have 
-								//to add a unit to its counter.  
-								element_l2.addCounter();
-								element_l2.addArc(potential_arc);
-								arcs_retrieval.add(key_l2);
-							}
-						} 
-						else 
+						if (co != 0) 
 						{
-							if (element_l2 == null) 
-							{
-								/*
-								 * In this case we have to create a new L2 element and to add
-								 * the Arc object, obtained from the two index terms, to its
-								 * LinkedList. The selected descriptors haven't a common prefix
-								 * of length greater of equal to l2 so the counter must be kept at 0.
-								 */
-
-								L2_element element_new_l2 = new L2_element();
-								element_new_l2.addArc(potential_arc);
-								hM_l2.put(key_l2, element_new_l2);
-							} 
-							else 
-							{
-								//We have only to add the arc to the 
-								//LinkedList of element_l2 object.
-								element_l2.addArc(potential_arc);
-							}
-
+							visitor.visit(key1, key2, co);
 						}
-
 					}
 				}
 			}
-
 		}
+	}
+
+	/**
+	 * It adds the arc of a couple of index terms with a co-occurrence greater
+	 * than 0 to the potential arcs and it associates it with the slot of the
+	 * L2Table of the suffixes of the two index terms. The counter of the slot
+	 * is increased only if the common prefix of the index terms is longer than
+	 * l2.
+	 * 
+	 * @param store PostingLists that stores the index terms.
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @param co co-occurrence of the two index terms.
+	 * @param suffixes SuffixTable that gives the ids of the suffixes.
+	 * @param hM_l2 L2Table of the couples of suffixes.
+	 * @param potential_arcs ArcTable of the potential arcs.
+	 */
+
+	private void addPotentialArc(PostingLists store, int key1, int key2, int co, SuffixTable suffixes, L2Table hM_l2, ArcTable potential_arcs)
+	{
+		potential_arcs.add(key1, key2, co, suffixSlot(store, key1, key2, suffixes, hM_l2, true));
+	}
+
+	/**
+	 * It returns the slot of the L2Table of the suffixes of a couple of index
+	 * terms, after the elimination of their common prefix. If count is true,
+	 * the counter of the slot is increased when the common prefix is longer
+	 * than l2.
+	 * 
+	 * @param store PostingLists that stores the index terms.
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @param suffixes SuffixTable that gives the ids of the suffixes.
+	 * @param hM_l2 L2Table of the couples of suffixes.
+	 * @param count true to count the couple.
+	 * @return the slot.
+	 */
+
+	private int suffixSlot(PostingLists store, int key1, int key2, SuffixTable suffixes, L2Table hM_l2, boolean count)
+	{
+		TermArena terms = store.getTerms();
+
+		//Length of the longest common prefix. It is greater than or equal to l1
+		//because the two index terms belong to the same bucket.
+		int prefix_length = terms.commonPrefixLength(key1, key2);
+
+		//Ids of the suffixes of the two index terms after the elimination of
+		//the common prefix.
+		int suffix_index_term1 = suffixes.intern(terms, key1, prefix_length);
+		int suffix_index_term2 = suffixes.intern(terms, key2, prefix_length);
+
+		/*
+		 * The slot of the two suffixes does not depend on the order of
+		 * consideration of the two suffixes, therefore 2 couples of index
+		 * terms with the same suffixes in different order will point to the
+		 * same slot.
+		 */
+
+		int slot = hM_l2.slot(suffix_index_term1, suffix_index_term2);
 
-		save_nodes_arcs(hM_l2, arcs_retrieval, arcs, nodes);
+		if (count && prefix_length > l2) 
+		{
+			hM_l2.addCounter(slot);
+		}
 
+		return slot;
 	}
 	
 	/**
 	 * Stores all edges and nodes to be included in the graph respectively in
-	 * the HashMap arcs and in the LinkedList nodes. It checks for each key of
-	 * HashMap hM_l2 if the associated counter has a value greater than or equal
-	 * to 2. If it is the case every Arc object in the the list of L2_element 
-	 * is added to HashMap arcs. Nodes connected by this edges are stored in the
-	 * LinkedList nodes (one time only).
+	 * the ArcTable arcs and in the list nodes. It checks for each potential arc
+	 * if the counter of its slot of hM_l2 has a value greater than or equal to
+	 * 2. If it is the case the arc is added to arcs. Nodes connected by this
+	 * edges are stored in the list nodes (one time only).
 	 *
-	 * @param hM_l2 HashMap of L2_element.
-	 * @param set_keys ArrayList containing all hM_l2's keys.
-	 * @param arcs HashMap of Arcs using String as index.
-	 * @param nodes LinkedList of nodes.
+	 * @param hM_l2 L2Table of the couples of suffixes.
+	 * @param potential_arcs ArcTable of the potential arcs.
+	 * @param arcs ArcTable of the arcs of the graph.
+	 * @param nodes keys of the nodes.
+	 * @param number_terms number of index terms.
 	 */
 
-	private void save_nodes_arcs(Object2ObjectOpenHashMap<String, L2_element> hM_l2, ObjectArrayList<String> set_keys, Object2ObjectOpenHashMap<String, Arc> arcs, LinkedList<String> nodes) 
+	private void save_nodes_arcs(L2Table hM_l2, ArcTable potential_arcs, ArcTable arcs, IntArrayList nodes, int number_terms) 
 	{
-		//We use an HashSet to insert an index term in the HashMap nodes only one time. 
-    HashSet<String> unique_nodes = new HashSet<String>();
-		for (String key : set_keys) 
+		//It is used to insert an index term in the list nodes only one time. 
+		boolean[] unique_nodes = new boolean[number_terms];
+
+		for (int potential_arc = 0; potential_arc < potential_arcs.size(); potential_arc++) 
 		{
-			L2_element element_l2 = hM_l2.get(key);
-			
-			//We consider only the entries of hM_l2 with counter greater or equal to 2.
-			if (element_l2.getCounter() >= 2) 
+			//We consider only the slots of hM_l2 with counter greater or equal to 2.
+			if (hM_l2.getCounter(potential_arcs.getSlot(potential_arc)) >= 2) 
 			{
-				for (Arc arc : element_l2.getArcs())
-				{
+				int row_word = potential_arcs.getRow(potential_arc);
+				int column_word = potential_arcs.getColumn(potential_arc);
 
-					String row_word = arc.getWordRow();
-					String column_word = arc.getWordColumn();
-					
-					//The index terms are used to form the keys of the HashMap arcs.
-					arcs.put(getKeyL2(row_word, column_word), arc);
-					
-					//If row_not_inserted is false the index term has already been inserted in the LinkedList nodes.
-					boolean row_not_inserted = unique_nodes.add(row_word);
-					
-				  //If column_not_inserted is false the index term has already been inserted in the LinkedList nodes.
-					boolean column_not_inserted = unique_nodes.add(column_word);
-
-					if (row_not_inserted) 
-					{
-						nodes.add(row_word);
-					}
-					if (column_not_inserted)
-					{
-						nodes.add(column_word);
-					}
+				arcs.add(row_word, column_word, potential_arcs.getCooccurrence(potential_arc), potential_arcs.getSlot(potential_arc));
+
+				if (!unique_nodes[row_word]) 
+				{
+					unique_nodes[row_word] = true;
+					nodes.add(row_word);
+				}
+				if (!unique_nodes[column_word])
+				{
+					unique_nodes[column_word] = true;
+					nodes.add(column_word);
 				}
 			}
 		}
 	}
 
 	/**
-	 * This method builds a simple weighted graph from an empty SimpleWeightedGraph object and the entries of the HashMap arcs. 
-	 * In particular each element of that HashMap corresponds to an edge of the simple weighted graph. 
-	 * 
-	 * @param graph a SimpleWeightedGraph object.
-	 * @param arcs an HashMap with entries made by a String object and an Arc object.
+	 * It stores the edges and the nodes of the graph of a setting of the sweep.
+	 * A potential arc is added to arcs if the common prefix of its index terms
+	 * is longer than or equal to l1 and the counter of its slot is greater
+	 * than or equal to 2, as in the other save_nodes_arcs method.
+	 *
+	 * @param l1 parameter l1 of the setting.
+	 * @param counters counter of each slot for the setting.
+	 * @param prefix_lengths length of the common prefix of each potential arc.
+	 * @param potential_arcs ArcTable of the potential arcs.
+	 * @param arcs ArcTable of the arcs of the graph.
+	 * @param nodes keys of the nodes.
+	 * @param number_terms number of index terms.
 	 */
-	
-	private void creationGraph(SimpleWeightedGraph<String, DefaultWeightedEdge> graph, Object2ObjectOpenHashMap<String, Arc> arcs) 
+
+	private void save_nodes_arcs(int l1, int[] counters, int[] prefix_lengths, ArcTable potential_arcs, ArcTable arcs, IntArrayList nodes, int number_terms) 
 	{
-		for (Arc arc : arcs.values()) 
-		{
-			String word1 = arc.getWordRow();
-			String word2 = arc.getWordColumn();
+		boolean[] unique_nodes = new boolean[number_terms];
 
-			graph.addVertex(word1);
-			graph.addVertex(word2);
-			
-			
-			DefaultWeightedEdge e1 = graph.addEdge(word1, word2);
-		
-			//The weight of the edge is equal to the co-occurence measure of the index terms that make the edge.
-			graph.setEdgeWeight(e1, arc.getCooccurrence());
+		for (int potential_arc = 0; potential_arc < potential_arcs.size(); potential_arc++) 
+		{
+			if (prefix_lengths[potential_arc] >= l1 && counters[potential_arcs.getSlot(potential_arc)] >= 2) 
+			{
+				int row_word = potential_arcs.getRow(potential_arc);
+				int column_word = potential_arcs.getColumn(potential_arc);
 
+				arcs.add(row_word, column_word, potential_arcs.getCooccurrence(potential_arc), potential_arcs.getSlot(potential_arc));
 
+				if (!unique_nodes[row_word]) 
+				{
+					unique_nodes[row_word] = true;
+					nodes.add(row_word);
+				}
+				if (!unique_nodes[column_word])
+				{
+					unique_nodes[column_word] = true;
+					nodes.add(column_word);
+				}
+			}
 		}
-	}		
-	
+	}
+
 	/**
-	 * Given an edge and one of its nodes this method returns the other node of
-	 * the edge.
-	 *
-	 * @param edge a DefaultWeightedEdge object, an arc of the graph.
-	 * @param graph a SimpleWeightedGraph object.
-	 * @param node a String object.
-	 * @return a String object representing the node of the DefaultWeightedEdge "edge" that is different from the String "node".
+	 * This method builds the graph of the arcs of the ArcTable arcs, in the compressed sparse row format. 
+	 * The nodes of the graph are the keys of the index terms and each arc corresponds to an edge: the
+	 * weights of the edges are the co-occurrence and the rco of the ArcTable. 
+	 * 
+	 * @param number_terms number of index terms.
+	 * @param arcs an ArcTable.
+	 * @return the graph.
 	 */
-
-	private String otherNode(DefaultWeightedEdge edge, SimpleWeightedGraph<String, DefaultWeightedEdge> graph, String node) 
+	
+	private CsrGraph creationGraph(int number_terms, ArcTable arcs) 
 	{
-		String source = graph.getEdgeSource(edge);
-		String target = graph.getEdgeTarget(edge);
-
-		if (source.equals(node)) 
-		{
-			return target;
-		}
-
-		return source;
-
-	}	
+		return new CsrGraph(number_terms, arcs);
+	}		
 	
 	/**
 	 * Updates the weights of the edges of the graph. Given an Edge (a,b) and
 	 * found the set of common neighbors of a and b, for each node w belonging
 	 * to this set, the minimum value of cooccurence between the edge (a,w) and
 	 * the edge (w,b) is added to the weight of (a,b), multiplied by 0,5.
+	 * The new weight is stored as the rco of the arc.
+	 * 
+	 * The rows of the graph are sorted and they have a parallel array with the
+	 * co-occurrence of each edge, so the sum over the common neighbors is found
+	 * by intersecting the rows of a and b (CsrGraph.commonWeight). The sum is
+	 * kept in a long: unlike the term frequencies of the posting lists, the
+	 * co-occurrences of the edges are unbounded. The edges are reweighted in
+	 * parallel on the threads of the pool, since the weight of an edge depends
+	 * only on the co-occurrences.
 	 *
-	 *
-	 * @param arc_hash_sets an HashMap of ArrayList of edges using String as index.
-	 * @param graph a SimpleWeightedGraph object, the graph.
-	 * @param number_nodes an Integer, the number of nodes of the graph.
-	 * @param nodes a LinkedList of nodes.
-	 * @param arcs an HashMap of Arcs using String as index.
+	 * @param graph the CsrGraph of the arcs.
+	 * @param arcs an ArcTable.
+	 * @param pool pool of threads.
 	 */
 
-	private void reWeighting(Object2ObjectOpenHashMap<String, ObjectArrayList<DefaultWeightedEdge>> arc_hash_sets, SimpleWeightedGraph<String, DefaultWeightedEdge> graph, int number_nodes, LinkedList<String> nodes, Object2ObjectOpenHashMap<String, Arc> arcs)
+	private void reWeighting(final CsrGraph graph, final ArcTable arcs, ForkJoinPool pool)
 	{
-  	for (String node : nodes) 
-  	{
-  		//Set of edges that have node as one of the extremities
-			ObjectArrayList<DefaultWeightedEdge> edges_node = new ObjectArrayList<DefaultWeightedEdge>();
-
-			for (DefaultWeightedEdge edge : graph.edgesOf(node)) 
-			{
-				edges_node.add(edge);
-			}
-
-			//We have an entry for each node of the SimpleWeightedGraph graph
-			arc_hash_sets.put(node, edges_node);
-		}
-
-		for (Arc arc : arcs.values()) 
+		ParallelRange.run(pool, arcs.size(), new ParallelRange.Body()
 		{
-			String a = arc.getWordRow();
-			String b = arc.getWordColumn();
-
-			ObjectOpenHashSet<String> nodi = new ObjectOpenHashSet<String>();
-
-			for (DefaultWeightedEdge edge_a : arc_hash_sets.get(a)) 
+			public void run(int from, int to)
 			{
-				//Set of nodes of graph that share an edge with the node a.
-				nodi.add(otherNode(edge_a, graph, a));
-			}
+				for (int arc = from; arc < to; arc++) 
+				{
+					int a = arcs.getRow(arc);
+					int b = arcs.getColumn(arc);
 
-			double partial_rco = 0;
+					//Sum over the common neighbors w of the minimum between the
+					//co-occurrences of [a,w] and [w,b].
+					double partial_rco = graph.commonWeight(a, b);
 
-			for (DefaultWeightedEdge edge_b : arc_hash_sets.get(b))
-			{
-				//The extremity of the edge other than b
-				String other_b = otherNode(edge_b, graph, b);
-				
-				/*
-				 * If flag is false means that other_b is a common neighbor of a and b. 
-				 * The weights of [a,other_b] and [other_b, b] will be used to update the weight
-				 * of the edge [a,b]
-				 */
+					//The value 0.5 was chosen arbitrarily.
+					double rco = arcs.getCooccurrence(arc) + partial_rco * 0.5;
 
-				boolean flag = nodi.add(other_b);
-				if (flag == false)
-				{
-					partial_rco += Math.min(arcs.get(getKeyL2(a, other_b)).getCooccurrence(), arcs.get(getKeyL2(b, other_b)).getCooccurrence());
+					//The new value rco is the weight of the edge [a,b]. 
+					arcs.setRco(arc, rco);
 				}
-
 			}
-      
-			//The value 0.5 was chosen arbitrarily.
-			double rco = arc.getCooccurrence() + partial_rco * 0.5;
-			
-			//The weight of the edge [a,b] has been modified.
-			graph.setEdgeWeight(graph.getEdge(a, b), rco);
-			
-			//The new value rco is stored in the Arc object associated with a and b. 
-			arcs.get(getKeyL2(a, b)).setRco(rco);
-		}
-
+		});
 	}	
 	
 	/**
@@ -843,155 +2587,234 @@ public class SnsTool
 	 * neighbor of b. An edge (a,b) can be removed if its weight is less than
 	 * the maximum weight of edges (a,w), where w is a neighbor of a AND its
 	 * weight is less than the maximum weight of edges (b,v), where v is a
-	 * neighbor of b.
+	 * neighbor of b. The removed edges are marked in the bitmask of the graph.
 	 *
-	 * @param arc_hash_sets an HashMap of ArrayList of edges using String as index.
-	 * @param graph a SimpleWeightedGraph object, the graph.
-	 * @param nodes a LinkedList of nodes.
-	 * @param arcs an HashMap of Arcs using String as index.
-	 * @throws ConcurrentModificationException
+	 * @param graph the CsrGraph of the arcs.
+	 * @param nodes keys of the nodes.
+	 * @param arcs an ArcTable.
 	 */
 	
-	private void addStrongEdges(Object2ObjectOpenHashMap<String, ObjectArrayList<DefaultWeightedEdge>> arc_hash_sets, SimpleWeightedGraph<String, DefaultWeightedEdge> graph, LinkedList<String> nodes, Object2ObjectOpenHashMap<String, Arc> arcs) throws java.util.ConcurrentModificationException
+	private void addStrongEdges(CsrGraph graph, IntArrayList nodes, ArcTable arcs)
 	{
 		//Each entry stores the maximum weight of the edges incident to a vertex.
-		Object2DoubleOpenHashMap<String> map_max_rco = new Object2DoubleOpenHashMap<String>(nodes.size());
+		double[] map_max_rco = new double[graph.getNumberNodes()];
 
-		for (String vertex : nodes) 
+		for (int i = 0; i < nodes.size(); i++) 
 		{
+			int vertex = nodes.getInt(i);
 			double weight = 0;
-			double e_weight = 0;
 
-			for (DefaultWeightedEdge e : arc_hash_sets.get(vertex)) 
+			for (int j = graph.start(vertex); j < graph.end(vertex); j++) 
 			{
-				String a = graph.getEdgeSource(e);
-				String b = graph.getEdgeTarget(e);
-
-				e_weight = arcs.get(getKeyL2(a, b)).getRco();
-				weight = Math.max(weight, e_weight);
+				weight = Math.max(weight, arcs.getRco(graph.getEdge(j)));
 			}
 
-			map_max_rco.put(vertex, weight);
+			map_max_rco[vertex] = weight;
 		}
 
-		//ArrayList that contains the edged which will be removed from the graph. 
-		ObjectArrayList<DefaultWeightedEdge> edges_to_remove = new ObjectArrayList<DefaultWeightedEdge>();
-
-		for (DefaultWeightedEdge edge : graph.edgeSet()) 
+		for (int arc = 0; arc < arcs.size(); arc++) 
 		{
-
-			String a = graph.getEdgeSource(edge);
-			String b = graph.getEdgeTarget(edge);
-
-			double rco_edge = graph.getEdgeWeight(edge);
+			double rco_edge = arcs.getRco(arc);
 			
 			//The weight of each edge is compared to the map_map_rco value of each of the two vertices. 
-			if ((rco_edge < map_max_rco.getDouble(a)) && (rco_edge < map_max_rco.getDouble(b))) 
+			//The edges that won't be removed from the graph are StrongEdges.
+			if ((rco_edge < map_max_rco[arcs.getRow(arc)]) && (rco_edge < map_max_rco[arcs.getColumn(arc)])) 
 			{
-				edges_to_remove.add(edge);
+				graph.remove(arc);
 			}
-
-		}
-
-		//The edges that won't be removed from the graph are StrongEdges.
-		for (DefaultWeightedEdge edge : edges_to_remove)
-		{
-			graph.removeEdge(edge);
 		}
 
 	}
 	
 	/**
-	 * This method creates the output file of the stemming process. It associates each index 
-	 * term with the stem that represents the elements of the connected component to which it
-	 * belongs to. 
+	 * This method creates the output file of the stemming process. The connected
+	 * components of the graph are found by a concurrent union-find over the
+	 * edges that have not been removed, on the threads of the pool. The stem of
+	 * a connected component is the common prefix of minimum length between all
+	 * its index terms: in the lexicographic order the index terms of a component
+	 * that come between its first and its last one share their common prefix,
+	 * so the stem is the common prefix of the first and the last index term. The
+	 * stems of the components are derived in parallel.
 	 * 
-	 * @param list_of_components
-	 * @param orderedLookupTable
-	 * @param connected_components
+	 * The index terms are already sorted by the PrefixBuckets object, so the
+	 * lookup table is written following that order: chunks of LOOKUP_CHUNK
+	 * index terms are converted to bytes in parallel and they are written in
+	 * order through a buffered stream.
+	 * 
+	 * @param graph the CsrGraph of the arcs.
+	 * @param arcs an ArcTable.
+	 * @param buckets PrefixBuckets that gives the lexicographic order of the index terms.
+	 * @param store PostingLists that gives the index term of each key.
+	 * @param pool pool of threads.
+	 * @param file_name name of the lookup table.
 	 * @throws FileNotFoundException
-	 * @throws UnsupportedEncodingException
+	 * @throws IOException
 	 */
 	
-	private void findConnectedComponents(List<Set<String>> list_of_components, TreeSet<String[]> orderedLookupTable, ConnectivityInspector<String, DefaultWeightedEdge> connected_components) throws FileNotFoundException, UnsupportedEncodingException 
+	private void findConnectedComponents(CsrGraph graph, ArcTable arcs, PrefixBuckets buckets, PostingLists store, ForkJoinPool pool, String file_name) throws FileNotFoundException, IOException 
 	{
-		String word1 = null;
-		String word2 = null;
+		//The lookup table is the output of the stemming process. 
+		OutputStream writer = new BufferedOutputStream(new FileOutputStream(file_name), 1 << 16);
 
-		for (Set<String> group : list_of_components)
+		try
 		{
-			try 
-			{
-				Iterator<String> iter = group.iterator();
+			findConnectedComponents(graph, arcs, buckets, store, pool, writer);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
 
-				word1 = iter.next();
-				word2 = iter.next();
-				
-				//Common prefix of word1 and word2
-				String min_prefix = commonPrefix(word1, word2);
+	/**
+	 * It finds the connected components as the previous method and it writes
+	 * the lines of the lookup table to a stream, which is not closed.
+	 * 
+	 * @param graph the CsrGraph of the arcs.
+	 * @param arcs an ArcTable.
+	 * @param buckets PrefixBuckets that gives the lexicographic order of the index terms.
+	 * @param store PostingLists that gives the index term of each key.
+	 * @param pool pool of threads.
+	 * @param writer stream of the lookup table.
+	 * @throws IOException
+	 */
+	
+	private void findConnectedComponents(CsrGraph graph, ArcTable arcs, PrefixBuckets buckets, PostingLists store, ForkJoinPool pool, OutputStream writer) throws IOException 
+	{
+		final TermArena terms = store.getTerms();
+		final int[] sorted_keys = buckets.getSortedKeys();
 
-				/*
-				 * For each connected component we search for the stem that represents it.
-				 * In order to achieve this goal we search for the common prefix of minimum length between all the String objects 
-				 * which belong to a connected component.  
-				 */
+		//Root of the connected component of each index term.
+		final int[] roots = new int[store.size()];
+		final String[] stems = findComponents(graph, arcs, sorted_keys, terms, pool, roots);
 
-				for (String word : group) 
-				{
-					String temp_prefix = commonPrefix(word1, word);
-					if (temp_prefix.length() < min_prefix.length()) 
-					{
-						min_prefix = temp_prefix;
-					}
+		int chunks = (sorted_keys.length + LOOKUP_CHUNK - 1) / LOOKUP_CHUNK;
+		final byte[][] batch = new byte[4 * parallelism][];
 
-				}
-				
-				
-				for (String word : group) 
-				{
-					//Couples of a String belonging to a connected component and the stem that represents it. 
-					String[] temp = { word, min_prefix };
-					orderedLookupTable.add(temp);
-				}
-			} 
-			catch (NoSuchElementException e)
+		for (int first_chunk = 0; first_chunk < chunks; first_chunk += batch.length)
+		{
+			final int batch_start = first_chunk;
+			final int batch_chunks = Math.min(batch.length, chunks - first_chunk);
+
+			ParallelRange.run(pool, batch_chunks, 1, new ParallelRange.Body()
 			{
+				public void run(int from, int to)
+				{
+					for (int chunk = from; chunk < to; chunk++)
+					{
+						int start = (batch_start + chunk) * LOOKUP_CHUNK;
+						int end = Math.min(sorted_keys.length, start + LOOKUP_CHUNK);
+						StringBuilder lines = new StringBuilder();
 
-			}
+						for (int position = start; position < end; position++)
+						{
+							int key = sorted_keys[position];
+							String stem = stems[roots[key]];
 
-		}
+							//Couples of a String belonging to a connected component and the stem that represents it. 
+							if (stem != null)
+							{
+								terms.appendTo(key, lines);
+								lines.append('\t').append(stem).append('\n');
+							}
+						}
 
-		//lookup_table.txt is the output of the stemming process. 
-		PrintWriter writer = new PrintWriter("lookup_table.txt", "UTF-8");
+						batch[chunk] = lines.toString().getBytes(StandardCharsets.UTF_8);
+					}
+				}
+			});
 
-		for (String[] lookupElement : orderedLookupTable) 
-		{
-			writer.print(lookupElement[0] + "\t" + lookupElement[1] + "\n");
+			for (int chunk = 0; chunk < batch_chunks; chunk++)
+			{
+				writer.write(batch[chunk]);
+				batch[chunk] = null;
+			}
 		}
-
-		writer.close();
 	}
 
 	/**
-	 * Class used to implement the Comparator Interface for String[]. The class
-	 * is used to generate a lookup table in lexicographical order.
+	 * It finds the connected components of the edges of a graph that have not
+	 * been removed and their stems, for a set of index terms that contains the
+	 * extremities of all the edges. The components are found by a concurrent
+	 * union-find on the threads of the pool, and the stem of a component is
+	 * the common prefix of its first and its last index term in the
+	 * lexicographic order.
+	 * 
+	 * @param graph the CsrGraph of the arcs.
+	 * @param arcs an ArcTable.
+	 * @param sorted_keys keys of the index terms, in the lexicographic order.
+	 * @param terms index terms.
+	 * @param pool pool of threads.
+	 * @param roots root of the component of each index term of sorted_keys.
+	 * @return the stem of each component with at least two index terms, indexed by its root.
 	 */
-
-	public static class LookupComparator implements java.util.Comparator<String[]>
+	
+	private String[] findComponents(final CsrGraph graph, final ArcTable arcs, final int[] sorted_keys, final TermArena terms, ForkJoinPool pool, final int[] roots)
 	{
+		final int number_terms = terms.size();
+		final UnionFind components = new UnionFind(number_terms);
 
-		/**
-		 * Compares the first String of array1 with the first String of array2.
-		 * 
-		 * @param array1 an Array of String.
-		 * @param array2 an Array of String.
-		 */
-		
-		public int compare(String[] array1, String[] array2) 
+		ParallelRange.run(pool, arcs.size(), new ParallelRange.Body()
+		{
+			public void run(int from, int to)
+			{
+				for (int arc = from; arc < to; arc++)
+				{
+					if (!graph.isRemoved(arc))
+					{
+						components.union(arcs.getRow(arc), arcs.getColumn(arc));
+					}
+				}
+			}
+		});
+
+		ParallelRange.run(pool, sorted_keys.length, new ParallelRange.Body()
+		{
+			public void run(int from, int to)
+			{
+				for (int position = from; position < to; position++)
+				{
+					roots[sorted_keys[position]] = components.find(sorted_keys[position]);
+				}
+			}
+		});
+
+		//Key of the first and of the last index term of each connected component
+		//in the lexicographic order, indexed by the root of the component.
+		final int[] first = new int[number_terms];
+		final int[] last = new int[number_terms];
+		Arrays.fill(first, -1);
+
+		for (int position = 0; position < sorted_keys.length; position++)
 		{
-			return array1[0].compareTo(array2[0]);
+			int root = roots[sorted_keys[position]];
+			if (first[root] < 0)
+			{
+				first[root] = sorted_keys[position];
+			}
+			last[root] = sorted_keys[position];
 		}
-		
+
+		//Stem of each connected component with at least two index terms,
+		//indexed by the root of the component.
+		final String[] stems = new String[number_terms];
+
+		ParallelRange.run(pool, sorted_keys.length, new ParallelRange.Body()
+		{
+			public void run(int from, int to)
+			{
+				for (int position = from; position < to; position++)
+				{
+					int root = sorted_keys[position];
+					if (roots[root] == root && first[root] != last[root])
+					{
+						stems[root] = terms.getPrefix(first[root], terms.commonPrefixLength(first[root], last[root]));
+					}
+				}
+			}
+		});
+
+		return stems;
 	}
 
 }
@@ -0,0 +1,186 @@
+/**
+ * An element of this class assigns an int id to each distinct suffix of the index terms. A suffix
+ * is given as the key of an index term of a TermArena and the position where it starts, so no
+ * String is created for it: the characters of each distinct suffix are copied once in a TermArena
+ * of the table, where the id of a suffix is its key, and the suffixes are hashed and compared in
+ * place. It is an open addressing hash table with linear probing.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class SuffixTable
+{
+	//Id stored in each position of the hash table, -1 if the position is empty.
+	private int[] table;
+
+	//Characters of the suffix of each id.
+	private TermArena suffixes;
+
+	//Hash code of the suffix of each id.
+	private int[] hashes;
+
+	/**
+	 * @param expected_suffixes expected number of distinct suffixes.
+	 */
+	public SuffixTable(int expected_suffixes)
+	{
+		int capacity = Integer.highestOneBit(Math.max(16, 2 * expected_suffixes - 1)) << 1;
+		table = new int[capacity];
+		Arrays.fill(table, -1);
+
+		suffixes = new TermArena(expected_suffixes);
+		hashes = new int[Math.max(1, expected_suffixes)];
+	}
+
+	/**
+	 * It returns the id of the suffix of an index term that starts at a given position. A new
+	 * id is assigned the first time that the suffix is seen.
+	 *
+	 * @param terms arena of the index term.
+	 * @param key key of the index term.
+	 * @param start first position of the suffix.
+	 * @return the id of the suffix.
+	 */
+	public int intern(TermArena terms, int key, int start)
+	{
+		int hash = terms.hash(key, start);
+		int position = probe(hash, terms, key, start);
+
+		if (table[position] >= 0)
+		{
+			return table[position];
+		}
+
+		int size = suffixes.size();
+		if (size == hashes.length)
+		{
+			hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+		}
+
+		suffixes.addSuffix(terms, key, start);
+		hashes[size] = hash;
+		table[position] = size;
+
+		if (2 * (size + 1) > table.length)
+		{
+			rehash();
+		}
+
+		return size;
+	}
+
+	/**
+	 * It returns the id of the suffix of an index term that starts at a given position, without
+	 * assigning a new one. The table is not modified, so more threads can look up the suffixes
+	 * while no suffix is added.
+	 *
+	 * @param terms arena of the index term.
+	 * @param key key of the index term.
+	 * @param start first position of the suffix.
+	 * @return the id of the suffix, -1 if it has never been seen.
+	 */
+	public int find(TermArena terms, int key, int start)
+	{
+		return table[probe(terms.hash(key, start), terms, key, start)];
+	}
+
+	/**
+	 * It returns the position of the hash table that stores the id of a suffix, or the empty
+	 * position where it would be stored.
+	 */
+	private int probe(int hash, TermArena terms, int key, int start)
+	{
+		int mask = table.length - 1;
+		int position = mix(hash) & mask;
+
+		for (int id = table[position]; id >= 0; id = table[position])
+		{
+			if (hashes[id] == hash && suffixes.suffixEquals(id, 0, terms, key, start))
+			{
+				break;
+			}
+			position = (position + 1) & mask;
+		}
+
+		return position;
+	}
+
+	/**
+	 * It returns the number of distinct suffixes.
+	 *
+	 * @return size
+	 */
+	public int size()
+	{
+		return suffixes.size();
+	}
+
+	/**
+	 * It returns a suffix as a String.
+	 *
+	 * @param id id of the suffix.
+	 * @return the suffix.
+	 */
+	public String getSuffix(int id)
+	{
+		return suffixes.getTerm(id);
+	}
+
+	/**
+	 * It writes the suffixes in the order of their ids, the hash table and the hash codes.
+	 *
+	 * @param out output of a checkpoint.
+	 * @throws IOException
+	 */
+	public void write(Checkpoint.Output out) throws IOException
+	{
+		suffixes.write(out);
+		out.writeInt(table.length);
+		out.writeInts(table, 0, table.length);
+		out.writeInts(hashes, 0, suffixes.size());
+	}
+
+	/**
+	 * It reads the suffixes written by write, each one gets again the same id. The hash table is
+	 * read as it is, so the suffixes are not inserted again.
+	 *
+	 * @param in input of a checkpoint.
+	 * @return the SuffixTable.
+	 * @throws IOException
+	 */
+	public static SuffixTable read(Checkpoint.Input in) throws IOException
+	{
+		SuffixTable suffixes = new SuffixTable(0);
+		suffixes.suffixes = TermArena.read(in);
+		suffixes.table = in.readInts(in.readInt());
+		suffixes.hashes = Arrays.copyOf(in.readInts(suffixes.suffixes.size()), Math.max(1, suffixes.suffixes.size()));
+		return suffixes;
+	}
+
+	/**
+	 * It doubles the hash table and it inserts again all the ids, including the one being added.
+	 */
+	private void rehash()
+	{
+		table = new int[2 * table.length];
+		Arrays.fill(table, -1);
+		int mask = table.length - 1;
+
+		for (int id = 0; id < suffixes.size(); id++)
+		{
+			int position = mix(hashes[id]) & mask;
+			while (table[position] >= 0)
+			{
+				position = (position + 1) & mask;
+			}
+			table[position] = id;
+		}
+	}
+
+	private static int mix(int hash)
+	{
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
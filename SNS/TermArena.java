@@ -0,0 +1,315 @@
+/**
+ * An element of this class stores the index terms of a collection in a single array of chars: the
+ * characters of all the index terms are stored one after the other and for each index term only
+ * the offset of its first character is kept, so an index term is a range of positions of the
+ * array. The key of an index term is the order in which it has been added to the arena.
+ *
+ * The index terms are compared, hashed and matched in place, so no String is created for them
+ * during the stemming process: a String is created only when an index term is written.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class TermArena
+{
+	//Characters of all the index terms.
+	private char[] chars;
+
+	//Position of the first character of each index term. The entry that follows the last index
+	//term is the end of its characters.
+	private int[] offsets;
+
+	//Number of index terms.
+	private int size;
+
+	/**
+	 * It allocates the arrays of the arena, with about 10 characters for each index term.
+	 *
+	 * @param expected_terms expected number of index terms.
+	 */
+	public TermArena(int expected_terms)
+	{
+		offsets = new int[Math.max(1, expected_terms) + 1];
+		chars = new char[(int) Math.min(Integer.MAX_VALUE - 8, 10L * Math.max(1, expected_terms))];
+	}
+
+	/**
+	 * It adds an index term to the arena.
+	 *
+	 * @param term the index term.
+	 * @return the key of the index term.
+	 */
+	public int add(String term)
+	{
+		int start = reserve(term.length());
+		term.getChars(0, term.length(), chars, start);
+		return size++;
+	}
+
+	/**
+	 * It adds an index term of another arena.
+	 *
+	 * @param other the other arena.
+	 * @param key key of the index term in the other arena.
+	 * @return the key of the index term in this arena.
+	 */
+	public int add(TermArena other, int key)
+	{
+		return addSuffix(other, key, 0);
+	}
+
+	/**
+	 * It adds the suffix of an index term of another arena as a new index term.
+	 *
+	 * @param other the other arena.
+	 * @param key key of the index term in the other arena.
+	 * @param from first position of the suffix.
+	 * @return the key of the suffix in this arena.
+	 */
+	public int addSuffix(TermArena other, int key, int from)
+	{
+		int length = other.length(key) - from;
+		int start = reserve(length);
+		System.arraycopy(other.chars, other.offsets[key] + from, chars, start, length);
+		return size++;
+	}
+
+	/**
+	 * It makes room for an index term of a given length and it returns the position of its first
+	 * character.
+	 */
+	private int reserve(int length)
+	{
+		if (size + 1 == offsets.length)
+		{
+			offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+		}
+
+		int start = offsets[size];
+		if ((long) start + length > chars.length)
+		{
+			long capacity = Math.max((long) start + length, 2L * chars.length);
+			if (capacity > Integer.MAX_VALUE - 8)
+			{
+				throw new IllegalStateException("TermArena: too many characters (" + capacity + ")");
+			}
+			chars = Arrays.copyOf(chars, (int) capacity);
+		}
+
+		offsets[size + 1] = start + length;
+		return start;
+	}
+
+	/**
+	 * It releases the unused positions of the arrays.
+	 */
+	public void trim()
+	{
+		chars = Arrays.copyOf(chars, offsets[size]);
+		offsets = Arrays.copyOf(offsets, size + 1);
+	}
+
+	/**
+	 * It returns the number of index terms.
+	 *
+	 * @return size
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * It returns the number of bytes of the arrays.
+	 *
+	 * @return bytes
+	 */
+	public long getBytes()
+	{
+		return 2L * chars.length + 4L * offsets.length;
+	}
+
+	/**
+	 * It returns the length of an index term.
+	 *
+	 * @param key key of the index term.
+	 * @return length
+	 */
+	public int length(int key)
+	{
+		return offsets[key + 1] - offsets[key];
+	}
+
+	/**
+	 * It returns a character of an index term.
+	 *
+	 * @param key key of the index term.
+	 * @param index position of the character in the index term.
+	 * @return the character.
+	 */
+	public char charAt(int key, int index)
+	{
+		return chars[offsets[key] + index];
+	}
+
+	/**
+	 * It returns the length of the longest common prefix of two index terms.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return the length of the longest common prefix.
+	 */
+	public int commonPrefixLength(int key1, int key2)
+	{
+		int start1 = offsets[key1];
+		int start2 = offsets[key2];
+		int length = Math.min(offsets[key1 + 1] - start1, offsets[key2 + 1] - start2);
+
+		for (int i = 0; i < length; i++)
+		{
+			if (chars[start1 + i] != chars[start2 + i])
+			{
+				return i;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * It compares two index terms according to the lexicographic order, like String.compareTo.
+	 *
+	 * @param key1 key of the first index term.
+	 * @param key2 key of the latter index term.
+	 * @return a negative number, 0 or a positive number if the first index term precedes, is
+	 * equal to or follows the latter one.
+	 */
+	public int compare(int key1, int key2)
+	{
+		int prefix = commonPrefixLength(key1, key2);
+		int length1 = length(key1);
+		int length2 = length(key2);
+
+		if (prefix == length1 || prefix == length2)
+		{
+			return length1 - length2;
+		}
+		return chars[offsets[key1] + prefix] - chars[offsets[key2] + prefix];
+	}
+
+	/**
+	 * It returns the hash code of the suffix of an index term, the same of String.hashCode.
+	 *
+	 * @param key key of the index term.
+	 * @param start first position of the suffix.
+	 * @return the hash code.
+	 */
+	public int hash(int key, int start)
+	{
+		int hash = 0;
+		for (int i = offsets[key] + start; i < offsets[key + 1]; i++)
+		{
+			hash = 31 * hash + chars[i];
+		}
+		return hash;
+	}
+
+	/**
+	 * It verifies if the suffix of an index term is equal to the suffix of an index term of
+	 * another arena.
+	 *
+	 * @param key key of the index term.
+	 * @param start first position of the suffix.
+	 * @param other the other arena.
+	 * @param other_key key of the index term of the other arena.
+	 * @param other_start first position of the suffix of the other index term.
+	 * @return true if the two suffixes are equal.
+	 */
+	public boolean suffixEquals(int key, int start, TermArena other, int other_key, int other_start)
+	{
+		int from = offsets[key] + start;
+		int length = offsets[key + 1] - from;
+		int other_from = other.offsets[other_key] + other_start;
+
+		if (length != other.offsets[other_key + 1] - other_from)
+		{
+			return false;
+		}
+
+		for (int i = 0; i < length; i++)
+		{
+			if (chars[from + i] != other.chars[other_from + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * It returns an index term as a String.
+	 *
+	 * @param key key of the index term.
+	 * @return the index term.
+	 */
+	public String getTerm(int key)
+	{
+		return new String(chars, offsets[key], offsets[key + 1] - offsets[key]);
+	}
+
+	/**
+	 * It returns a prefix of an index term as a String.
+	 *
+	 * @param key key of the index term.
+	 * @param length length of the prefix.
+	 * @return the prefix.
+	 */
+	public String getPrefix(int key, int length)
+	{
+		return new String(chars, offsets[key], length);
+	}
+
+	/**
+	 * It appends an index term to a StringBuilder.
+	 *
+	 * @param key key of the index term.
+	 * @param builder the StringBuilder.
+	 */
+	public void appendTo(int key, StringBuilder builder)
+	{
+		builder.append(chars, offsets[key], offsets[key + 1] - offsets[key]);
+	}
+
+	/**
+	 * It writes the index terms in the order of their keys, each one as a String of a checkpoint.
+	 *
+	 * @param out output of a checkpoint.
+	 * @throws IOException
+	 */
+	public void write(Checkpoint.Output out) throws IOException
+	{
+		out.writeInt(size);
+		for (int key = 0; key < size; key++)
+		{
+			out.writeString(getTerm(key));
+		}
+	}
+
+	/**
+	 * It reads the index terms written by write, each one gets again the same key.
+	 *
+	 * @param in input of a checkpoint.
+	 * @return the TermArena.
+	 * @throws IOException
+	 */
+	public static TermArena read(Checkpoint.Input in) throws IOException
+	{
+		int size = in.readInt();
+		TermArena terms = new TermArena(size);
+		for (int key = 0; key < size; key++)
+		{
+			terms.add(in.readString());
+		}
+		return terms;
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * An element of this class reads the index terms and their posting lists directly from an index
+ * built by Terrier, through the lexicon and the inverted index of terrier-core. No text export
+ * of the index is needed: the postings are streamed from the inverted index into a PostingStore.
+ * The classes used by terrier-core to open an index (hadoop, slf4j, ...) must be in the
+ * classpath, as in a Terrier installation.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import org.terrier.structures.Index;
+import org.terrier.structures.IndexOnDisk;
+import org.terrier.structures.Lexicon;
+import org.terrier.structures.Pointer;
+import org.terrier.structures.PostingIndex;
+import org.terrier.structures.postings.IterablePosting;
+
+public class TerrierPostingSource implements PostingSource
+{
+	//Path and prefix of the Terrier index (e.g. "var/index" and "data").
+	private String path;
+	private String prefix;
+
+	//If true the posting lists are stored in a CompressedPostings.
+	private boolean compressed;
+
+	/**
+	 * @param path directory of the Terrier index.
+	 * @param prefix prefix of the files of the Terrier index.
+	 */
+	public TerrierPostingSource(String path, String prefix)
+	{
+		this(path, prefix, false);
+	}
+
+	/**
+	 * @param path directory of the Terrier index.
+	 * @param prefix prefix of the files of the Terrier index.
+	 * @param compressed true to store the posting lists in a CompressedPostings.
+	 */
+	public TerrierPostingSource(String path, String prefix, boolean compressed)
+	{
+		this.path = path;
+		this.prefix = prefix;
+		this.compressed = compressed;
+	}
+
+	/**
+	 * It returns the fingerprint of the properties file of the index, which Terrier rewrites
+	 * whenever the index is modified.
+	 *
+	 * @return the fingerprint.
+	 * @throws IOException
+	 */
+	public String fingerprint() throws IOException
+	{
+		return "terrier " + PostingSource.fingerprint(new File(path, prefix + ".properties"));
+	}
+
+	/**
+	 * It iterates over the lexicon of the index and, for each index term that is kept, it
+	 * streams its posting list from the inverted index.
+	 *
+	 * @return PostingStore with the index terms in the order of the lexicon.
+	 * @throws IOException
+	 */
+	public PostingStore read() throws IOException
+	{
+		IndexOnDisk index = Index.createIndex(path, prefix);
+		if (index == null)
+		{
+			throw new IOException("TerrierPostingSource: " + Index.getLastIndexLoadError());
+		}
+
+		try
+		{
+			Lexicon<String> lexicon = index.getLexicon();
+			PostingIndex<?> inverted = index.getInvertedIndex();
+
+			int entries = lexicon.numberOfEntries();
+			int entries_div = Math.max(1, entries / 10);
+			int entry = 0;
+
+			PostingStore store = PostingStore.create(compressed, entries, entries);
+
+			//Posting list of the current index term.
+			IntArrayList docs = new IntArrayList();
+			IntArrayList tfs = new IntArrayList();
+
+			for (Map.Entry<String, ?> lexicon_entry : lexicon)
+			{
+				if (++entry % entries_div == 0)
+				{
+					System.out.println("Reading: " + (int)((entry / (double) entries) * 100) + "%");
+				}
+
+				String term = lexicon_entry.getKey();
+				if (!PostingSource.isKept(term))
+				{
+					continue;
+				}
+
+				docs.clear();
+				tfs.clear();
+
+				//A LexiconEntry is also the pointer to the posting list in the inverted index.
+				IterablePosting postings = inverted.getPostings((Pointer) lexicon_entry.getValue());
+				while (postings.next() != IterablePosting.EOL)
+				{
+					docs.add(postings.getId());
+					tfs.add(postings.getFrequency());
+				}
+				postings.close();
+
+				store.addTerm(term, docs.elements(), tfs.elements(), 0, docs.size());
+			}
+
+			store.trim();
+			return store;
+		}
+		finally
+		{
+			index.close();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * An element of this class is a disjoint-set forest that can be updated by several threads at
+ * the same time. The parent of each node is stored in an AtomicIntegerArray: a root is always
+ * linked under the smaller of the two roots with a compare-and-set, so the root of a set is its
+ * smallest node whatever the order of the unions, and the paths are halved during the searches.
+ */
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class UnionFind
+{
+	//Parent of each node, a root is its own parent.
+	private AtomicIntegerArray parents;
+
+	/**
+	 * Each node is initially a set by itself.
+	 *
+	 * @param size number of nodes.
+	 */
+	public UnionFind(int size)
+	{
+		parents = new AtomicIntegerArray(size);
+		for (int node = 0; node < size; node++)
+		{
+			parents.set(node, node);
+		}
+	}
+
+	/**
+	 * It returns the root of the set of a node.
+	 *
+	 * @param node the node.
+	 * @return the root.
+	 */
+	public int find(int node)
+	{
+		int parent = parents.get(node);
+
+		while (parent != node)
+		{
+			//Path halving: node is linked to its grandparent.
+			int grandparent = parents.get(parent);
+			if (grandparent != parent)
+			{
+				parents.compareAndSet(node, parent, grandparent);
+			}
+			node = grandparent;
+			parent = parents.get(node);
+		}
+
+		return node;
+	}
+
+	/**
+	 * It merges the sets of two nodes.
+	 *
+	 * @param node1 a node.
+	 * @param node2 an other node.
+	 */
+	public void union(int node1, int node2)
+	{
+		while (true)
+		{
+			int root1 = find(node1);
+			int root2 = find(node2);
+
+			if (root1 == root2)
+			{
+				return;
+			}
+
+			//The greater root is linked under the smaller one, if it is still a root.
+			int low = Math.min(root1, root2);
+			int high = Math.max(root1, root2);
+			if (parents.compareAndSet(high, high, low))
+			{
+				return;
+			}
+		}
+	}
+}
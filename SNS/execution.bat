@@ -1,7 +1,7 @@
 @echo off
 
 echo Compilazione
-javac -classpath ".;lib\*;" *.java
+javac -classpath ".;lib\*;..\terrier-core-4.1.jar;" *.java
 
 echo Esecuzione
-java -classpath ".;lib\*;" -Xmx6144m -Xms256m  SnsStemmer
\ No newline at end of file
+java -classpath ".;lib\*;..\terrier-core-4.1.jar;" -Xmx6144m -Xms256m  SnsStemmer
\ No newline at end of file
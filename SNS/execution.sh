@@ -1,6 +1,6 @@
 echo Compilazione
-javac -classpath "lib/*" *.java
+javac -classpath "lib/*:../terrier-core-4.1.jar" *.java
 
 echo Esecuzione
-java -cp ".:lib/*" -Xmx10144m -Xms256m SnsStemmer
+java -cp ".:lib/*:../terrier-core-4.1.jar" -Xmx10144m -Xms256m SnsStemmer
 